@@ -5,6 +5,7 @@ import { dispatchify } from 'aurelia-store';
 
 import ItemState from './store/item/state';
 import * as Mutations from './store/item/mutations';
+import * as Api from './store/item/api';
 import './app.scss';
 
 /**
@@ -14,8 +15,10 @@ import './app.scss';
  * @class App
  */
 @connectTo<ItemState>({
-  selector: (store) => store.state.pipe(pluck("items")),
-  target: "items",
+  selector: {
+    items: (store) => store.state.pipe(pluck("items")),
+    nextCursor: (store) => store.state.pipe(pluck("nextCursor")),
+  },
 })
 @inject(Store)
 export class App {
@@ -23,13 +26,23 @@ export class App {
 
   getAllItems: () => Promise<void>;
 
+  getMoreItems: () => Promise<void>;
+
+  applyItemChange: (change: Api.ItemChange) => Promise<void>;
+
+  private itemChanges?: EventSource;
+
   constructor(store: Store<ItemState>) {
     store.registerAction(Mutations.getAllItems.name, Mutations.getAllItems);
+    store.registerAction(Mutations.getMoreItems.name, Mutations.getMoreItems);
     store.registerAction(Mutations.postItem.name, Mutations.postItem);
     store.registerAction(Mutations.putItem.name, Mutations.putItem);
     store.registerAction(Mutations.getItemVersions.name, Mutations.getItemVersions);
+    store.registerAction(Mutations.applyItemChange.name, Mutations.applyItemChange);
 
     this.getAllItems = dispatchify(Mutations.getAllItems);
+    this.getMoreItems = dispatchify(Mutations.getMoreItems);
+    this.applyItemChange = dispatchify(Mutations.applyItemChange);
   }
 
   /**
@@ -40,11 +53,33 @@ export class App {
    */
   public items: ItemState;
 
+  /**
+   * Cursor of the next page of items, if there is one
+   *
+   * @type {string}
+   * @memberof App
+   */
+  public nextCursor?: string;
+
   /**
    * @memberof App
    * @lifecycle
    */
   attached() {
     this.getAllItems();
+    this.itemChanges = Api.subscribeToItemChanges(
+      (change) => this.applyItemChange(change),
+      () => this.getAllItems()
+    );
+  }
+
+  /**
+   * @memberof App
+   * @lifecycle
+   */
+  detached() {
+    if (this.itemChanges) {
+      this.itemChanges.close();
+    }
   }
 }
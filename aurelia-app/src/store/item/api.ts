@@ -3,6 +3,30 @@ import { ItemVersion } from 'models/ItemVersion';
 
 const itemsEndpoint = "/items";
 
+const itemChangesEndpoint = "/items/changes";
+
+const nextCursorHeader = "X-Next-Cursor";
+
+/**
+ * A page of items plus the cursor of the following page, if any.
+ */
+export interface ItemPage {
+  items: Item[];
+  nextCursor?: string;
+}
+
+/**
+ * A change applied to the stored items, as sent by the change feed.
+ */
+export interface ItemChange {
+  type: 'CREATE' | 'UPDATE' | 'DELETE' | 'DELETE_ALL';
+  itemId?: string;
+  name?: string;
+  attributes?: { [key: string]: string };
+  timestamp: number;
+  versionNumber: number;
+}
+
 /**
  * Get all items. 
  *
@@ -24,6 +48,36 @@ export async function getAllItems(): Promise<Item[]> {
 }
 
 
+/**
+ * Get one page of items, newest first.
+ *
+ * @export
+ * @param {number} limit The maximum number of items to fetch
+ * @param {string} [cursor] The cursor returned with the previous page
+ * @return {Promise<ItemPage>} The page of items
+ */
+export async function getItemsPage(limit: number, cursor?: string): Promise<ItemPage> {
+  const params = new URLSearchParams({ limit: String(limit) });
+  if (cursor) {
+    params.set('cursor', cursor);
+  }
+
+  const response = await fetch(
+    `${itemsEndpoint}?${params}`,
+    {
+      method: 'GET',
+      headers: {
+        'Content-Type': 'application/json'
+      },
+    }
+  );
+
+  return {
+    items: await response.json(),
+    nextCursor: response.headers.get(nextCursorHeader) || undefined,
+  };
+}
+
 /**
  * Create a new item. 
  *
@@ -90,3 +144,26 @@ export async function getItemVersions(itemId: string): Promise<ItemVersion[]> {
 
   return response.json();
 }
+
+/**
+ * Subscribe to the changes of all items. The browser reconnects on its own and resumes
+ * after the last received change; if that change is no longer known to the server,
+ * onReset is called and the items have to be reloaded.
+ *
+ * @export
+ * @param {(change: ItemChange) => void} onChange Called with every change
+ * @param {() => void} onReset Called when changes were missed
+ * @return {EventSource} The subscription, to be closed by the caller
+ */
+export function subscribeToItemChanges(onChange: (change: ItemChange) => void, onReset: () => void): EventSource {
+  const source = new EventSource(itemChangesEndpoint);
+  const listener = (event: MessageEvent) => onChange(JSON.parse(event.data));
+
+  source.addEventListener('create', listener);
+  source.addEventListener('update', listener);
+  source.addEventListener('delete', listener);
+  source.addEventListener('delete-all', listener);
+  source.addEventListener('reset', () => onReset());
+
+  return source;
+}
@@ -8,19 +8,41 @@ import * as Api from './api';
 
 setAutoFreeze(false);
 
-const itemsEndpoint = "/items";
+const pageSize = 50;
 
 /**
- * Get all items.
+ * Get the first page of items.
  *
  * @export
  * @return {Promise<ItemState>} The state with fetched items
  */
 const getAllItems = async (state: ItemState): Promise<ItemState> => {
-  const items: Item[] = await Api.getAllItems();
+  const page: Api.ItemPage = await Api.getItemsPage(pageSize);
 
   const newState: ItemState = produce(state, (draftState) => {
-    draftState.items = items
+    draftState.items = page.items;
+    draftState.nextCursor = page.nextCursor;
+  });
+
+  return newState;
+};
+
+/**
+ * Get the next page of items and append it to the list.
+ *
+ * @export
+ * @return {Promise<ItemState>} The state with the next page of items added
+ */
+const getMoreItems = async (state: ItemState): Promise<ItemState> => {
+  if (!state.nextCursor) {
+    return state;
+  }
+
+  const page: Api.ItemPage = await Api.getItemsPage(pageSize, state.nextCursor);
+
+  const newState: ItemState = produce(state, (draftState) => {
+    draftState.items.push(...page.items);
+    draftState.nextCursor = page.nextCursor;
   });
 
   return newState;
@@ -37,7 +59,10 @@ const postItem = async (state: ItemState, item: Item): Promise<ItemState> => {
   const addedItem: Item = await Api.postItem(item);
 
   const newState: ItemState = produce(state, (draftState) => {
-    draftState.items.unshift(addedItem);
+    // the change feed may have added it already
+    if (!draftState.items.some((it) => it.id === addedItem.id)) {
+      draftState.items.unshift(addedItem);
+    }
   });
 
   return newState;
@@ -86,4 +111,40 @@ const getItemVersions = async (
   return newState;
 };
 
-export { getAllItems, postItem, putItem, getItemVersions };
+/**
+ * Apply a change received from the change feed.
+ *
+ * @export
+ * @param {Api.ItemChange} change The change of an item or of all items
+ * @return {ItemState} The state with the change applied
+ */
+const applyItemChange = (state: ItemState, change: Api.ItemChange): ItemState => {
+  return produce(state, (draftState) => {
+    const itemIndx = draftState.items.findIndex((it) => it.id === change.itemId);
+
+    switch (change.type) {
+      case 'CREATE':
+        if (itemIndx < 0) {
+          draftState.items.unshift({ id: change.itemId, name: change.name, attributes: change.attributes });
+        }
+        break;
+      case 'UPDATE':
+        if (itemIndx >= 0) {
+          // versions are fetched again when the item is selected
+          draftState.items[itemIndx] = { id: change.itemId, name: change.name, attributes: change.attributes };
+        }
+        break;
+      case 'DELETE':
+        if (itemIndx >= 0) {
+          draftState.items.splice(itemIndx, 1);
+        }
+        break;
+      case 'DELETE_ALL':
+        draftState.items = [];
+        draftState.nextCursor = undefined;
+        break;
+    }
+  });
+};
+
+export { getAllItems, getMoreItems, postItem, putItem, getItemVersions, applyItemChange };
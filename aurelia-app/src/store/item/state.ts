@@ -2,6 +2,7 @@ import { Item } from "models/Item";
 
 export default interface ItemState {
   items: Item[];
+  nextCursor?: string;
 }
 
 export const initialState: ItemState = {
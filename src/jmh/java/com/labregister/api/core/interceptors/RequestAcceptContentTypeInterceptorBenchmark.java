@@ -0,0 +1,65 @@
+package com.labregister.api.core.interceptors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accept header check of {@link RequestAcceptContentTypeInterceptor} for typical API and browser headers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestAcceptContentTypeInterceptorBenchmark {
+
+	@Param({
+			"application/json",
+			"*/*",
+			"text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3"
+	})
+	public String accept;
+
+	private static final String[] SUPPORTED_TYPES = {"application/json", "application/x-ndjson"};
+
+	private RequestAcceptContentTypeInterceptor interceptor;
+
+	private MockHttpServletRequest request;
+
+	private MockHttpServletResponse response;
+
+	@Setup
+	public void setUp() {
+		interceptor = new RequestAcceptContentTypeInterceptor(SUPPORTED_TYPES);
+		request = new MockHttpServletRequest("GET", "/items");
+		request.addHeader("Accept", accept);
+		response = new MockHttpServletResponse();
+	}
+
+	@Benchmark
+	public boolean preHandle() {
+		return interceptor.preHandle(request, response, null);
+	}
+
+	/**
+	 * The header scan alone, as for headers missing in the verdict cache
+	 */
+	@Benchmark
+	public boolean scan() {
+		return RequestAcceptContentTypeInterceptor.isAcceptable(accept, SUPPORTED_TYPES);
+	}
+}
@@ -0,0 +1,70 @@
+package com.labregister.api.core.validation;
+
+import com.labregister.api.core.exception.EntityValidationException;
+import com.labregister.api.items.ItemFixtures;
+import com.labregister.api.items.domain.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean validation of valid and invalid item requests by {@link EntityValidator}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityValidatorBenchmark {
+
+	@Param({"5", "50"})
+	public int attributeCount;
+
+	private EntityValidator validator;
+
+	private Item validItem;
+
+	private Item invalidItem;
+
+	@Setup
+	public void setUp() {
+		validator = ItemFixtures.entityValidator();
+		validItem = ItemFixtures.request("Item", attributeCount);
+		validItem.setId("item-1");
+		invalidItem = ItemFixtures.request(" ", attributeCount);
+		invalidItem.setId("item-1");
+	}
+
+	@Benchmark
+	public Item validateCreate() {
+		validator.validateCreate(validItem);
+		return validItem;
+	}
+
+	@Benchmark
+	public Item validateUpdate() {
+		validator.validateUpdate("item-1", validItem);
+		return validItem;
+	}
+
+	@Benchmark
+	public EntityValidationException validateCreateInvalid() {
+		try {
+			validator.validateCreate(invalidItem);
+			throw new IllegalStateException("item must be invalid");
+		} catch (EntityValidationException e) {
+			return e;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.labregister.api.items;
+
+import com.labregister.api.core.validation.EntityValidator;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemConstraints;
+import com.labregister.api.items.store.ItemStore;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import javax.validation.Validation;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Test data shared by the benchmarks
+ */
+public final class ItemFixtures {
+
+	private ItemFixtures() {
+	}
+
+	public static EntityValidator entityValidator() {
+		return new EntityValidator(new SpringValidatorAdapter(Validation.buildDefaultValidatorFactory().getValidator()),
+		                           Collections.singletonList(new ItemConstraints()));
+	}
+
+	/**
+	 * @return a new item request with attributes {@code key-0 .. key-<n-1>}
+	 */
+	public static Item request(String name, int attributeCount) {
+		return new Item(name, attributes(attributeCount, 0));
+	}
+
+	/**
+	 * @return attributes {@code key-i -> value-i-<revision>}, only the first one changes with the revision
+	 */
+	public static Map<String, String> attributes(int attributeCount, int revision) {
+		Map<String, String> attributes = new HashMap<>();
+		for (int i = 0; i < attributeCount; i++) {
+			attributes.put("key-" + i, "value-" + i + (i == 0 ? "-" + revision : ""));
+		}
+		return attributes;
+	}
+
+	/**
+	 * Fills the store with items, each having the given number of versions
+	 *
+	 * @return ids of the created items, in creation order
+	 */
+	public static String[] populate(ItemStore store, int itemCount, int attributeCount, int versionsPerItem) {
+		String[] ids = new String[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			Item item = request("Item " + i, attributeCount);
+			item.setId(UUID.randomUUID().toString());
+			item.setCreationDate(new Date());
+			ids[i] = store.create(item).getId();
+
+			for (int v = 1; v < versionsPerItem; v++) {
+				Item update = new Item("Item " + i, attributes(attributeCount, v));
+				update.setId(ids[i]);
+				store.update(ids[i], update, new Date());
+			}
+		}
+		return ids;
+	}
+}
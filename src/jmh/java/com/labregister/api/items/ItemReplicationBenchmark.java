@@ -0,0 +1,126 @@
+package com.labregister.api.items;
+
+import com.labregister.api.Application;
+import com.labregister.api.items.replication.ReplicationFollower;
+import com.labregister.api.items.service.ItemChangeFeed;
+import com.labregister.api.items.store.ItemStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read throughput of {@code GET /items/{id}} over HTTP from a leader and {@code followers}
+ * replication followers, each an application instance on its own local port
+ * <p>
+ * Every benchmark thread reads from one instance: the leader if there are no followers, otherwise
+ * one of the followers, assigned round-robin. Run with several threads, e.g. {@code -Pjmh.threads=8}.
+ * All instances share the cores of the machine, so throughput only grows with the followers as long
+ * as a single instance leaves cores idle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ItemReplicationBenchmark {
+
+	@Param({"0", "1", "2", "4"})
+	public int followers;
+
+	@Param({"10000"})
+	public int itemCount;
+
+	private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+	private final List<String> readInstances = new ArrayList<>();
+
+	private final AtomicInteger nextReader = new AtomicInteger();
+
+	private String[] ids;
+
+	@Setup
+	public void setUp() throws InterruptedException {
+		ConfigurableApplicationContext leader = start("server.port=0");
+		ids = ItemFixtures.populate(leader.getBean(ItemStore.class), itemCount, 5, 1);
+		long sequence = leader.getBean(ItemChangeFeed.class).getLastSequence();
+
+		for (int i = 0; i < followers; i++) {
+			ConfigurableApplicationContext follower =
+					start("server.port=0", "labregister.replication.leader=" + getUrl(leader));
+			// the items are loaded from a snapshot, there are no further changes
+			while (follower.getBean(ReplicationFollower.class).getStatus().getSequence() != sequence) {
+				Thread.sleep(10);
+			}
+			readInstances.add(getUrl(follower));
+		}
+		if (followers == 0) {
+			readInstances.add(getUrl(leader));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		// followers first, so they do not reconnect to the stopped leader
+		for (int i = contexts.size() - 1; i >= 0; i--) {
+			contexts.get(i).close();
+		}
+	}
+
+	@Benchmark
+	public String getItem(Reader reader) {
+		String id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+		return reader.restTemplate.getForObject(reader.instance + "/items/{id}", String.class, id);
+	}
+
+	@State(Scope.Thread)
+	public static class Reader {
+
+		private final RestTemplate restTemplate = new RestTemplate();
+
+		private String instance;
+
+		@Setup
+		public void setUp(ItemReplicationBenchmark benchmark) {
+			List<String> instances = benchmark.readInstances;
+			instance = instances.get(benchmark.nextReader.getAndIncrement() % instances.size());
+			restTemplate.getInterceptors().add((request, body, execution) -> {
+				request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+				return execution.execute(request, body);
+			});
+		}
+	}
+
+	private ConfigurableApplicationContext start(String... properties) {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+				.properties(properties)
+				.properties("spring.main.banner-mode=off", "logging.level.root=WARN")
+				.run();
+		contexts.add(context);
+		return context;
+	}
+
+	private static String getUrl(ConfigurableApplicationContext context) {
+		return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+	}
+}
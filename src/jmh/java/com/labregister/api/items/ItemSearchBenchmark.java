@@ -0,0 +1,51 @@
+package com.labregister.api.items;
+
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.service.ItemService;
+import com.labregister.api.items.store.ItemStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text search of {@link ItemStore#search(String, int)} over items named {@code Item <n>}, with a
+ * query matching one name, a prefix and a part of all names, and an attribute value of all items
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ItemSearchBenchmark {
+
+	@Param({"100000", "1000000"})
+	public int itemCount;
+
+	@Param({"item 12345", "item", "tem 99", "value-0-0"})
+	public String query;
+
+	private ItemStore store;
+
+	@Setup
+	public void setUp() {
+		store = new ItemStore();
+		ItemFixtures.populate(store, itemCount, 5, 1);
+	}
+
+	@Benchmark
+	public List<Item> search() {
+		return store.search(query, ItemService.DEFAULT_SEARCH_LIMIT);
+	}
+}
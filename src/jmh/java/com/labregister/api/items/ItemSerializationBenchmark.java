@@ -0,0 +1,102 @@
+package com.labregister.api.items;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON, Smile and CBOR serialization of item lists and version histories, with the object
+ * mappers configured the way Spring Boot and StreamingConfig configure them for the controllers
+ * <p>
+ * The payload sizes of each format are printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemSerializationBenchmark {
+
+	@Param({"50", "1000"})
+	public int itemCount;
+
+	@Param({"5", "50"})
+	public int attributeCount;
+
+	@Param({"1", "10"})
+	public int versionsPerItem;
+
+	@Param({"json", "smile", "cbor"})
+	public String format;
+
+	private ObjectMapper objectMapper;
+
+	private List<Item> items;
+
+	private List<ItemVersion> versions;
+
+	private byte[] serializedItems;
+
+	@Setup
+	public void setUp() throws JsonProcessingException {
+		objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory(format)).build();
+
+		ItemStore store = new ItemStore();
+		String[] ids = ItemFixtures.populate(store, itemCount, attributeCount, versionsPerItem);
+		items = new ArrayList<>(store.values());
+		versions = store.get(ids[0]).orElseThrow(IllegalStateException::new).getVersions();
+
+		serializedItems = objectMapper.writeValueAsBytes(items);
+		System.out.printf("%n%s payload: items %d bytes, versions %d bytes%n", format, serializedItems.length,
+		                  objectMapper.writeValueAsBytes(versions).length);
+	}
+
+	@Benchmark
+	public byte[] serializeItems() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(items);
+	}
+
+	@Benchmark
+	public byte[] serializeVersions() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(versions);
+	}
+
+	@Benchmark
+	public Item[] deserializeItems() throws IOException {
+		return objectMapper.readValue(serializedItems, Item[].class);
+	}
+
+	private static JsonFactory factory(String format) {
+		switch (format) {
+			case "smile":
+				return new SmileFactory();
+			case "cbor":
+				return new CBORFactory();
+			default:
+				return new JsonFactory();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.labregister.api.items;
+
+import com.labregister.api.core.operation.OperationRegistry;
+import com.labregister.api.core.pagination.Page;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.service.ItemService;
+import com.labregister.api.items.service.ItemServiceImpl;
+import com.labregister.api.items.service.ItemWritePipeline;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.ItemStoreProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create, update and list operations of {@link ItemServiceImpl}, including validation
+ * <p>
+ * The store is rebuilt before every iteration, so that creates and updates of previous
+ * iterations do not pile up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemServiceBenchmark {
+
+	@Param({"1000", "100000"})
+	public int itemCount;
+
+	@Param({"5", "50"})
+	public int attributeCount;
+
+	@Param({"1", "10"})
+	public int versionsPerItem;
+
+	private ItemService service;
+
+	private String[] ids;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		ItemStore store = new ItemStore();
+		ids = ItemFixtures.populate(store, itemCount, attributeCount, versionsPerItem);
+		// the write pipeline is not started, only synchronous writes are measured
+		service = new ItemServiceImpl(ItemFixtures.entityValidator(), store,
+		                              new ItemWritePipeline(store, new ItemStoreProperties()), new OperationRegistry());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 5, batchSize = 10_000)
+	@Measurement(iterations = 10, batchSize = 10_000)
+	public Item createItem() {
+		// batched single shots keep the number of created items bounded
+		return service.createItem(ItemFixtures.request("New item", attributeCount));
+	}
+
+	@Benchmark
+	public Item updateItem() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String id = ids[random.nextInt(ids.length)];
+		Item request = new Item("Item", ItemFixtures.attributes(attributeCount, random.nextInt()));
+		request.setId(id);
+		return service.updateItem(id, request);
+	}
+
+	@Benchmark
+	public Page<Item> getItemsFirstPage() {
+		return service.getItems(null, ItemService.DEFAULT_PAGE_SIZE);
+	}
+
+	@Benchmark
+	public List<Item> getItemsAll() {
+		return service.getItems();
+	}
+}
@@ -0,0 +1,85 @@
+package com.labregister.api.items;
+
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.persistence.FsyncPolicy;
+import com.labregister.api.items.store.persistence.ItemSnapshot;
+import com.labregister.api.items.store.persistence.ItemWriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup from a snapshot compared to replaying the full write-ahead log, and the time to write
+ * the snapshot, for stores with three versions per item
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ItemSnapshotBenchmark {
+
+	@Param({"10000", "100000", "1000000"})
+	public int itemCount;
+
+	private Path directory;
+
+	private ItemStore store;
+
+	private long segment;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("item-snapshot-benchmark");
+		store = new ItemStore();
+		ItemWriteAheadLog log = ItemWriteAheadLog.open(directory, FsyncPolicy.NEVER, Duration.ofMillis(100), 1024);
+		store.setChangeLog(log);
+		ItemFixtures.populate(store, itemCount, 2, 3);
+		segment = log.rotate().join();
+		log.close();
+		ItemSnapshot.write(directory, store, segment);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		ItemWriteAheadLog.deleteSegmentsBefore(directory, Long.MAX_VALUE);
+		ItemSnapshot.deleteSnapshotsBefore(directory, Long.MAX_VALUE);
+		Files.deleteIfExists(directory);
+	}
+
+	@Benchmark
+	public ItemStore replayLog() throws IOException {
+		ItemStore restored = new ItemStore();
+		ItemWriteAheadLog.replay(directory, 0, restored::apply);
+		return restored;
+	}
+
+	@Benchmark
+	public ItemStore loadSnapshot() throws IOException {
+		ItemStore restored = new ItemStore();
+		ItemWriteAheadLog.replay(directory, ItemSnapshot.loadLatest(directory, restored), restored::apply);
+		return restored;
+	}
+
+	@Benchmark
+	public Path writeSnapshot() throws IOException {
+		// replaces the snapshot written in the setup
+		return ItemSnapshot.write(directory, store, segment);
+	}
+}
@@ -0,0 +1,79 @@
+package com.labregister.api.items;
+
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.persistence.FsyncPolicy;
+import com.labregister.api.items.store.persistence.ItemWriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Item creates with the write-ahead log for each {@link FsyncPolicy}, next to the purely
+ * in-memory store ({@code NONE}) as baseline
+ * <p>
+ * The group commit of {@code ALWAYS} only pays off with several threads, e.g. {@code -Pjmh.threads=1,8}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemWriteAheadLogBenchmark {
+
+	@Param({"NONE", "NEVER", "INTERVAL", "ALWAYS"})
+	public String fsyncPolicy;
+
+	private Path directory;
+
+	private ItemStore store;
+
+	private ItemWriteAheadLog log;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("item-wal-benchmark");
+		store = new ItemStore();
+		if (!fsyncPolicy.equals("NONE")) {
+			log = ItemWriteAheadLog.open(directory, FsyncPolicy.valueOf(fsyncPolicy), Duration.ofMillis(100), 1024);
+			store.setChangeLog(log);
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		if (log != null) {
+			log.close();
+			log = null;
+			ItemWriteAheadLog.deleteSegmentsBefore(directory, Long.MAX_VALUE);
+		}
+		Files.deleteIfExists(directory);
+	}
+
+	@Benchmark
+	public Item createItem() {
+		Item item = ItemFixtures.request("Item", 2);
+		item.setId(UUID.randomUUID().toString());
+		item.setCreationDate(new Date());
+		return store.create(item);
+	}
+}
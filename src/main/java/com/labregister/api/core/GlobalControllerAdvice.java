@@ -2,17 +2,25 @@ package com.labregister.api.core;
 
 import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
 import com.google.common.base.Throwables;
+import com.labregister.api.core.creation.EntityAcceptedResponse;
 import com.labregister.api.core.creation.EntityCreatedResponse;
 import com.labregister.api.core.deletion.NoContentResponse;
 import com.labregister.api.core.domain.ApiMessage;
 import com.labregister.api.core.domain.ValidationErrorMessage;
 import com.labregister.api.core.exception.BadRequestException;
 import com.labregister.api.core.exception.EntityValidationException;
+import com.labregister.api.core.exception.ForbiddenException;
+import com.labregister.api.core.exception.ReadOnlyException;
 import com.labregister.api.core.exception.ResourceNotFoundException;
 import com.labregister.api.core.exception.ServiceUnavailableException;
 import com.labregister.api.core.exception.UnsupportedMediaTypeException;
+import com.labregister.api.core.pagination.Page;
 import com.labregister.api.core.validation.BeanValidationUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
@@ -34,6 +42,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.servlet.http.HttpServletResponse;
 import java.util.List;
@@ -50,11 +59,33 @@ public class GlobalControllerAdvice extends ResponseEntityExceptionHandler imple
 
 	public static final String MESSAGE_UNRECOGNIZED_PROPERTY = "Unrecognized property: ";
 
+	public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+
+	public static final String HEADER_PREFER = "Prefer";
+
+	public static final String PREFERENCE_RESPOND_ASYNC = "respond-async";
+
+	private static final String HEADER_PREFERENCE_APPLIED = "Preference-Applied";
+
+	private static final String PARAM_CURSOR = "cursor";
+
 	private static final String MESSAGE_BAD_REQUEST = "Client error: server will not process request";
 
 	private static final ApiMessage GENERIC_NOT_FOUND_MESSAGE = new ApiMessage("Entity not found.");
 
-	public GlobalControllerAdvice() {
+	private static final String METER_ERRORS = "labregister.errors";
+
+	private final Counter validationErrors;
+
+	private final Counter notFoundErrors;
+
+	/**
+	 * @param meterRegistry registry of the error counters, the global registry if none is configured
+	 */
+	public GlobalControllerAdvice(ObjectProvider<MeterRegistry> meterRegistry) {
+		MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+		validationErrors = errorCounter(registry, EntityValidationException.class);
+		notFoundErrors = errorCounter(registry, ResourceNotFoundException.class);
 	}
 
 	@ResponseStatus(HttpStatus.NOT_ACCEPTABLE)
@@ -70,6 +101,7 @@ public class GlobalControllerAdvice extends ResponseEntityExceptionHandler imple
 	@ExceptionHandler(ResourceNotFoundException.class)
 	@ResponseBody
 	public ApiMessage handleNotFound(ResourceNotFoundException e) {
+		notFoundErrors.increment();
 		return getApiErrorMessage(e);
 	}
 
@@ -90,6 +122,7 @@ public class GlobalControllerAdvice extends ResponseEntityExceptionHandler imple
 	@ResponseBody
 	@ExceptionHandler(EntityValidationException.class)
 	public Object entityValidationException(EntityValidationException ex) {
+		validationErrors.increment();
 
 		List<FieldError> fieldErrors = ex.getBindingResult()
 		                                 .getFieldErrors();
@@ -119,6 +152,20 @@ public class GlobalControllerAdvice extends ResponseEntityExceptionHandler imple
 		return message;
 	}
 
+	@ResponseStatus(HttpStatus.FORBIDDEN)
+	@ResponseBody
+	@ExceptionHandler(ForbiddenException.class)
+	public Object forbiddenException(ForbiddenException ex) {
+		return new ApiMessage(ex.getMessage());
+	}
+
+	@ResponseStatus(HttpStatus.METHOD_NOT_ALLOWED)
+	@ResponseBody
+	@ExceptionHandler(ReadOnlyException.class)
+	public Object readOnlyException(ReadOnlyException ex) {
+		return new ApiMessage(ex.getMessage());
+	}
+
 	@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
 	@ResponseBody
 	@ExceptionHandler(ServiceUnavailableException.class)
@@ -151,10 +198,10 @@ public class GlobalControllerAdvice extends ResponseEntityExceptionHandler imple
 			return o;
 		}
 
-		handleCacheHeaders(serverHttpResponse);
+		handleCacheHeaders((ServletServerHttpResponse) serverHttpResponse);
 		final Object created = handleObjectCreated(o, (ServletServerHttpResponse) serverHttpResponse);
 
-		return created;
+		return handlePage(created, serverHttpRequest, serverHttpResponse);
 	}
 
 	@Override
@@ -232,10 +279,18 @@ public class GlobalControllerAdvice extends ResponseEntityExceptionHandler imple
 		return new ResponseEntity(message, headers, status);
 	}
 
-	private void handleCacheHeaders(ServerHttpResponse serverHttpResponse) {
+	/*
+	 * Responses carrying an ETag may be stored but must be revalidated with 'If-None-Match',
+	 * which is answered with 304 Not Modified while nothing changed. Other responses cannot
+	 * be revalidated and must not be stored.
+	 */
+	private void handleCacheHeaders(ServletServerHttpResponse serverHttpResponse) {
+		CacheControl cacheControl = serverHttpResponse.getServletResponse().containsHeader(HttpHeaders.ETAG)
+				? CacheControl.noCache()
+				: CacheControl.noStore();
+
 		serverHttpResponse.getHeaders()
-		                  .setCacheControl(CacheControl.noCache()
-		                                               .getHeaderValue());
+		                  .setCacheControl(cacheControl.getHeaderValue());
 	}
 
 	/*
@@ -253,10 +308,12 @@ public class GlobalControllerAdvice extends ResponseEntityExceptionHandler imple
 			EntityCreatedResponse creationResponse = (EntityCreatedResponse) o;
 			HttpServletResponse servletResponse = serverHttpResponse.getServletResponse();
 
-			// Add location header for new object
-			serverHttpResponse.getHeaders()
-			                  .set(HttpHeaders.LOCATION, creationResponse.getLocation()
-			                                                             .toString());
+			// Add location header for new object, batch creations have no single location
+			if (creationResponse.getLocation() != null) {
+				serverHttpResponse.getHeaders()
+				                  .set(HttpHeaders.LOCATION, creationResponse.getLocation()
+				                                                             .toString());
+			}
 
 			servletResponse.setStatus(HttpStatus.CREATED.value());
 
@@ -264,10 +321,60 @@ public class GlobalControllerAdvice extends ResponseEntityExceptionHandler imple
 			return creationResponse.getEntity();
 		}
 
+		if (o instanceof EntityAcceptedResponse) {
+			EntityAcceptedResponse<?> acceptedResponse = (EntityAcceptedResponse<?>) o;
+
+			serverHttpResponse.getHeaders()
+			                  .set(HttpHeaders.LOCATION, acceptedResponse.getLocation()
+			                                                             .toString());
+			serverHttpResponse.getHeaders()
+			                  .set(HEADER_PREFERENCE_APPLIED, PREFERENCE_RESPOND_ASYNC);
+			serverHttpResponse.getServletResponse().setStatus(HttpStatus.ACCEPTED.value());
+
+			return acceptedResponse.getEntity();
+		}
+
+		return o;
+	}
+
+	/*
+	 * Global implementation for handling paginated collections
+	 *
+	 * Only the page content is written as body, so paginated and unpaginated responses share
+	 * the same shape. If there is a following page, its cursor is returned in the 'X-Next-Cursor'
+	 * header and as a 'Link' header with rel="next".
+	 */
+	private Object handlePage(Object o, ServerHttpRequest serverHttpRequest, ServerHttpResponse serverHttpResponse) {
+
+		if (o instanceof Page) {
+			Page<?> page = (Page<?>) o;
+
+			if (page.hasNext()) {
+				String next = UriComponentsBuilder.fromHttpRequest(serverHttpRequest)
+				                                  .replaceQueryParam(PARAM_CURSOR, page.getNextCursor())
+				                                  .build()
+				                                  .toUriString();
+
+				serverHttpResponse.getHeaders()
+				                  .set(HEADER_NEXT_CURSOR, page.getNextCursor());
+				serverHttpResponse.getHeaders()
+				                  .add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+			}
+
+			return page.getContent();
+		}
+
 		return o;
 	}
 
 	private ApiMessage getApiErrorMessage(Exception ex) {
 		return new ApiMessage(ex.getMessage());
 	}
+
+	private static Counter errorCounter(MeterRegistry registry, Class<? extends Exception> exception) {
+		return Counter.builder(METER_ERRORS)
+		              .description("Requests failed with an exception handled by the controller advice")
+		              .tag("exception", exception.getSimpleName())
+		              .register(registry);
+	}
 }
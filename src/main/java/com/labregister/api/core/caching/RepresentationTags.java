@@ -0,0 +1,130 @@
+package com.labregister.api.core.caching;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.labregister.api.core.exception.UnsupportedMediaTypeException;
+import com.labregister.api.core.streaming.JsonStreamHttpMessageConverter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conditional GET with strong ETags per representation
+ * <p>
+ * One state of a resource is served in several representations: JSON, NDJSON, Smile or CBOR as
+ * negotiated through {@code Accept}, and JSON possibly gzip-encoded. A strong ETag must tell them
+ * apart, so the tag of the state gets the suffix of the representation the response is written in,
+ * e.g. {@code "3-smile"} or {@code "3-gzip"}; JSON without content coding keeps the plain tag.
+ * Tagged responses, including 304 Not Modified, vary by {@code Accept, Accept-Encoding}.
+ */
+public final class RepresentationTags {
+
+	/**
+	 * Representations of single entities and pages, in the order of the message converters
+	 */
+	public static final List<MediaType> ENTITY_TYPES = ImmutableList.of(
+			MediaType.APPLICATION_JSON, JsonStreamHttpMessageConverter.APPLICATION_SMILE, MediaType.APPLICATION_CBOR);
+
+	/**
+	 * Representations of a {@link com.labregister.api.core.streaming.JsonStream}
+	 */
+	public static final List<MediaType> STREAM_TYPES = ImmutableList.of(
+			MediaType.APPLICATION_JSON, JsonStreamHttpMessageConverter.APPLICATION_NDJSON,
+			JsonStreamHttpMessageConverter.APPLICATION_SMILE, MediaType.APPLICATION_CBOR);
+
+	private static final Map<MediaType, String> SUFFIXES = ImmutableMap.of(
+			MediaType.APPLICATION_JSON, "",
+			JsonStreamHttpMessageConverter.APPLICATION_NDJSON, "-ndjson",
+			JsonStreamHttpMessageConverter.APPLICATION_SMILE, "-smile",
+			MediaType.APPLICATION_CBOR, "-cbor");
+
+	private static final String SUFFIX_GZIP = "-gzip";
+
+	private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
+	private RepresentationTags() {
+	}
+
+	/**
+	 * Like {@link #checkNotModified(WebRequest, String, List, boolean)} for responses without content coding
+	 */
+	public static boolean checkNotModified(WebRequest request, String tag, List<MediaType> producibleTypes) {
+		return checkNotModified(request, tag, producibleTypes, false);
+	}
+
+	/**
+	 * Sets the ETag of the representation negotiated for the request, see {@link WebRequest#checkNotModified(String)}
+	 *
+	 * @param tag             tag of the resource state, none if null
+	 * @param producibleTypes media types the handler writes, the default first
+	 * @param gzip            whether the response is gzip-encoded
+	 * @return whether the request's {@code If-None-Match} matches and the response is 304 Not Modified
+	 */
+	public static boolean checkNotModified(WebRequest request, String tag, List<MediaType> producibleTypes,
+	                                       boolean gzip) {
+		HttpServletResponse response = ((NativeWebRequest) request).getNativeResponse(HttpServletResponse.class);
+		if (response != null) {
+			response.setHeader(HttpHeaders.VARY, VARY);
+		}
+		MediaType representation = negotiate(request.getHeaderValues(HttpHeaders.ACCEPT), producibleTypes);
+		if (tag == null || representation == null) {
+			// not acceptable, answered by the message converters
+			return false;
+		}
+		return request.checkNotModified(tag + SUFFIXES.getOrDefault(representation, "") + (gzip ? SUFFIX_GZIP : ""));
+	}
+
+	/**
+	 * Selects the producible type the message converters will write, like Spring MVC does: the most
+	 * specific and highest-quality combination of an accepted and a producible type
+	 *
+	 * @return one of the producible types, null if none is acceptable
+	 */
+	static MediaType negotiate(String[] acceptHeaders, List<MediaType> producibleTypes) {
+		List<MediaType> acceptedTypes;
+		try {
+			acceptedTypes = acceptHeaders != null
+					? MediaType.parseMediaTypes(Arrays.asList(acceptHeaders))
+					: Collections.singletonList(MediaType.ALL);
+		} catch (InvalidMediaTypeException e) {
+			throw new UnsupportedMediaTypeException();
+		}
+		if (acceptedTypes.isEmpty()) {
+			acceptedTypes = Collections.singletonList(MediaType.ALL);
+		}
+
+		List<MediaType> candidates = new ArrayList<>();
+		for (MediaType accepted : acceptedTypes) {
+			for (MediaType producible : producibleTypes) {
+				if (accepted.isCompatibleWith(producible)) {
+					candidates.add(getMostSpecific(accepted, producible));
+				}
+			}
+		}
+		MediaType.sortBySpecificityAndQuality(candidates);
+		for (MediaType candidate : candidates) {
+			if (candidate.isConcrete()) {
+				for (MediaType producible : producibleTypes) {
+					if (producible.isCompatibleWith(candidate)) {
+						return producible;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	private static MediaType getMostSpecific(MediaType accepted, MediaType producible) {
+		MediaType weighted = producible.copyQualityValue(accepted);
+		return MediaType.SPECIFICITY_COMPARATOR.compare(accepted, weighted) <= 0 ? accepted : weighted;
+	}
+}
@@ -0,0 +1,462 @@
+package com.labregister.api.core.collection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable hash map with structural sharing (hash array mapped trie)
+ * <p>
+ * {@link #plus(Object, Object)} and {@link #minus(Object)} return a new map and leave this one untouched.
+ * The new map shares every trie node that was not on the path to the changed key, so deriving a map
+ * that differs in one entry costs O(log32 n) memory instead of a full copy. All mutating
+ * {@link Map} operations throw {@link UnsupportedOperationException}, which makes instances safe
+ * to hand out to readers and to share between threads without copying.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+	private static final int BITS = 5;
+
+	private static final int MASK = (1 << BITS) - 1;
+
+	// seven 5-bit levels cover a 32-bit hash, plus one level of collision nodes
+	private static final int MAX_DEPTH = 8;
+
+	private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+	private final Node root;
+
+	private final int size;
+
+	private transient Set<Map.Entry<K, V>> entrySet;
+
+	private PersistentHashMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentHashMap<K, V> empty() {
+		return (PersistentHashMap<K, V>) EMPTY;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+		if (map instanceof PersistentHashMap) {
+			return (PersistentHashMap<K, V>) map;
+		}
+		return PersistentHashMap.<K, V>empty().withContentOf(map);
+	}
+
+	/**
+	 * @return a map with the given mapping added or replaced, or this map if it already holds it
+	 */
+	public PersistentHashMap<K, V> plus(K key, V value) {
+		int hash = hash(key);
+		boolean[] added = new boolean[1];
+		Node newRoot = root == null
+				? new BitmapNode(0, new Object[0]).put(new Entry<>(key, value, hash), 0, added)
+				: root.put(new Entry<>(key, value, hash), 0, added);
+
+		if (newRoot == root) {
+			return this;
+		}
+		return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+	}
+
+	/**
+	 * @return a map without the given key, or this map if the key is not present
+	 */
+	public PersistentHashMap<K, V> minus(Object key) {
+		if (root == null) {
+			return this;
+		}
+		Node newRoot = root.remove(key, hash(key), 0);
+		if (newRoot == root) {
+			return this;
+		}
+		return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+	}
+
+	/**
+	 * Derives a map equal to {@code target} from this one
+	 * <p>
+	 * Only entries that differ between both maps are rewritten, everything else stays shared
+	 * with this map. Takes O(size of both maps) time, but only allocates for the changes.
+	 */
+	@SuppressWarnings("unchecked")
+	public PersistentHashMap<K, V> withContentOf(Map<? extends K, ? extends V> target) {
+		if (target instanceof PersistentHashMap) {
+			return (PersistentHashMap<K, V>) target;
+		}
+		return withContentOf(target, UnaryOperator.identity(), UnaryOperator.identity());
+	}
+
+	/**
+	 * Like {@link #withContentOf(Map)}, but passes the keys and values of the added or replaced
+	 * entries through the given functions first, e.g. to share equal instances
+	 */
+	public PersistentHashMap<K, V> withContentOf(Map<? extends K, ? extends V> target, UnaryOperator<K> keys,
+	                                             UnaryOperator<V> values) {
+		if (target == this) {
+			return this;
+		}
+
+		PersistentHashMap<K, V> result = this;
+		for (Map.Entry<? extends K, ? extends V> entry : target.entrySet()) {
+			V current = result.get(entry.getKey());
+			if (current == null || !current.equals(entry.getValue())) {
+				result = result.plus(keys.apply(entry.getKey()), values.apply(entry.getValue()));
+			}
+		}
+		if (result.size != target.size()) {
+			for (K key : keySet()) {
+				if (!target.containsKey(key)) {
+					result = result.minus(key);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public V get(Object key) {
+		Entry<K, V> entry = find(key);
+		return entry == null ? null : entry.getValue();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return find(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Map.Entry<K, V>>() {
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return new EntryIterator<>(root);
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Entry<K, V> find(Object key) {
+		return root == null ? null : (Entry<K, V>) root.find(key, hash(key), 0);
+	}
+
+	private static int hash(Object key) {
+		int h = Objects.hashCode(key);
+		return h ^ (h >>> 16);
+	}
+
+	private static final class Entry<K, V> extends AbstractMap.SimpleImmutableEntry<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int hash;
+
+		Entry(K key, V value, int hash) {
+			super(key, value);
+			this.hash = hash;
+		}
+
+		boolean hasKey(Object key, int hash) {
+			return this.hash == hash && Objects.equals(getKey(), key);
+		}
+	}
+
+	private abstract static class Node {
+
+		abstract Entry<?, ?> find(Object key, int hash, int shift);
+
+		/**
+		 * @return the updated node, or this node if the entry is already present
+		 */
+		abstract Node put(Entry<?, ?> entry, int shift, boolean[] added);
+
+		/**
+		 * @return the updated node, this node if the key is not present, or {@code null} if the node became empty
+		 */
+		abstract Node remove(Object key, int hash, int shift);
+
+		/**
+		 * @return the entries and child nodes held by this node
+		 */
+		abstract Object[] slots();
+	}
+
+	/*
+	 * Trie node holding up to 32 slots, one per 5-bit hash chunk. The bitmap marks which chunks
+	 * are present, slots are stored compactly in chunk order and are either entries or child nodes.
+	 */
+	private static final class BitmapNode extends Node {
+
+		private final int bitmap;
+
+		private final Object[] slots;
+
+		BitmapNode(int bitmap, Object[] slots) {
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		@Override
+		Entry<?, ?> find(Object key, int hash, int shift) {
+			int bit = bit(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return null;
+			}
+			Object slot = slots[index(bit)];
+			if (slot instanceof Node) {
+				return ((Node) slot).find(key, hash, shift + BITS);
+			}
+			Entry<?, ?> entry = (Entry<?, ?>) slot;
+			return entry.hasKey(key, hash) ? entry : null;
+		}
+
+		@Override
+		Node put(Entry<?, ?> entry, int shift, boolean[] added) {
+			int bit = bit(entry.hash, shift);
+			int index = index(bit);
+
+			if ((bitmap & bit) == 0) {
+				Object[] newSlots = new Object[slots.length + 1];
+				System.arraycopy(slots, 0, newSlots, 0, index);
+				newSlots[index] = entry;
+				System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+				added[0] = true;
+				return new BitmapNode(bitmap | bit, newSlots);
+			}
+
+			Object slot = slots[index];
+			Object newSlot;
+			if (slot instanceof Node) {
+				newSlot = ((Node) slot).put(entry, shift + BITS, added);
+			} else {
+				Entry<?, ?> existing = (Entry<?, ?>) slot;
+				if (existing.hasKey(entry.getKey(), entry.hash)) {
+					newSlot = Objects.equals(existing.getValue(), entry.getValue()) ? existing : entry;
+				} else {
+					newSlot = merge(existing, entry, shift + BITS);
+					added[0] = true;
+				}
+			}
+
+			return newSlot == slot ? this : withSlot(index, newSlot);
+		}
+
+		@Override
+		Node remove(Object key, int hash, int shift) {
+			int bit = bit(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+
+			int index = index(bit);
+			Object slot = slots[index];
+			Object newSlot;
+			if (slot instanceof Node) {
+				newSlot = ((Node) slot).remove(key, hash, shift + BITS);
+				if (newSlot == slot) {
+					return this;
+				}
+			} else {
+				if (!((Entry<?, ?>) slot).hasKey(key, hash)) {
+					return this;
+				}
+				newSlot = null;
+			}
+
+			if (newSlot != null) {
+				return withSlot(index, newSlot);
+			}
+			if (slots.length == 1) {
+				return null;
+			}
+			Object[] newSlots = new Object[slots.length - 1];
+			System.arraycopy(slots, 0, newSlots, 0, index);
+			System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+			return new BitmapNode(bitmap & ~bit, newSlots);
+		}
+
+		@Override
+		Object[] slots() {
+			return slots;
+		}
+
+		private BitmapNode withSlot(int index, Object slot) {
+			Object[] newSlots = slots.clone();
+			newSlots[index] = slot;
+			return new BitmapNode(bitmap, newSlots);
+		}
+
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		private static int bit(int hash, int shift) {
+			return 1 << ((hash >>> shift) & MASK);
+		}
+
+		private static Node merge(Entry<?, ?> first, Entry<?, ?> second, int shift) {
+			if (first.hash == second.hash) {
+				return new CollisionNode(first.hash, new Entry<?, ?>[]{first, second});
+			}
+			int firstChunk = (first.hash >>> shift) & MASK;
+			int secondChunk = (second.hash >>> shift) & MASK;
+			if (firstChunk == secondChunk) {
+				return new BitmapNode(1 << firstChunk, new Object[]{merge(first, second, shift + BITS)});
+			}
+			Object[] slots = firstChunk < secondChunk ? new Object[]{first, second} : new Object[]{second, first};
+			return new BitmapNode((1 << firstChunk) | (1 << secondChunk), slots);
+		}
+	}
+
+	/*
+	 * Leaf node for keys whose hashes are fully identical
+	 */
+	private static final class CollisionNode extends Node {
+
+		private final int hash;
+
+		private final Entry<?, ?>[] entries;
+
+		CollisionNode(int hash, Entry<?, ?>[] entries) {
+			this.hash = hash;
+			this.entries = entries;
+		}
+
+		@Override
+		Entry<?, ?> find(Object key, int hash, int shift) {
+			for (Entry<?, ?> entry : entries) {
+				if (entry.hasKey(key, hash)) {
+					return entry;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		Node put(Entry<?, ?> entry, int shift, boolean[] added) {
+			if (entry.hash != hash) {
+				return new BitmapNode(BitmapNode.bit(hash, shift), new Object[]{this}).put(entry, shift, added);
+			}
+			for (int i = 0; i < entries.length; i++) {
+				if (entries[i].hasKey(entry.getKey(), entry.hash)) {
+					if (Objects.equals(entries[i].getValue(), entry.getValue())) {
+						return this;
+					}
+					Entry<?, ?>[] newEntries = entries.clone();
+					newEntries[i] = entry;
+					return new CollisionNode(hash, newEntries);
+				}
+			}
+			Entry<?, ?>[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+			newEntries[entries.length] = entry;
+			added[0] = true;
+			return new CollisionNode(hash, newEntries);
+		}
+
+		@Override
+		Node remove(Object key, int hash, int shift) {
+			for (int i = 0; i < entries.length; i++) {
+				if (entries[i].hasKey(key, hash)) {
+					if (entries.length == 1) {
+						return null;
+					}
+					Entry<?, ?>[] newEntries = new Entry<?, ?>[entries.length - 1];
+					System.arraycopy(entries, 0, newEntries, 0, i);
+					System.arraycopy(entries, i + 1, newEntries, i, entries.length - i - 1);
+					return new CollisionNode(hash, newEntries);
+				}
+			}
+			return this;
+		}
+
+		@Override
+		Object[] slots() {
+			return entries;
+		}
+	}
+
+	/*
+	 * Depth-first iterator over the trie, using fixed-size stacks (the trie is at most MAX_DEPTH levels deep)
+	 */
+	private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+		private final Object[][] slotStack = new Object[MAX_DEPTH][];
+
+		private final int[] indexStack = new int[MAX_DEPTH];
+
+		private int depth = -1;
+
+		private Entry<K, V> next;
+
+		EntryIterator(Node root) {
+			if (root != null) {
+				push(root);
+				advance();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			Entry<K, V> current = next;
+			advance();
+			return current;
+		}
+
+		private void push(Node node) {
+			depth++;
+			slotStack[depth] = node.slots();
+			indexStack[depth] = 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void advance() {
+			next = null;
+			while (depth >= 0) {
+				Object[] slots = slotStack[depth];
+				if (indexStack[depth] >= slots.length) {
+					slotStack[depth--] = null;
+					continue;
+				}
+				Object slot = slots[indexStack[depth]++];
+				if (slot instanceof Node) {
+					push((Node) slot);
+				} else {
+					next = (Entry<K, V>) slot;
+					return;
+				}
+			}
+		}
+	}
+}
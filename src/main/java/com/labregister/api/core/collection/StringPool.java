@@ -0,0 +1,94 @@
+package com.labregister.api.core.collection;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lossy pool of canonical {@link String} instances, to share equal strings held by many objects
+ * <p>
+ * The pool is a table of two-slot buckets selected by the string's hash. A string equal to one in its
+ * bucket is replaced by the pooled instance; a string found in the second slot is moved to the first,
+ * and a new string takes the second slot. Frequently repeated strings therefore settle in the first
+ * slots, while strings seen once only evict each other.
+ * <p>
+ * Slots are read and written without locking: strings are immutable and safely published, so a
+ * racing lookup at worst misses the pooled instance and keeps its own, which is still correct. Unlike
+ * {@link String#intern()} the pool never grows and never contends.
+ */
+public final class StringPool {
+
+	// String and the header of its char array, like ItemStoreStatistics
+	private static final long STRING_BYTES = 40;
+
+	private final String[] slots;
+
+	private final int bucketMask;
+
+	private final LongAdder deduplicated = new LongAdder();
+
+	private final LongAdder savedBytes = new LongAdder();
+
+	/**
+	 * @param capacity maximum number of pooled strings, rounded up to a power of two
+	 */
+	public StringPool(int capacity) {
+		if (capacity < 2) {
+			throw new IllegalArgumentException("Capacity must be at least 2: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity - 1) << 1;
+		this.slots = new String[size];
+		this.bucketMask = size / 2 - 1;
+	}
+
+	/**
+	 * @return the pooled instance equal to {@code value}, or {@code value} itself which may be pooled from now on
+	 */
+	public String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		int hash = value.hashCode();
+		int first = ((hash ^ (hash >>> 16)) & bucketMask) << 1;
+
+		String pooled = slots[first];
+		if (pooled == value) {
+			return value;
+		}
+		if (pooled != null && pooled.equals(value)) {
+			recordDeduplicated(value);
+			return pooled;
+		}
+
+		pooled = slots[first + 1];
+		if (pooled == value || pooled != null && pooled.equals(value)) {
+			// seen at least twice, promote it over the first slot
+			slots[first + 1] = slots[first];
+			slots[first] = pooled;
+			if (pooled != value) {
+				recordDeduplicated(value);
+			}
+			return pooled;
+		}
+		slots[first + 1] = value;
+		return value;
+	}
+
+	/**
+	 * @return number of strings replaced by an equal pooled instance
+	 */
+	public long getDeduplicatedCount() {
+		return deduplicated.sum();
+	}
+
+	/**
+	 * @return estimated heap of the strings replaced by an equal pooled instance, i.e. not retained
+	 * by the objects holding the pooled instance instead
+	 */
+	public long getSavedBytes() {
+		return savedBytes.sum();
+	}
+
+	private void recordDeduplicated(String value) {
+		deduplicated.increment();
+		savedBytes.add(STRING_BYTES + 2L * value.length());
+	}
+}
@@ -0,0 +1,27 @@
+package com.labregister.api.core.creation;
+
+import java.net.URI;
+
+/**
+ * Response to a request accepted for asynchronous processing, the entity describes the
+ * operation found at the location
+ */
+public class EntityAcceptedResponse<T> {
+
+	private final T entity;
+
+	private final URI location;
+
+	public EntityAcceptedResponse(T entity, URI location) {
+		this.entity = entity;
+		this.location = location;
+	}
+
+	public T getEntity() {
+		return entity;
+	}
+
+	public URI getLocation() {
+		return location;
+	}
+}
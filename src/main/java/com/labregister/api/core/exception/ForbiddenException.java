@@ -0,0 +1,13 @@
+package com.labregister.api.core.exception;
+
+/**
+ * Thrown for requests lacking the credentials an endpoint requires, e.g. of the internal API
+ */
+public class ForbiddenException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ForbiddenException(String msg) {
+		super(msg);
+	}
+}
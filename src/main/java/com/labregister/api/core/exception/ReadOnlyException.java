@@ -0,0 +1,13 @@
+package com.labregister.api.core.exception;
+
+/**
+ * Thrown for writes to an instance which only serves reads, e.g. a replication follower
+ */
+public class ReadOnlyException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ReadOnlyException(String msg) {
+		super(msg);
+	}
+}
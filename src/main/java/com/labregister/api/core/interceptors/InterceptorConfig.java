@@ -0,0 +1,36 @@
+package com.labregister.api.core.interceptors;
+
+import com.labregister.api.core.internal.InternalApiInterceptor;
+import com.labregister.api.core.internal.InternalApiProperties;
+import com.labregister.api.core.streaming.JsonStreamHttpMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/*
+ * Applies the Accept header check to the API, the frontend resources are served to any client, and
+ * the token check to the internal API
+ */
+@Configuration
+public class InterceptorConfig implements WebMvcConfigurer {
+
+	private final InternalApiProperties internalApiProperties;
+
+	public InterceptorConfig(InternalApiProperties internalApiProperties) {
+		this.internalApiProperties = internalApiProperties;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new RequestAcceptContentTypeInterceptor(
+				MediaType.APPLICATION_JSON_VALUE,
+				JsonStreamHttpMessageConverter.APPLICATION_NDJSON.toString(),
+				JsonStreamHttpMessageConverter.APPLICATION_SMILE.toString(),
+				MediaType.APPLICATION_CBOR_VALUE,
+				MediaType.TEXT_EVENT_STREAM_VALUE))
+		        .addPathPatterns("/items*", "/items/**", "/operations/**", "/shards");
+		registry.addInterceptor(new InternalApiInterceptor(internalApiProperties))
+		        .addPathPatterns("/internal/**");
+	}
+}
@@ -1,18 +1,23 @@
 package com.labregister.api.core.interceptors;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.labregister.api.core.exception.UnsupportedMediaTypeException;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Arrays;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Interceptor to validate that client's incoming requests meet guidelines for
  * acceptable MIME Types
+ * <p>
+ * A request is accepted if its Accept header is missing or empty, or if it contains a media range
+ * with a quality above zero that matches one of the supported media types, i.e. the type itself,
+ * {@code <type>/*} or {@code *}{@code /*}. The header is scanned in place without allocating, and the
+ * verdicts for the {@value #MAX_CACHED_HEADERS} most recently used headers are kept, as clients keep
+ * sending the same few headers.
  */
 public class RequestAcceptContentTypeInterceptor extends HandlerInterceptorAdapter {
 
@@ -22,19 +27,148 @@ public class RequestAcceptContentTypeInterceptor extends HandlerInterceptorAdapt
 
 	private final static String CONTENT_TYPE_JSON = "application/json";
 
-	private static boolean isValidAcceptHeaderProvided(String headerValue) {
+	static final int MAX_CACHED_HEADERS = 64;
+
+	private final String[] supportedTypes;
+
+	private final Cache<String, Boolean> verdicts = CacheBuilder.newBuilder()
+	                                                            .maximumSize(MAX_CACHED_HEADERS)
+	                                                            .build();
+
+	public RequestAcceptContentTypeInterceptor() {
+		this(CONTENT_TYPE_JSON);
+	}
+
+	/**
+	 * @param supportedTypes media types without parameters, e.g. {@code application/json}
+	 */
+	public RequestAcceptContentTypeInterceptor(String... supportedTypes) {
+		this.supportedTypes = supportedTypes.clone();
+	}
+
+	boolean isValidAcceptHeaderProvided(String headerValue) {
 		if (StringUtils.isEmpty(headerValue)) {
 			return true;
 		}
 
-		// extract single content type values,
-		// since header values can come chained up with additional requirement defined after colon, i.e.:
-		// text/html,application/xml;q=0.9,image/webp,image/png,*/*;q=0.8,application/signed-exchange;v=b3
-		Set<String> headerValues = Arrays.stream(headerValue.split(","))
-		                                 .map(val -> val.split(";")[0])
-		                                 .collect(Collectors.toSet());
+		Boolean verdict = verdicts.getIfPresent(headerValue);
+		if (verdict == null) {
+			verdict = isAcceptable(headerValue, supportedTypes);
+			verdicts.put(headerValue, verdict);
+		}
+		return verdict;
+	}
+
+	boolean isVerdictCached(String headerValue) {
+		return verdicts.getIfPresent(headerValue) != null;
+	}
+
+	/**
+	 * Scans the media ranges of the header, e.g.
+	 * {@code text/html,application/xml;q=0.9,image/webp,*}{@code /*;q=0.8,application/signed-exchange;v=b3}
+	 */
+	static boolean isAcceptable(String header, String[] supportedTypes) {
+		int length = header.length();
+		int position = 0;
+		while (position < length) {
+			int rangeStart = skipWhitespace(header, position, length);
+			int rangeEnd = rangeStart;
+			while (rangeEnd < length && header.charAt(rangeEnd) != ',' && header.charAt(rangeEnd) != ';') {
+				rangeEnd++;
+			}
+			boolean matches = matchesSupportedType(header, rangeStart, trimEnd(header, rangeStart, rangeEnd),
+			                                       supportedTypes);
 
-		return (headerValues.contains(WILDCARD_ACCEPT_HEADER) || headerValues.contains(CONTENT_TYPE_JSON));
+			// parameters, a quality of zero marks the range as not acceptable
+			boolean acceptable = true;
+			position = rangeEnd;
+			while (position < length && header.charAt(position) == ';') {
+				int parameterStart = skipWhitespace(header, position + 1, length);
+				int parameterEnd = endOfParameter(header, parameterStart, length);
+				if (isZeroQuality(header, parameterStart, trimEnd(header, parameterStart, parameterEnd))) {
+					acceptable = false;
+				}
+				position = parameterEnd;
+			}
+
+			if (matches && acceptable) {
+				return true;
+			}
+			// skip the comma
+			position++;
+		}
+		return false;
+	}
+
+	private static boolean matchesSupportedType(String header, int start, int end, String[] supportedTypes) {
+		int length = end - start;
+		if (length == WILDCARD_ACCEPT_HEADER.length() && header.startsWith(WILDCARD_ACCEPT_HEADER, start)) {
+			return true;
+		}
+		for (String type : supportedTypes) {
+			if (length == type.length() && header.regionMatches(true, start, type, 0, length)) {
+				return true;
+			}
+			// <type>/*
+			int slash = type.indexOf('/');
+			if (length == slash + 2 && header.charAt(end - 1) == '*'
+					&& header.regionMatches(true, start, type, 0, slash + 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isZeroQuality(String header, int start, int end) {
+		if (end - start < 3 || Character.toLowerCase(header.charAt(start)) != 'q') {
+			return false;
+		}
+		int position = skipWhitespace(header, start + 1, end);
+		if (position == end || header.charAt(position) != '=') {
+			return false;
+		}
+		position = skipWhitespace(header, position + 1, end);
+		if (position == end) {
+			return false;
+		}
+		// qvalue = ( "0" [ "." 0*3DIGIT ] ) / ( "1" [ "." 0*3("0") ] )
+		for (; position < end; position++) {
+			char c = header.charAt(position);
+			if (c != '0' && c != '.') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// the end of the parameter value, which may be a quoted string containing commas and semicolons
+	private static int endOfParameter(String header, int position, int length) {
+		boolean quoted = false;
+		for (; position < length; position++) {
+			char c = header.charAt(position);
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == '\\' && quoted) {
+				position++;
+			} else if (!quoted && (c == ',' || c == ';')) {
+				break;
+			}
+		}
+		return Math.min(position, length);
+	}
+
+	private static int skipWhitespace(String header, int position, int end) {
+		while (position < end && (header.charAt(position) == ' ' || header.charAt(position) == '\t')) {
+			position++;
+		}
+		return position;
+	}
+
+	private static int trimEnd(String header, int start, int end) {
+		while (end > start && (header.charAt(end - 1) == ' ' || header.charAt(end - 1) == '\t')) {
+			end--;
+		}
+		return end;
 	}
 
 	@Override
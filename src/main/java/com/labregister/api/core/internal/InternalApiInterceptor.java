@@ -0,0 +1,42 @@
+package com.labregister.api.core.internal;
+
+import com.labregister.api.core.exception.ForbiddenException;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Admits requests to the internal API only with the configured {@link InternalApiProperties#getToken() token}
+ * <p>
+ * Without a configured token every request is refused. Tokens are compared in constant time.
+ */
+public class InternalApiInterceptor extends HandlerInterceptorAdapter {
+
+	public static final String HEADER_INTERNAL_TOKEN = "X-Internal-Token";
+
+	private static final String MESSAGE_FORBIDDEN = "Internal API requires a valid " + HEADER_INTERNAL_TOKEN;
+
+	private final InternalApiProperties properties;
+
+	public InternalApiInterceptor(InternalApiProperties properties) {
+		this.properties = properties;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (!isValidToken(properties.getToken(), request.getHeader(HEADER_INTERNAL_TOKEN))) {
+			throw new ForbiddenException(MESSAGE_FORBIDDEN);
+		}
+		return true;
+	}
+
+	static boolean isValidToken(String expected, String actual) {
+		if (expected == null || expected.isEmpty() || actual == null) {
+			return false;
+		}
+		return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,26 @@
+package com.labregister.api.core.internal;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of the internal API between instances, bound from the {@code labregister.internal.*} properties
+ */
+@Component
+@ConfigurationProperties(prefix = "labregister.internal")
+public class InternalApiProperties {
+
+	/**
+	 * Shared secret of all instances, sent in {@value InternalApiInterceptor#HEADER_INTERNAL_TOKEN}; the
+	 * endpoints under {@code /internal} are only served if it is set, e.g. to a router and its shards
+	 */
+	private String token;
+
+	public String getToken() {
+		return token;
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+	}
+}
@@ -0,0 +1,80 @@
+package com.labregister.api.core.operation;
+
+import java.net.URI;
+import java.util.Date;
+
+/**
+ * Status of a write accepted for asynchronous processing
+ * <p>
+ * An operation is {@link Status#PENDING} until it is either applied ({@link Status#SUCCEEDED}) or
+ * rejected ({@link Status#FAILED}, with a message); it never changes afterwards.
+ */
+public class Operation {
+
+	public enum Status {
+		PENDING, SUCCEEDED, FAILED
+	}
+
+	private final String id;
+
+	private final URI resourceLocation;
+
+	private final Date submissionDate;
+
+	private volatile Status status = Status.PENDING;
+
+	private volatile String message;
+
+	private volatile Date completionDate;
+
+	public Operation(String id, URI resourceLocation) {
+		this.id = id;
+		this.resourceLocation = resourceLocation;
+		this.submissionDate = new Date();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return location of the resource created or updated by the operation
+	 */
+	public URI getResourceLocation() {
+		return resourceLocation;
+	}
+
+	public Date getSubmissionDate() {
+		return submissionDate;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public Date getCompletionDate() {
+		return completionDate;
+	}
+
+	public void succeed() {
+		complete(Status.SUCCEEDED, null);
+	}
+
+	public void fail(String message) {
+		complete(Status.FAILED, message);
+	}
+
+	private synchronized void complete(Status status, String message) {
+		if (this.status != Status.PENDING) {
+			return;
+		}
+		// the status is written last, readers seeing it completed also see the message and date
+		this.message = message;
+		this.completionDate = new Date();
+		this.status = status;
+	}
+}
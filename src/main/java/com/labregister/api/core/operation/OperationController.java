@@ -0,0 +1,40 @@
+package com.labregister.api.core.operation;
+
+import com.google.common.base.Preconditions;
+import com.labregister.api.core.exception.ResourceNotFoundException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriTemplate;
+
+import java.net.URI;
+
+@RestController
+public class OperationController {
+
+	public static final String RESOURCE_OPERATION = "/operations/{id}";
+
+	private static final String MESSAGE_OPERATION_NOT_FOUND = "OPERATION NOT FOUND";
+
+	private final OperationRegistry operationRegistry;
+
+	public OperationController(OperationRegistry operationRegistry) {
+		Preconditions.checkArgument(operationRegistry != null);
+		this.operationRegistry = operationRegistry;
+	}
+
+	/**
+	 * Returns the status of an asynchronous write, see {@link Operation}
+	 */
+	@GetMapping(value = "/operations/{operationId}")
+	@ResponseBody
+	public Operation getOperation(@PathVariable String operationId) {
+		return operationRegistry.get(operationId)
+		                        .orElseThrow(() -> new ResourceNotFoundException(MESSAGE_OPERATION_NOT_FOUND));
+	}
+
+	public static URI getOperationLocation(Operation operation) {
+		return new UriTemplate(RESOURCE_OPERATION).expand(operation.getId());
+	}
+}
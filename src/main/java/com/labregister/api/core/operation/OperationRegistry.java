@@ -0,0 +1,58 @@
+package com.labregister.api.core.operation;
+
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the {@link Operation}s of asynchronous writes to be polled by clients
+ * <p>
+ * Only the latest {@value #MAX_OPERATIONS} operations are kept, older ones are forgotten in
+ * submission order whether or not they completed.
+ */
+@Component
+public class OperationRegistry {
+
+	static final int MAX_OPERATIONS = 100_000;
+
+	private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+	private final Queue<String> submissionOrder = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Creates a new pending operation, which clients can poll once it is {@link #register registered}
+	 *
+	 * @param resourceLocation location of the resource the operation creates or updates
+	 */
+	public Operation create(URI resourceLocation) {
+		return new Operation(UUID.randomUUID().toString(), resourceLocation);
+	}
+
+	/**
+	 * Makes the operation available to clients, once its write is accepted; a rejected write never
+	 * leaves a pending operation behind
+	 */
+	public Operation register(Operation operation) {
+		operations.put(operation.getId(), operation);
+		submissionOrder.add(operation.getId());
+
+		while (operations.size() > MAX_OPERATIONS) {
+			String oldest = submissionOrder.poll();
+			if (oldest == null) {
+				break;
+			}
+			operations.remove(oldest);
+		}
+		return operation;
+	}
+
+	public Optional<Operation> get(String id) {
+		return Optional.ofNullable(operations.get(id));
+	}
+}
@@ -0,0 +1,45 @@
+package com.labregister.api.core.pagination;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated collection
+ * <p>
+ * Returned from controllers, the page content is written as the response body and the
+ * cursor of the following page (if any) is exposed through response headers,
+ * see {@link com.labregister.api.core.GlobalControllerAdvice}
+ */
+public class Page<T> {
+
+	private final List<T> content;
+
+	private final String nextCursor;
+
+	public Page(List<T> content, String nextCursor) {
+		this.content = content;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * Single page holding a complete, unpaginated collection
+	 */
+	public static <T> Page<T> of(List<T> content) {
+		return new Page<>(content, null);
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	/**
+	 * @return opaque cursor pointing behind the last element of this page,
+	 * or {@code null} if this is the last page
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public boolean hasNext() {
+		return nextCursor != null;
+	}
+}
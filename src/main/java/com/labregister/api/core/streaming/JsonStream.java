@@ -0,0 +1,30 @@
+package com.labregister.api.core.streaming;
+
+import java.util.Iterator;
+
+/**
+ * Collection returned from controllers to be written element by element while it is iterated,
+ * instead of being materialized before serialization
+ * <p>
+ * Written as JSON array or as newline-delimited JSON, see {@link JsonStreamHttpMessageConverter}.
+ */
+public class JsonStream<T> implements Iterable<T> {
+
+	private final Iterable<T> source;
+
+	private JsonStream(Iterable<T> source) {
+		this.source = source;
+	}
+
+	/**
+	 * @param source iterated once while the response is written; should be a lazy view, e.g. of a store
+	 */
+	public static <T> JsonStream<T> of(Iterable<T> source) {
+		return new JsonStream<>(source);
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return source.iterator();
+	}
+}
@@ -0,0 +1,135 @@
+package com.labregister.api.core.streaming;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link JsonStream} incrementally through a {@link JsonGenerator} to the response
+ * <p>
+ * Elements are serialized one at a time as they are iterated, so memory use per response is
+ * bounded by the generator and servlet buffers instead of growing with the collection. The
+ * stream is written as JSON array for {@code application/json} and as newline-delimited JSON
+ * (one element per line) for {@code application/x-ndjson}, flushing every
+ * {@value #FLUSH_INTERVAL} elements so that clients can process elements as they arrive.
+ * Binary formats backed by their own object mapper, e.g. Smile or CBOR, are written as array as well.
+ */
+public class JsonStreamHttpMessageConverter extends AbstractHttpMessageConverter<JsonStream<?>> {
+
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+	public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+	private static final int FLUSH_INTERVAL = 256;
+
+	private final Format json;
+
+	private final Map<MediaType, Format> binaryFormats = new LinkedHashMap<>();
+
+	public JsonStreamHttpMessageConverter(ObjectMapper objectMapper) {
+		this(objectMapper, Collections.emptyMap());
+	}
+
+	/**
+	 * @param binaryObjectMappers object mappers of binary formats by their media type
+	 */
+	public JsonStreamHttpMessageConverter(ObjectMapper objectMapper, Map<MediaType, ObjectMapper> binaryObjectMappers) {
+		this.json = new Format(objectMapper);
+		binaryObjectMappers.forEach((mediaType, mapper) -> binaryFormats.put(mediaType, new Format(mapper)));
+
+		List<MediaType> mediaTypes = new ArrayList<>(Arrays.asList(MediaType.APPLICATION_JSON, APPLICATION_NDJSON));
+		mediaTypes.addAll(binaryFormats.keySet());
+		setSupportedMediaTypes(mediaTypes);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return JsonStream.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	public boolean canRead(Class<?> clazz, MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected JsonStream<?> readInternal(Class<? extends JsonStream<?>> clazz, HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("JSON streams are write-only", inputMessage);
+	}
+
+	@Override
+	protected void writeInternal(JsonStream<?> stream, HttpOutputMessage outputMessage) throws IOException {
+		MediaType contentType = outputMessage.getHeaders().getContentType();
+		boolean delimited = contentType != null && APPLICATION_NDJSON.isCompatibleWith(contentType);
+		Format format = json;
+		if (contentType != null) {
+			for (Map.Entry<MediaType, Format> binaryFormat : binaryFormats.entrySet()) {
+				if (binaryFormat.getKey().isCompatibleWith(contentType)) {
+					format = binaryFormat.getValue();
+				}
+			}
+		}
+		ObjectWriter elementWriter = format.elementWriter;
+
+		JsonGenerator generator = format.objectMapper.getFactory().createGenerator(outputMessage.getBody(),
+		                                                                            JsonEncoding.UTF8);
+		// the servlet container closes the response stream
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		if (format == json) {
+			generator.setRootValueSeparator(null);
+		}
+
+		try {
+			if (!delimited) {
+				generator.writeStartArray();
+			}
+			int written = 0;
+			for (Object element : stream) {
+				elementWriter.writeValue(generator, element);
+				if (delimited) {
+					generator.writeRaw('\n');
+				}
+				if (++written % FLUSH_INTERVAL == 0) {
+					generator.flush();
+				}
+			}
+			if (!delimited) {
+				generator.writeEndArray();
+			}
+		} finally {
+			generator.close();
+		}
+	}
+
+	private static final class Format {
+
+		private final ObjectMapper objectMapper;
+
+		private final ObjectWriter elementWriter;
+
+		Format(ObjectMapper objectMapper) {
+			this.objectMapper = objectMapper;
+			// flushing is up to the converter, not done after every element
+			this.elementWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		}
+	}
+}
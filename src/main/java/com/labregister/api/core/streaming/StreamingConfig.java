@@ -0,0 +1,59 @@
+package com.labregister.api.core.streaming;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.collect.ImmutableMap;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/*
+ * Registers the JSON stream converter ahead of the default Jackson converter, which would
+ * otherwise claim JsonStream as well
+ *
+ * Requests and responses may also be encoded as Smile or CBOR, negotiated through Accept and
+ * Content-Type; their object mappers are configured like the JSON one, and their converters
+ * follow the JSON converter so that JSON stays the default.
+ */
+@Configuration
+public class StreamingConfig implements WebMvcConfigurer {
+
+	private final ObjectMapper objectMapper;
+
+	private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+
+	public StreamingConfig(ObjectMapper objectMapper, ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders) {
+		this.objectMapper = objectMapper;
+		this.objectMapperBuilders = objectMapperBuilders;
+	}
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		ObjectMapper smileMapper = binaryObjectMapper(new SmileFactory());
+		ObjectMapper cborMapper = binaryObjectMapper(new CBORFactory());
+
+		converters.add(0, new JsonStreamHttpMessageConverter(objectMapper, ImmutableMap.of(
+				JsonStreamHttpMessageConverter.APPLICATION_SMILE, smileMapper,
+				MediaType.APPLICATION_CBOR, cborMapper)));
+
+		// replaces the defaults, whose object mappers miss the application's Jackson configuration
+		converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+				|| converter instanceof MappingJackson2CborHttpMessageConverter);
+		converters.add(new MappingJackson2SmileHttpMessageConverter(smileMapper));
+		converters.add(new MappingJackson2CborHttpMessageConverter(cborMapper));
+	}
+
+	private ObjectMapper binaryObjectMapper(JsonFactory factory) {
+		Jackson2ObjectMapperBuilder builder = objectMapperBuilders.getIfAvailable(Jackson2ObjectMapperBuilder::json);
+		return builder.factory(factory).build();
+	}
+}
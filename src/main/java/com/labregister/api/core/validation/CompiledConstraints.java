@@ -0,0 +1,32 @@
+package com.labregister.api.core.validation;
+
+/**
+ * Hand-compiled form of the bean validation constraints of one entity type, used by
+ * {@link EntityValidator} to accept valid entities without running bean validation
+ * <p>
+ * An implementation must reject every entity that bean validation would reject for the default
+ * group and {@link EntityUpdateValidatorGroup}; rejected entities are validated again by bean
+ * validation, which reports the errors. It must not allocate for valid entities.
+ */
+public interface CompiledConstraints<T> {
+
+	Class<T> getEntityType();
+
+	boolean isValid(T entity);
+
+	/**
+	 * Mirrors {@code @NotBlank}: not null and containing at least one character other than
+	 * whitespace as trimmed by {@link String#trim()}
+	 */
+	static boolean isNotBlank(CharSequence value) {
+		if (value == null) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > ' ') {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -2,20 +2,53 @@ package com.labregister.api.core.validation;
 
 import com.google.common.base.Preconditions;
 import com.labregister.api.core.exception.EntityValidationException;
+import com.labregister.api.core.validation.BeanValidationUtils.ValidList;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
 
+import javax.validation.groups.Default;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class EntityValidator {
 
 	public static final String MESSAGE_NO_ID_MATCH = "id provided does not match resource";
 
+	public static final String MESSAGE_NO_ID = "id must be provided";
+
+	public static final String MESSAGE_NO_ENTITY = "must not be null";
+
+	private static final Object[] NO_GROUPS = {};
+
+	private static final Object[] UPDATE_GROUPS = {EntityUpdateValidatorGroup.class};
+
 	private SpringValidatorAdapter validatorAdapter;
 
-	@Autowired
+	private final Map<Class<?>, CompiledConstraints<?>> compiledConstraints = new HashMap<>();
+
 	public EntityValidator(SpringValidatorAdapter validatorAdapter) {
+		this(validatorAdapter, Collections.emptyList());
+	}
+
+	/**
+	 * Entities of the types covered by the given constraints are accepted by their compiled checks, with bean
+	 * validation only running for entities failing them, to collect the errors
+	 */
+	@Autowired
+	public EntityValidator(SpringValidatorAdapter validatorAdapter, Collection<CompiledConstraints<?>> constraints) {
 		this.validatorAdapter = validatorAdapter;
+		for (CompiledConstraints<?> constraint : constraints) {
+			compiledConstraints.put(constraint.getEntityType(), constraint);
+		}
+	}
+
+	public void validateCreate(Object target) throws EntityValidationException {
+		validate(target, NO_GROUPS);
 	}
 
 	public void validateCreate(Object target, Object... groups) throws EntityValidationException {
@@ -30,25 +63,83 @@ public class EntityValidator {
 		Preconditions.checkArgument(id != null);
 		Preconditions.checkArgument(target != null);
 
-		BeanPropertyBindingResult result = new BeanPropertyBindingResult(target, target.getClass().getName());
-
 		// validate ids match
 		if (!id.equals(target.getId())) {
+			BeanPropertyBindingResult result = new BeanPropertyBindingResult(target, target.getClass().getName());
 			FieldError fieldError = new FieldError(target.getClass().getName(), "id", MESSAGE_NO_ID_MATCH);
 			result.addError(fieldError);
 			throw new EntityValidationException(result);
 		}
 
-		validatorAdapter.validate(target, result, EntityUpdateValidatorGroup.class);
+		if (isValidCompiled(target, UPDATE_GROUPS)) {
+			return;
+		}
+		BeanPropertyBindingResult result = new BeanPropertyBindingResult(target, target.getClass().getName());
+		validatorAdapter.validate(target, result, UPDATE_GROUPS);
+
+		if (result.hasErrors()) {
+			throw new EntityValidationException(result);
+		}
+	}
+
+	/**
+	 * Validates all entities of a batch in one pass, errors are reported per element,
+	 * e.g. for field {@code list[3].name}
+	 */
+	public void validateCreateAll(List<?> targets, Object... groups) throws EntityValidationException {
+		validateAll(targets, false, groups);
+	}
+
+	/**
+	 * Validates all entities of a batch in one pass like {@link #validateCreateAll}; in addition every
+	 * entity must carry the id of the resource to update
+	 */
+	public void validateUpdateAll(List<? extends Entity> targets) throws EntityValidationException {
+		validateAll(targets, true, EntityUpdateValidatorGroup.class);
+	}
+
+	private void validateAll(List<?> targets, boolean requireIds, Object... groups) {
+		Preconditions.checkArgument(targets != null);
+
+		if (isAllValidCompiled(targets, requireIds, groups)) {
+			return;
+		}
+		ValidList<?> list = asValidList(targets);
+		BeanPropertyBindingResult result = new BeanPropertyBindingResult(list, list.getClass().getName());
+
+		for (int i = 0; i < list.size(); i++) {
+			Object target = list.get(i);
+			if (target == null) {
+				result.addError(new FieldError(result.getObjectName(), "list[" + i + "]", MESSAGE_NO_ENTITY));
+			} else if (requireIds && ((Entity) target).getId() == null) {
+				result.addError(new FieldError(result.getObjectName(), "list[" + i + "].id", MESSAGE_NO_ID));
+			}
+		}
+
+		// cascades into every element through the @Valid list of ValidList
+		validatorAdapter.validate(list, result, groups);
 
 		if (result.hasErrors()) {
 			throw new EntityValidationException(result);
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	private static <T> ValidList<T> asValidList(List<T> targets) {
+		if (targets instanceof ValidList) {
+			return (ValidList<T>) targets;
+		}
+		ValidList<T> list = new ValidList<>();
+		list.setList(targets);
+		return list;
+	}
+
 	protected void validate(Object target, Object... groups) throws EntityValidationException {
 		Preconditions.checkArgument(target != null);
 
+		if (isValidCompiled(target, groups)) {
+			return;
+		}
 		BeanPropertyBindingResult result = new BeanPropertyBindingResult(target, target.getClass().getName());
 		validatorAdapter.validate(target, result, groups);
 
@@ -56,4 +147,35 @@ public class EntityValidator {
 			throw new EntityValidationException(result);
 		}
 	}
+
+	/**
+	 * @return true if the target passes its compiled constraints, false if it fails them or has none for the
+	 * given groups; does not allocate
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean isValidCompiled(Object target, Object... groups) {
+		CompiledConstraints<Object> constraints = (CompiledConstraints<Object>) compiledConstraints.get(target.getClass());
+		return constraints != null && isCompiledGroups(groups) && constraints.isValid(target);
+	}
+
+	private boolean isAllValidCompiled(List<?> targets, boolean requireIds, Object... groups) {
+		for (int i = 0; i < targets.size(); i++) {
+			Object target = targets.get(i);
+			if (target == null || (requireIds && ((Entity) target).getId() == null)
+					|| !isValidCompiled(target, groups)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// compiled constraints cover the constraints of the default group, which the update group extends
+	private static boolean isCompiledGroups(Object... groups) {
+		for (Object group : groups) {
+			if (group != Default.class && group != EntityUpdateValidatorGroup.class) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
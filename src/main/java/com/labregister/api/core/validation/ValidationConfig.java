@@ -1,5 +1,6 @@
 package com.labregister.api.core.validation;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
@@ -8,6 +9,7 @@ import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
 
 import javax.validation.Validator;
+import java.util.stream.Collectors;
 
 /*
  * Used for manually validating method parameter beans (JSR-303) in service layer
@@ -17,10 +19,11 @@ public class ValidationConfig {
 
 	@Bean
 	@Autowired
-	public EntityValidator preconditionValidator(MessageSource messageSource) {
+	public EntityValidator preconditionValidator(MessageSource messageSource,
+	                                             ObjectProvider<CompiledConstraints<?>> compiledConstraints) {
 		SpringValidatorAdapter springValidator = springValidatorAdapter(messageSource);
 
-		return new EntityValidator(springValidator);
+		return new EntityValidator(springValidator, compiledConstraints.orderedStream().collect(Collectors.toList()));
 	}
 
 	@Bean
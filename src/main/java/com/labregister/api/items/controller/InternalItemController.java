@@ -0,0 +1,39 @@
+package com.labregister.api.items.controller;
+
+import com.google.common.base.Preconditions;
+import com.labregister.api.core.deletion.NoContentResponse;
+import com.labregister.api.core.internal.InternalApiInterceptor;
+import com.labregister.api.items.service.ItemService;
+import com.labregister.api.items.store.ItemChange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Item endpoints for other instances, e.g. a router moving items between its shards; only served
+ * with {@code labregister.internal.token} set and only to requests carrying it, see {@link InternalApiInterceptor}
+ */
+@RestController
+@ConditionalOnProperty(prefix = "labregister.internal", name = "token")
+public class InternalItemController {
+
+	private final ItemService itemService;
+
+	public InternalItemController(ItemService itemService) {
+		Preconditions.checkArgument(itemService != null);
+		this.itemService = itemService;
+	}
+
+	/**
+	 * Applies changes replicated from another instance in order, e.g. the versions of items moved to
+	 * this shard; changes already applied are skipped, see {@link ItemService#applyChanges}
+	 */
+	@PostMapping(value = "/internal/items/changes")
+	public NoContentResponse applyItemChanges(@RequestBody List<ItemChange> changes) {
+		itemService.applyChanges(changes);
+		return new NoContentResponse();
+	}
+}
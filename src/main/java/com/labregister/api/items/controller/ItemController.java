@@ -1,63 +1,395 @@
 package com.labregister.api.items.controller;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.labregister.api.core.GlobalControllerAdvice;
+import com.labregister.api.core.caching.RepresentationTags;
+import com.labregister.api.core.creation.EntityAcceptedResponse;
 import com.labregister.api.core.creation.EntityCreatedResponse;
+import com.labregister.api.core.operation.Operation;
+import com.labregister.api.core.operation.OperationController;
+import com.labregister.api.core.pagination.Page;
+import com.labregister.api.core.streaming.JsonStream;
+import com.labregister.api.core.streaming.JsonStreamHttpMessageConverter;
+import com.labregister.api.core.validation.BeanValidationUtils.ValidList;
 import com.labregister.api.items.domain.Item;
 import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.service.ItemChangeFeed;
 import com.labregister.api.items.service.ItemService;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.util.UriTemplate;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
-import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 public class ItemController {
 
-	private static final String RESOURCE_ITEM = "/items/{id}";
+	private static final String PARAM_PREFIX_ATTRIBUTE = "attr.";
+
+	private static final String PARAM_LIMIT = "limit";
+
+	private static final String PARAM_CURSOR = "cursor";
+
+	private static final String PARAM_FROM_VERSION = "fromVersion";
+
+	private static final String PARAM_TO_VERSION = "toVersion";
+
+	private static final String PARAM_SINCE = "since";
+
+	private static final String PARAM_QUERY = "q";
+
+	private static final String PARAM_AS_OF = "asOf";
+
+	private static final String HEADER_LAST_EVENT_ID = "Last-Event-ID";
+
+	private static final String ENCODING_GZIP = "gzip";
+
+	// representations of getAllItems, JSON arrays are served by getAllItemsAsJson
+	private static final List<MediaType> ITEM_STREAM_TYPES = ImmutableList.of(
+			JsonStreamHttpMessageConverter.APPLICATION_NDJSON, JsonStreamHttpMessageConverter.APPLICATION_SMILE,
+			MediaType.APPLICATION_CBOR);
+
+	private static final List<MediaType> ITEM_ARRAY_TYPES = ImmutableList.of(MediaType.APPLICATION_JSON);
 
 	private final ItemService itemService;
 
-	public ItemController(ItemService itemService) {
+	private final ItemChangeFeed changeFeed;
+
+	private final ItemListBodyCache itemListCache;
+
+	public ItemController(ItemService itemService, ItemChangeFeed changeFeed, ItemListBodyCache itemListCache) {
 		Preconditions.checkArgument(itemService != null);
+		Preconditions.checkArgument(changeFeed != null);
+		Preconditions.checkArgument(itemListCache != null);
 		this.itemService = itemService;
+		this.changeFeed = changeFeed;
+		this.itemListCache = itemListCache;
 	}
 
+	/**
+	 * Lists all items, newest first
+	 * <p>
+	 * The items are streamed from the store while the response is written, with
+	 * {@code Accept: application/x-ndjson} as newline-delimited JSON, or as Smile or CBOR array. JSON
+	 * arrays are served by {@link #getAllItemsAsJson}.
+	 * <p>
+	 * Parameters {@code attr.<key>=<value>} restrict the result to items having all of the given
+	 * attribute values, {@code attr.<key>=} to items having the attribute at all.
+	 * <p>
+	 * The ETag changes with every change to any item and differs per representation, see
+	 * {@link RepresentationTags}; a request with a matching {@code If-None-Match} is answered with
+	 * 304 Not Modified without reading any item.
+	 */
+	@GetMapping(value = "/items", params = {"!" + PARAM_LIMIT, "!" + PARAM_CURSOR, "!" + PARAM_AS_OF},
+	            produces = {JsonStreamHttpMessageConverter.APPLICATION_NDJSON_VALUE,
+	                        JsonStreamHttpMessageConverter.APPLICATION_SMILE_VALUE,
+	                        MediaType.APPLICATION_CBOR_VALUE})
+	@ResponseBody
+	public JsonStream<Item> getAllItems(@RequestParam Map<String, String> parameters, WebRequest webRequest) {
+		if (RepresentationTags.checkNotModified(webRequest, itemService.getItemsTag(), ITEM_STREAM_TYPES)) {
+			return null;
+		}
+		return JsonStream.of(itemService.streamItems(getAttributeFilter(parameters)));
+	}
+
+	/**
+	 * Lists all items as JSON array, filtered like {@link #getAllItems}
+	 * <p>
+	 * Without filter the body is served from {@link ItemListBodyCache}, built once per items tag;
+	 * clients sending {@code Accept-Encoding: gzip} get the precompressed body.
+	 */
+	@GetMapping(value = "/items", params = {"!" + PARAM_LIMIT, "!" + PARAM_CURSOR, "!" + PARAM_AS_OF})
+	public ResponseEntity<?> getAllItemsAsJson(@RequestParam Map<String, String> parameters,
+	                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+	                                           String acceptEncoding,
+	                                           WebRequest webRequest) throws IOException {
+		String tag = itemService.getItemsTag();
+		Map<String, String> attributes = getAttributeFilter(parameters);
+		boolean cached = attributes.isEmpty() && tag != null;
+		boolean gzip = cached && ItemListBodyCache.acceptsGzip(acceptEncoding);
+		if (RepresentationTags.checkNotModified(webRequest, tag, ITEM_ARRAY_TYPES, gzip)) {
+			return null;
+		}
+		if (!cached) {
+			return ResponseEntity.ok(JsonStream.of(itemService.streamItems(attributes)));
+		}
+
+		ItemListBodyCache.Body body = itemListCache.get(tag);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+		if (gzip) {
+			return response.header(HttpHeaders.CONTENT_ENCODING, ENCODING_GZIP).body(body.getGzippedContent());
+		}
+		return response.body(body.getContent());
+	}
+
+	/**
+	 * Lists one page of items like {@link #getAllItems}; the cursor of the following page is sent in
+	 * the {@code X-Next-Cursor} and {@code Link} headers
+	 */
 	@GetMapping(value = "/items")
 	@ResponseBody
-	public Collection<Item> getItems() {
-		return itemService.getItems();
+	public Page<Item> getItems(@RequestParam(required = false) Integer limit,
+	                           @RequestParam(required = false) String cursor,
+	                           @RequestParam Map<String, String> parameters,
+	                           WebRequest webRequest) {
+		if (RepresentationTags.checkNotModified(webRequest, itemService.getItemsTag(),
+		                                        RepresentationTags.ENTITY_TYPES)) {
+			return null;
+		}
+		Map<String, String> attributes = getAttributeFilter(parameters);
+		int pageSize = limit != null ? limit : ItemService.DEFAULT_PAGE_SIZE;
+		return attributes.isEmpty()
+				? itemService.getItems(cursor, pageSize)
+				: itemService.findItems(attributes, cursor, pageSize);
+	}
+
+	/**
+	 * Lists one page of the items as they were at {@code asOf} (ISO date-time), each with its latest
+	 * version dated at or before it, filtered by those versions' attributes and paginated like
+	 * {@link #getItems}
+	 * <p>
+	 * Only the items of the requested page are reconstructed, so the snapshot of a large store is
+	 * never materialized as a whole.
+	 */
+	@GetMapping(value = "/items", params = PARAM_AS_OF)
+	@ResponseBody
+	public Page<Item> getItemsAsOf(@RequestParam(PARAM_AS_OF)
+	                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date asOf,
+	                               @RequestParam(required = false) Integer limit,
+	                               @RequestParam(required = false) String cursor,
+	                               @RequestParam Map<String, String> parameters,
+	                               WebRequest webRequest) {
+		if (RepresentationTags.checkNotModified(webRequest, itemService.getItemsTag(),
+		                                        RepresentationTags.ENTITY_TYPES)) {
+			return null;
+		}
+		return itemService.findItemsAsOf(asOf, getAttributeFilter(parameters), cursor,
+		                                 limit != null ? limit : ItemService.DEFAULT_PAGE_SIZE);
+	}
+
+	/**
+	 * Searches items by part of their name or attribute values, ignoring case, and returns up to
+	 * {@code limit} of them, best matches first, see {@link ItemService#searchItems}
+	 */
+	@GetMapping(value = "/items/search")
+	@ResponseBody
+	public List<Item> searchItems(@RequestParam(PARAM_QUERY) String query,
+	                              @RequestParam(required = false) Integer limit) {
+		return itemService.searchItems(query, limit != null ? limit : ItemService.DEFAULT_SEARCH_LIMIT);
+	}
+
+	/**
+	 * Streams all changes to items as Server-Sent Events, see {@link ItemChangeFeed}; clients
+	 * reconnecting with {@code Last-Event-ID} receive the changes they missed
+	 */
+	@GetMapping(value = "/items/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public void getItemChanges(@RequestHeader(value = HEADER_LAST_EVENT_ID, required = false) Long lastEventId,
+	                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+		changeFeed.subscribe(lastEventId, request, response);
 	}
 
+	/**
+	 * Returns a single item, with its version number as ETag
+	 */
+	@GetMapping(value = "/items/{itemId}")
+	@ResponseBody
+	public Item getItem(@PathVariable String itemId, WebRequest webRequest) {
+		if (RepresentationTags.checkNotModified(webRequest, getVersionTag(itemId), RepresentationTags.ENTITY_TYPES)) {
+			return null;
+		}
+		return itemService.getItem(itemId);
+	}
+
+	/**
+	 * Returns a single item as it was at {@code asOf} (ISO date-time), with the number of the version
+	 * returned as ETag; 404 Not Found if the item did not exist yet
+	 */
+	@GetMapping(value = "/items/{itemId}", params = PARAM_AS_OF)
+	@ResponseBody
+	public Item getItemAsOf(@PathVariable String itemId,
+	                        @RequestParam(PARAM_AS_OF) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date asOf,
+	                        WebRequest webRequest) {
+		Item item = itemService.getItemAsOf(itemId, asOf);
+		if (RepresentationTags.checkNotModified(webRequest, String.valueOf(item.getVersionNumber()),
+		                                        RepresentationTags.ENTITY_TYPES)) {
+			return null;
+		}
+		return item;
+	}
+
+	/**
+	 * Creates the item, or with {@code Prefer: respond-async} validates it and creates it
+	 * asynchronously, see {@link #createItemAsync}
+	 */
 	@PostMapping(value = "/items")
-	public EntityCreatedResponse<Item> createItem(@RequestBody Item request) {
+	public Object createItem(@RequestBody Item request,
+	                         @RequestHeader(value = GlobalControllerAdvice.HEADER_PREFER, required = false)
+	                         String prefer) {
+		if (prefersRespondAsync(prefer)) {
+			return createItemAsync(request);
+		}
 		Item created = itemService.createItem(request);
 		return new EntityCreatedResponse<>(created, getItemLocation(created));
 	}
 
+	/**
+	 * Validates the item and creates it asynchronously, answering 202 Accepted with the location of
+	 * the operation to poll, see {@link OperationController}
+	 */
+	private EntityAcceptedResponse<Operation> createItemAsync(Item request) {
+		Operation operation = itemService.createItemAsync(request);
+		return new EntityAcceptedResponse<>(operation, OperationController.getOperationLocation(operation));
+	}
+
+	/**
+	 * Creates all items of the list as one batch; validation errors are reported per list element
+	 */
+	@PostMapping(value = "/items:batch")
+	public EntityCreatedResponse<List<Item>> createItems(@RequestBody ValidList<Item> requests) {
+		return new EntityCreatedResponse<>(itemService.createItems(requests), null);
+	}
+
+	/**
+	 * Updates all items of the list as one batch, each element carries the id of the item to update
+	 */
+	@PutMapping(value = "/items:batch")
+	@ResponseBody
+	public List<Item> updateItems(@RequestBody ValidList<Item> requests) {
+		return itemService.updateItems(requests);
+	}
+
+	/**
+	 * Updates the item, or with {@code Prefer: respond-async} validates the update and applies it
+	 * asynchronously like {@link #createItemAsync}
+	 */
 	@PutMapping(value = "/items/{itemId}")
 	@ResponseBody
-	public Item updateItem(@PathVariable String itemId, @RequestBody Item request) {
+	public Object updateItem(@PathVariable String itemId, @RequestBody Item request,
+	                         @RequestHeader(value = GlobalControllerAdvice.HEADER_PREFER, required = false)
+	                         String prefer) {
+		if (prefersRespondAsync(prefer)) {
+			return updateItemAsync(itemId, request);
+		}
 		return itemService.updateItem(itemId, request);
 	}
 
+	private EntityAcceptedResponse<Operation> updateItemAsync(String itemId, Item request) {
+		Operation operation = itemService.updateItemAsync(itemId, request);
+		return new EntityAcceptedResponse<>(operation, OperationController.getOperationLocation(operation));
+	}
+
+	/**
+	 * Lists all versions of an item, newest first, streamed like {@link #getAllItems}
+	 * <p>
+	 * The ETag is the item's version number.
+	 */
+	@GetMapping(value = "/items/{itemId}/versions",
+	            params = {"!" + PARAM_LIMIT, "!" + PARAM_FROM_VERSION, "!" + PARAM_TO_VERSION, "!" + PARAM_SINCE,
+	                      "!" + PARAM_CURSOR})
+	@ResponseBody
+	public JsonStream<ItemVersion> getAllItemVersions(@PathVariable String itemId, WebRequest webRequest) {
+		if (RepresentationTags.checkNotModified(webRequest, getVersionTag(itemId), RepresentationTags.STREAM_TYPES)) {
+			return null;
+		}
+		return JsonStream.of(itemService.streamItemVersions(itemId));
+	}
+
+	/**
+	 * Lists one page of the versions of an item, newest first
+	 * <p>
+	 * The page holds up to {@code limit} versions matching {@code fromVersion}, {@code toVersion} and
+	 * {@code since} (ISO date-time), paginated like {@link #getItems}. The ETag is the item's version number.
+	 */
 	@GetMapping(value = "/items/{itemId}/versions")
 	@ResponseBody
-	public Collection<ItemVersion> getItemVersions(@PathVariable String itemId) {
-		return itemService.getItemVersions(itemId);
+	public Page<ItemVersion> getItemVersions(@PathVariable String itemId,
+	                                         @RequestParam(required = false) Integer limit,
+	                                         @RequestParam(required = false) Integer fromVersion,
+	                                         @RequestParam(required = false) Integer toVersion,
+	                                         @RequestParam(required = false)
+	                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date since,
+	                                         @RequestParam(required = false) String cursor,
+	                                         WebRequest webRequest) {
+		if (RepresentationTags.checkNotModified(webRequest, getVersionTag(itemId), RepresentationTags.ENTITY_TYPES)) {
+			return null;
+		}
+		return itemService.getItemVersions(itemId, fromVersion, toVersion, since, cursor,
+		                                   limit != null ? limit : ItemService.DEFAULT_PAGE_SIZE);
+	}
+
+	private String getVersionTag(String itemId) {
+		return String.valueOf(itemService.getItemVersionNumber(itemId));
+	}
+
+	/*
+	 * Whether the RFC 7240 Prefer header, e.g. "respond-async, wait=10", holds the respond-async
+	 * preference; preferences are separated by commas outside of quoted values
+	 */
+	private static boolean prefersRespondAsync(String prefer) {
+		if (prefer == null) {
+			return false;
+		}
+		boolean quoted = false;
+		int start = 0;
+		for (int i = 0; i <= prefer.length(); i++) {
+			char c = i < prefer.length() ? prefer.charAt(i) : ',';
+			if (c == '"') {
+				quoted = !quoted;
+			} else if (c == '\\' && quoted) {
+				i++;
+			} else if (c == ',' && !quoted) {
+				if (getPreferenceName(prefer.substring(start, i))
+						.equalsIgnoreCase(GlobalControllerAdvice.PREFERENCE_RESPOND_ASYNC)) {
+					return true;
+				}
+				start = i + 1;
+			}
+		}
+		return false;
+	}
+
+	// the name of a preference "token [ = value ] *( ; parameter )"
+	private static String getPreferenceName(String preference) {
+		int end = 0;
+		while (end < preference.length() && preference.charAt(end) != '=' && preference.charAt(end) != ';') {
+			end++;
+		}
+		return preference.substring(0, end).trim();
+	}
+
+	private static Map<String, String> getAttributeFilter(Map<String, String> parameters) {
+		Map<String, String> attributes = new HashMap<>();
+		parameters.forEach((name, value) -> {
+			if (name.startsWith(PARAM_PREFIX_ATTRIBUTE)) {
+				attributes.put(name.substring(PARAM_PREFIX_ATTRIBUTE.length()), value);
+			}
+		});
+		return attributes;
 	}
 
 	private URI getItemLocation(Item item) {
-		UriTemplate itemLocation = new UriTemplate(RESOURCE_ITEM);
+		UriTemplate itemLocation = new UriTemplate(ItemService.RESOURCE_ITEM);
 		Map<String, String> uriVariables = new HashMap<>();
 		uriVariables.put("id", item.getId());
 		return itemLocation.expand(uriVariables);
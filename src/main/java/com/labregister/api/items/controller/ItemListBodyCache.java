@@ -0,0 +1,141 @@
+package com.labregister.api.items.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.labregister.api.items.service.ItemService;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON body of the complete item list, and its gzip-compressed form, for the latest
+ * {@link ItemService#getItemsTag() items tag}
+ * <p>
+ * The body is built by the first request after a change and shared by all following requests until
+ * the next change, so a repeated read of an unchanged list copies bytes instead of iterating,
+ * serializing and compressing the items. Concurrent requests for a new tag wait for a single build.
+ * The tag is read before the items are, so a body may hold changes newer than its tag but never
+ * misses changes of it.
+ */
+@Component
+public class ItemListBodyCache {
+
+	private static final String ENCODING_GZIP = "gzip";
+
+	private final ItemService itemService;
+
+	private final ObjectMapper objectMapper;
+
+	private volatile Body body;
+
+	public ItemListBodyCache(ItemService itemService, ObjectMapper objectMapper) {
+		this.itemService = itemService;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * @param tag current items tag, see {@link ItemService#getItemsTag()}
+	 */
+	public Body get(String tag) throws IOException {
+		Body current = body;
+		if (current != null && current.tag.equals(tag)) {
+			return current;
+		}
+		synchronized (this) {
+			current = body;
+			if (current == null || !current.tag.equals(tag)) {
+				current = build(tag);
+				body = current;
+			}
+			return current;
+		}
+	}
+
+	private Body build(String tag) throws IOException {
+		byte[] content = objectMapper.writer()
+		                             .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+		                             .writeValueAsBytes(itemService.streamItems(Collections.emptyMap()));
+
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream(content.length / 4);
+		try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+			out.write(content);
+		}
+		return new Body(tag, content, gzipped.toByteArray());
+	}
+
+	/**
+	 * @return whether an {@code Accept-Encoding} header accepts gzip, i.e. lists {@code gzip} with a
+	 * quality above zero, or else {@code *} with a quality above zero; an explicit {@code gzip} takes
+	 * precedence over {@code *} regardless of the order
+	 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		Double gzipQuality = null;
+		Double anyQuality = null;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parameters = coding.split(";");
+			String name = parameters[0].trim();
+			if (name.equalsIgnoreCase(ENCODING_GZIP)) {
+				gzipQuality = quality(parameters);
+			} else if (name.equals("*")) {
+				anyQuality = quality(parameters);
+			}
+		}
+		Double quality = gzipQuality != null ? gzipQuality : anyQuality;
+		return quality != null && quality > 0;
+	}
+
+	// the q parameter of a coding, 1 if missing and 0 if malformed
+	private static double quality(String[] parameters) {
+		double quality = 1;
+		for (int i = 1; i < parameters.length; i++) {
+			String parameter = parameters[i].trim();
+			if (parameter.startsWith("q=")) {
+				try {
+					quality = Double.parseDouble(parameter.substring(2));
+				} catch (NumberFormatException e) {
+					quality = 0;
+				}
+			}
+		}
+		return quality;
+	}
+
+	public static final class Body {
+
+		private final String tag;
+
+		private final byte[] content;
+
+		private final byte[] gzippedContent;
+
+		Body(String tag, byte[] content, byte[] gzippedContent) {
+			this.tag = tag;
+			this.content = content;
+			this.gzippedContent = gzippedContent;
+		}
+
+		public String getTag() {
+			return tag;
+		}
+
+		/**
+		 * @return the JSON array of all items, shared and not to be modified
+		 */
+		public byte[] getContent() {
+			return content;
+		}
+
+		/**
+		 * @return the content compressed with gzip, shared and not to be modified
+		 */
+		public byte[] getGzippedContent() {
+			return gzippedContent;
+		}
+	}
+}
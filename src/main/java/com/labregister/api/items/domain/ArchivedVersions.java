@@ -0,0 +1,40 @@
+package com.labregister.api.items.domain;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+
+/**
+ * The oldest versions of an {@link Item}, which were moved out of the heap into an archive
+ * <p>
+ * Archived versions are numbered from 1 up to the version preceding the item's first held version
+ * and never change, so they are read without holding the item's lock.
+ */
+public interface ArchivedVersions {
+
+	ArchivedVersions NONE = new ArchivedVersions() {
+
+		@Override
+		public Iterator<ItemVersion> iterator(int toVersion) {
+			return Collections.emptyIterator();
+		}
+
+		@Override
+		public int getFirstVersionSince(Date since) {
+			return 1;
+		}
+	};
+
+	/**
+	 * Iterates the archived versions from {@code toVersion} down to version 1, reading them lazily
+	 *
+	 * @throws java.io.UncheckedIOException if the archive cannot be read
+	 */
+	Iterator<ItemVersion> iterator(int toVersion);
+
+	/**
+	 * @return the number of the oldest archived version dated at or after {@code since}, or the
+	 * number following the newest archived version if all are older
+	 */
+	int getFirstVersionSince(Date since);
+}
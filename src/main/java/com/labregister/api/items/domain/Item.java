@@ -1,18 +1,32 @@
 package com.labregister.api.items.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.labregister.api.core.validation.Entity;
 
 import javax.validation.constraints.NotBlank;
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 /**
  * Simple Item resource to demonstrate Labregister functionality
+ * <p>
+ * A stored item is a sequence of immutable {@link ItemVersion}s. Writers, serialized by the item's
+ * lock, append a version and publish a new immutable {@link History} of the item in one volatile
+ * write; the version number is its stamp. Readers take the published history once and work on it
+ * without locking, so they see one consistent version and never block or slow down writers. The
+ * name, attributes and dates returned by an item are those of its current version, or the values
+ * set on it before its first version, e.g. of a request. Once an item has a version, its state only
+ * changes through new versions: the setters of name, attributes and dates throw.
  */
+@JsonSerialize(using = ItemSerializer.class)
+@JsonIgnoreProperties("versions")
 public class Item implements Entity, Comparable<Item> {
 
 	private String id;
 
+	// state of a request, superseded by the first version
 	@NotBlank
 	private String name;
 
@@ -22,10 +36,11 @@ public class Item implements Entity, Comparable<Item> {
 
 	private Date lastUpdateDate;
 
-	private int versionNumber = 0;
+	// version number of an item read from another instance, which holds its versions
+	private int versionNumber;
 
 	@JsonIgnore
-	private final Deque<ItemVersion> versions = new LinkedList<>();
+	private volatile History history = History.EMPTY;
 
 	public Item() {
 		// needed for JSON deserialization
@@ -50,18 +65,22 @@ public class Item implements Entity, Comparable<Item> {
 	}
 
 	public String getName() {
-		return name;
+		ItemVersion current = getPublishedVersion();
+		return current != null ? current.getName() : name;
 	}
 
 	public void setName(String name) {
+		checkUnversioned();
 		this.name = name;
 	}
 
 	public Map<String, String> getAttributes() {
-		return attributes;
+		ItemVersion current = getPublishedVersion();
+		return current != null ? current.getAttributes() : attributes;
 	}
 
 	public void setAttributes(Map<String, String> attributes) {
+		checkUnversioned();
 		this.attributes = attributes;
 	}
 
@@ -70,31 +89,230 @@ public class Item implements Entity, Comparable<Item> {
 	}
 
 	public void setCreationDate(Date creationDate) {
+		checkUnversioned();
 		this.creationDate = creationDate;
 		this.lastUpdateDate = creationDate;
 	}
 
+	/**
+	 * @return the latest version, a consistent snapshot of the item's state, or {@code null} before the first version
+	 */
+	@JsonIgnore
+	public ItemVersion getCurrentVersion() {
+		return history.current();
+	}
+
+	/**
+	 * @return all versions, newest first
+	 */
 	public List<ItemVersion> getVersions() {
-		return new ArrayList<>(versions);
+		return getVersions(1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the versions numbered {@code fromVersion} to {@code toVersion} (both inclusive),
+	 * newest first and at most {@code limit} of them, in O(limit) regardless of the history length
+	 * <p>
+	 * Archived versions are read lazily, see {@link ArchivedVersions}.
+	 */
+	public List<ItemVersion> getVersions(int fromVersion, int toVersion, int limit) {
+		History history = this.history;
+		int from = Math.max(fromVersion, 1);
+		int to = Math.min(toVersion, history.versionNumber);
+		List<ItemVersion> result = new ArrayList<>(Math.max(0, Math.min(limit, to - from + 1)));
+		for (int number = to; number >= Math.max(from, history.firstHeld) && result.size() < limit; number--) {
+			result.add(history.get(number));
+		}
+		if (result.size() == limit || from >= history.firstHeld) {
+			return result;
+		}
+
+		Iterator<ItemVersion> older = history.archived.iterator(Math.min(to, history.firstHeld - 1));
+		while (older.hasNext() && result.size() < limit) {
+			ItemVersion version = older.next();
+			if (version.getVersionNumber() < from) {
+				break;
+			}
+			result.add(version);
+		}
+		return result;
+	}
+
+	/**
+	 * Iterates all versions newest first, without copying the history
+	 * <p>
+	 * The iteration covers the versions present when this method is called; versions are never
+	 * modified, so iterating needs no lock. Archived versions are read lazily once reached.
+	 */
+	public Iterable<ItemVersion> iterateVersions() {
+		History history = this.history;
+		return () -> new Iterator<ItemVersion>() {
+
+			private int next = history.versionNumber;
+
+			private Iterator<ItemVersion> older;
+
+			@Override
+			public boolean hasNext() {
+				if (next >= history.firstHeld) {
+					return true;
+				}
+				if (older == null) {
+					older = history.archived.iterator(history.firstHeld - 1);
+				}
+				return older.hasNext();
+			}
+
+			@Override
+			public ItemVersion next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return next >= history.firstHeld ? history.get(next--) : older.next();
+			}
+		};
+	}
+
+	/**
+	 * Finds the oldest version dated at or after {@code since} by binary search, version dates never decrease
+	 *
+	 * @return its version number, or the current version number + 1 if all versions are older
+	 */
+	public int getFirstVersionSince(Date since) {
+		History history = this.history;
+		int low = history.firstHeld;
+		int high = history.versionNumber + 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (history.get(middle).getVersionDate().before(since)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		if (low > history.firstHeld || history.firstHeld == 1) {
+			return low;
+		}
+		return history.archived.getFirstVersionSince(since);
+	}
+
+	/**
+	 * Returns the item as it was at {@code asOf}, i.e. its latest version dated at or before it, found
+	 * by binary search like {@link #getFirstVersionSince(Date)}
+	 *
+	 * @return detached item holding only that version, or {@code null} if the item had no version yet
+	 */
+	public Item asOf(Date asOf) {
+		int number = getFirstVersionSince(new Date(asOf.getTime() + 1)) - 1;
+		if (number < 1) {
+			return null;
+		}
+		ItemVersion version = getVersions(number, number, 1).get(0);
+		Item item = new Item();
+		item.id = id;
+		item.creationDate = creationDate;
+		item.history = new History(new ItemVersion[]{version}, number, number, ArchivedVersions.NONE);
+		return item;
+	}
+
+	/**
+	 * @return number of the oldest version held on the heap, all older ones are archived
+	 */
+	public int getFirstHeldVersion() {
+		return history.firstHeld;
+	}
+
+	public ArchivedVersions getArchivedVersions() {
+		return history.archived;
+	}
+
+	/**
+	 * Releases the versions up to {@code toVersion} from the heap, they are read from {@code archived} from now on
+	 * <p>
+	 * Readers holding the previous history keep reading the released versions from it.
+	 *
+	 * @param archived the archived versions up to {@code toVersion}, including those archived before
+	 * @throws IllegalArgumentException if a version is not held or is the current version
+	 */
+	public synchronized void archiveVersions(int toVersion, ArchivedVersions archived) {
+		History current = history;
+		if (toVersion < current.firstHeld || toVersion >= current.versionNumber) {
+			throw new IllegalArgumentException("Cannot archive version " + toVersion);
+		}
+		int held = current.versionNumber - toVersion;
+		int start = toVersion + 1 - current.firstHeld;
+		ItemVersion[] versions = Arrays.copyOfRange(current.versions, start, start + held + (held >> 1));
+		history = new History(versions, toVersion + 1, current.versionNumber, archived);
 	}
 
 	public Date getLastUpdateDate() {
-		return lastUpdateDate;
+		ItemVersion current = getPublishedVersion();
+		return current != null ? current.getVersionDate() : lastUpdateDate;
 	}
 
 	public void setLastUpdateDate(Date lastUpdateDate) {
+		checkUnversioned();
 		this.lastUpdateDate = lastUpdateDate;
 	}
 
-	public void createVersion() {
-		synchronized (this) {
-			versionNumber++;
+	/**
+	 * @return the current version, or {@code null} if the item has none
+	 */
+	ItemVersion getPublishedVersion() {
+		return history.current();
+	}
+
+	// the fields are only the state before the first version, e.g. of a request
+	private void checkUnversioned() {
+		if (history.versionNumber > 0) {
+			throw new IllegalStateException("Item " + id + " has versions, changes need a new version");
 		}
-		versions.push(new ItemVersion(this));
 	}
 
+	/**
+	 * Records the item's name, attributes and last update date as a new version, e.g. those set on a
+	 * new item as its first version
+	 */
+	public void createVersion() {
+		createVersion(UnaryOperator.identity());
+	}
+
+	/**
+	 * Records the item's state as a new version like {@link #createVersion()}
+	 *
+	 * @param strings applied to the name and the attribute keys and values, e.g. to intern them
+	 */
+	public synchronized void createVersion(UnaryOperator<String> strings) {
+		createVersion(getName(), getAttributes(), getLastUpdateDate(), strings);
+	}
+
+	/**
+	 * Records the given state as a new version and publishes it to readers
+	 * <p>
+	 * Afterwards the item's name and attributes are those of that version, shared with the
+	 * history instead of being copied into it.
+	 *
+	 * @param strings applied to the name and the added or changed attribute keys and values, e.g. to intern them
+	 */
+	public synchronized void createVersion(String name, Map<String, String> attributes, Date versionDate,
+	                                       UnaryOperator<String> strings) {
+		History current = history;
+		int number = current.versionNumber + 1;
+		ItemVersion version = new ItemVersion(number, name, attributes, versionDate, current.current(), strings);
+		history = current.append(version);
+		// the request's state is superseded by the versions
+		this.name = null;
+		this.attributes = null;
+		this.lastUpdateDate = null;
+	}
+
+	/**
+	 * @return the number of the current version, the stamp of the item's state; for an item without
+	 * versions the number it was read with, e.g. from another instance
+	 */
 	public int getVersionNumber() {
-		return versionNumber;
+		History history = this.history;
+		return history.versionNumber > 0 ? history.versionNumber : versionNumber;
 	}
 
 	@Override
@@ -108,7 +326,55 @@ public class Item implements Entity, Comparable<Item> {
 		if (o == null || getClass() != o.getClass()) return false;
 		Item item = (Item) o;
 		return id.equals(item.id) &&
-				name.equals(item.name) &&
-				attributes.equals(item.attributes);
+				getName().equals(item.getName()) &&
+				getAttributes().equals(item.getAttributes());
+	}
+
+	/**
+	 * Immutable state of an item's versions, published as a whole
+	 * <p>
+	 * Version n is stored at index n - firstHeld, so any range of the history is found without a
+	 * scan. Appending shares the array with the previous history while it has room: the new entry
+	 * lies beyond all versions of the previous history and is written before the history covering it
+	 * is published.
+	 */
+	private static final class History {
+
+		static final History EMPTY = new History(new ItemVersion[0], 1, 0, ArchivedVersions.NONE);
+
+		final ItemVersion[] versions;
+
+		// versions before it have been moved to the archive
+		final int firstHeld;
+
+		final int versionNumber;
+
+		final ArchivedVersions archived;
+
+		History(ItemVersion[] versions, int firstHeld, int versionNumber, ArchivedVersions archived) {
+			this.versions = versions;
+			this.firstHeld = firstHeld;
+			this.versionNumber = versionNumber;
+			this.archived = archived;
+		}
+
+		ItemVersion get(int number) {
+			return versions[number - firstHeld];
+		}
+
+		ItemVersion current() {
+			return versionNumber > 0 ? get(versionNumber) : null;
+		}
+
+		// only called by the item's writer
+		History append(ItemVersion version) {
+			int index = versionNumber + 1 - firstHeld;
+			ItemVersion[] target = versions;
+			if (index >= target.length) {
+				target = Arrays.copyOf(target, Math.max(1, target.length * 2));
+			}
+			target[index] = version;
+			return new History(target, firstHeld, versionNumber + 1, archived);
+		}
 	}
 }
@@ -0,0 +1,37 @@
+package com.labregister.api.items.domain;
+
+import com.labregister.api.core.validation.CompiledConstraints;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+import static com.labregister.api.core.validation.CompiledConstraints.isNotBlank;
+
+/**
+ * The constraints of {@link Item}: a {@code @NotBlank} name and {@code @NotBlank} attribute keys and values
+ */
+@Component
+public class ItemConstraints implements CompiledConstraints<Item> {
+
+	@Override
+	public Class<Item> getEntityType() {
+		return Item.class;
+	}
+
+	@Override
+	public boolean isValid(Item item) {
+		if (!isNotBlank(item.getName())) {
+			return false;
+		}
+		Map<String, String> attributes = item.getAttributes();
+		if (attributes == null) {
+			return true;
+		}
+		for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+			if (!isNotBlank(attribute.getKey()) || !isNotBlank(attribute.getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,43 @@
+package com.labregister.api.items.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes an {@link Item} from one of its versions, so a serialized item never mixes the name of one
+ * version with the attributes or the version number of another while it is updated concurrently
+ * <p>
+ * Items without a version, e.g. requests or items read from another instance, are written from their getters.
+ */
+public class ItemSerializer extends StdSerializer<Item> {
+
+	private static final long serialVersionUID = 1L;
+
+	public ItemSerializer() {
+		super(Item.class);
+	}
+
+	@Override
+	public void serialize(Item item, JsonGenerator generator, SerializerProvider provider) throws IOException {
+		ItemVersion version = item.getPublishedVersion();
+		generator.writeStartObject(item);
+		generator.writeStringField("id", item.getId());
+		if (version != null) {
+			generator.writeStringField("name", version.getName());
+			provider.defaultSerializeField("attributes", version.getAttributes(), generator);
+			provider.defaultSerializeField("creationDate", item.getCreationDate(), generator);
+			provider.defaultSerializeField("lastUpdateDate", version.getVersionDate(), generator);
+			generator.writeNumberField("versionNumber", version.getVersionNumber());
+		} else {
+			generator.writeStringField("name", item.getName());
+			provider.defaultSerializeField("attributes", item.getAttributes(), generator);
+			provider.defaultSerializeField("creationDate", item.getCreationDate(), generator);
+			provider.defaultSerializeField("lastUpdateDate", item.getLastUpdateDate(), generator);
+			generator.writeNumberField("versionNumber", item.getVersionNumber());
+		}
+		generator.writeEndObject();
+	}
+}
@@ -1,24 +1,67 @@
 package com.labregister.api.items.domain;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.labregister.api.core.collection.PersistentHashMap;
+
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
 
+/**
+ * Immutable snapshot of an {@link Item} at one point of its history
+ * <p>
+ * Attributes are held in a {@link PersistentHashMap} derived from the previous version, so
+ * a version only costs the entries that changed and the attribute map can be handed out
+ * to readers without copying.
+ */
 public class ItemVersion {
 
     private final int versionNumber;
 
     private final String name;
 
-    private final Map<String, String> attributes;
+    private final PersistentHashMap<String, String> attributes;
+
+    private final long versionDate;
+
+    /**
+     * @param previous the version preceding this one, whose attributes are shared where unchanged
+     * @param strings  applied to the name and the added or changed attribute keys and values, e.g. to intern them
+     */
+    public ItemVersion(int versionNumber, String name, Map<String, String> attributes, Date versionDate,
+                       ItemVersion previous, UnaryOperator<String> strings) {
+        PersistentHashMap<String, String> base = previous != null ? previous.attributes : PersistentHashMap.empty();
 
-    private final Date versionDate;
+        this.versionNumber = versionNumber;
+        this.name = previous != null && Objects.equals(previous.name, name) ? previous.name : strings.apply(name);
+        this.attributes = base.withContentOf(attributes, strings, strings);
+        this.versionDate = versionDate.getTime();
+    }
+
+    /**
+     * Restores a version read back from an archive
+     */
+    public ItemVersion(int versionNumber, String name, PersistentHashMap<String, String> attributes, long versionDate) {
+        this.versionNumber = versionNumber;
+        this.name = name;
+        this.attributes = attributes;
+        this.versionDate = versionDate;
+    }
 
-    public ItemVersion(Item item) {
-        this.versionNumber = item.getVersionNumber();
-        this.name = item.getName();
-        this.attributes = new HashMap<>(item.getAttributes());
-        this.versionDate = (Date) (item.getLastUpdateDate().clone());
+    /**
+     * Restores a version read from another instance
+     */
+    @JsonCreator
+    public static ItemVersion fromJson(@JsonProperty("versionNumber") int versionNumber,
+                                       @JsonProperty("name") String name,
+                                       @JsonProperty("attributes") Map<String, String> attributes,
+                                       @JsonProperty("versionDate") Date versionDate) {
+        PersistentHashMap<String, String> restored = attributes != null
+                ? PersistentHashMap.copyOf(attributes)
+                : PersistentHashMap.empty();
+        return new ItemVersion(versionNumber, name, restored, versionDate.getTime());
     }
 
     public int getVersionNumber() {
@@ -29,12 +72,15 @@ public class ItemVersion {
         return name;
     }
 
+    /**
+     * @return immutable attribute map of this version
+     */
     public Map<String, String> getAttributes() {
-        return new HashMap<>(attributes);
+        return attributes;
     }
 
     public Date getVersionDate() {
-        return (Date) versionDate.clone();
+        return new Date(versionDate);
     }
 
 }
@@ -0,0 +1,147 @@
+package com.labregister.api.items.replication;
+
+import com.labregister.api.core.exception.ReadOnlyException;
+import com.labregister.api.core.operation.Operation;
+import com.labregister.api.core.pagination.Page;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.service.ItemService;
+import com.labregister.api.items.service.ItemServiceImpl;
+import com.labregister.api.items.store.ItemChange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Item service of a replication follower: reads are served from the local replica of the leader's
+ * items, all writes are rejected with {@link ReadOnlyException}
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "labregister.replication", name = "leader")
+public class FollowerItemService implements ItemService {
+
+	private final ItemServiceImpl items;
+
+	private final String messageReadOnly;
+
+	public FollowerItemService(ItemServiceImpl items, ReplicationFollower follower) {
+		this.items = items;
+		this.messageReadOnly = "Read-only follower, send writes to the leader " + follower.getLeader();
+	}
+
+	@Override
+	public Item createItem(Item item) {
+		throw new ReadOnlyException(messageReadOnly);
+	}
+
+	@Override
+	public Item updateItem(String id, Item item) {
+		throw new ReadOnlyException(messageReadOnly);
+	}
+
+	@Override
+	public Operation createItemAsync(Item item) {
+		throw new ReadOnlyException(messageReadOnly);
+	}
+
+	@Override
+	public Operation updateItemAsync(String id, Item item) {
+		throw new ReadOnlyException(messageReadOnly);
+	}
+
+	@Override
+	public List<Item> createItems(List<Item> items) {
+		throw new ReadOnlyException(messageReadOnly);
+	}
+
+	@Override
+	public List<Item> updateItems(List<Item> items) {
+		throw new ReadOnlyException(messageReadOnly);
+	}
+
+	@Override
+	public void deleteAllItems() {
+		throw new ReadOnlyException(messageReadOnly);
+	}
+
+	@Override
+	public void applyChanges(List<ItemChange> changes) {
+		throw new ReadOnlyException(messageReadOnly);
+	}
+
+	@Override
+	public List<Item> getItems() {
+		return items.getItems();
+	}
+
+	@Override
+	public Item getItem(String itemId) {
+		return items.getItem(itemId);
+	}
+
+	@Override
+	public Iterable<Item> streamItems(Map<String, String> attributes) {
+		return items.streamItems(attributes);
+	}
+
+	@Override
+	public Iterable<ItemVersion> streamItemVersions(String itemId) {
+		return items.streamItemVersions(itemId);
+	}
+
+	@Override
+	public String getItemsTag() {
+		return items.getItemsTag();
+	}
+
+	@Override
+	public int getItemVersionNumber(String itemId) {
+		return items.getItemVersionNumber(itemId);
+	}
+
+	@Override
+	public Page<Item> getItems(String cursor, int limit) {
+		return items.getItems(cursor, limit);
+	}
+
+	@Override
+	public List<Item> findItems(Map<String, String> attributes) {
+		return items.findItems(attributes);
+	}
+
+	@Override
+	public Page<Item> findItems(Map<String, String> attributes, String cursor, int limit) {
+		return items.findItems(attributes, cursor, limit);
+	}
+
+	@Override
+	public Page<Item> findItemsAsOf(Date asOf, Map<String, String> attributes, String cursor, int limit) {
+		return items.findItemsAsOf(asOf, attributes, cursor, limit);
+	}
+
+	@Override
+	public Item getItemAsOf(String itemId, Date asOf) {
+		return items.getItemAsOf(itemId, asOf);
+	}
+
+	@Override
+	public List<Item> searchItems(String query, int limit) {
+		return items.searchItems(query, limit);
+	}
+
+	@Override
+	public List<ItemVersion> getItemVersions(String itemId) {
+		return items.getItemVersions(itemId);
+	}
+
+	@Override
+	public Page<ItemVersion> getItemVersions(String itemId, Integer fromVersion, Integer toVersion, Date since,
+	                                         String cursor, int limit) {
+		return items.getItemVersions(itemId, fromVersion, toVersion, since, cursor, limit);
+	}
+}
@@ -0,0 +1,84 @@
+package com.labregister.api.items.replication;
+
+import com.google.common.base.Preconditions;
+import com.labregister.api.items.service.ItemChangeFeed;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.persistence.ItemSnapshot;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RestController
+public class ReplicationController {
+
+	static final String PATH_SNAPSHOT = "/replication/snapshot";
+
+	// sequence number of the latest change of the feed which the snapshot contains
+	static final String HEADER_SEQUENCE = "X-Change-Sequence";
+
+	private final ItemStore store;
+
+	private final ItemChangeFeed changeFeed;
+
+	private final ReplicationFollower follower;
+
+	public ReplicationController(ItemStore store, ItemChangeFeed changeFeed,
+	                             ObjectProvider<ReplicationFollower> follower) {
+		Preconditions.checkArgument(store != null);
+		Preconditions.checkArgument(changeFeed != null);
+		this.store = store;
+		this.changeFeed = changeFeed;
+		this.follower = follower.getIfAvailable();
+	}
+
+	/**
+	 * Returns the replication state of this instance, with the replication lag of a follower
+	 */
+	@GetMapping(value = "/replication")
+	@ResponseBody
+	public ReplicationStatus getStatus() {
+		return follower != null
+				? follower.getStatus()
+				: ReplicationStatus.leader(changeFeed.getLastSequence(), changeFeed.getSubscriberCount());
+	}
+
+	/**
+	 * Streams a binary {@link ItemSnapshot} of all items for a follower to start from; the
+	 * {@code X-Change-Sequence} header holds the sequence number of the change feed to follow it from
+	 * <p>
+	 * The snapshot is taken while writes continue and may contain changes after that sequence number.
+	 */
+	@GetMapping(value = PATH_SNAPSHOT, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public ResponseEntity<StreamingResponseBody> getSnapshot() throws IOException {
+		// all changes up to the sequence number are applied to the store before the snapshot starts
+		long sequence = changeFeed.getLastSequence();
+		Path directory = Files.createTempDirectory("item-replication");
+		Path file;
+		try {
+			file = ItemSnapshot.write(directory, store, 0);
+		} catch (IOException e) {
+			FileSystemUtils.deleteRecursively(directory);
+			throw e;
+		}
+		return ResponseEntity.ok()
+		                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
+		                     .contentLength(Files.size(file))
+		                     .header(HEADER_SEQUENCE, Long.toString(sequence))
+		                     .body(out -> {
+			                     try {
+				                     Files.copy(file, out);
+			                     } finally {
+				                     FileSystemUtils.deleteRecursively(directory);
+			                     }
+		                     });
+	}
+}
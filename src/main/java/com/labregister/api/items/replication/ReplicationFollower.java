@@ -0,0 +1,313 @@
+package com.labregister.api.items.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.service.ItemChangeFeed;
+import com.labregister.api.items.store.ItemChange;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.persistence.ItemSnapshot;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the local {@link ItemStore} a read-only replica of the leader in {@code labregister.replication.leader}
+ * <p>
+ * The follower loads a snapshot of the leader's store, which comes with the sequence number of the
+ * leader's latest change at the time it was started, and then follows the leader's
+ * {@link ItemChangeFeed} from that sequence number on, applying every change in order. The snapshot
+ * may already contain some of the following changes; applying those again is a no-op, see
+ * {@link ItemStore#apply(ItemChange)}. After a disconnect the follower resumes from the latest change it
+ * applied, and when the leader no longer has that change (it was restarted, or the follower fell behind
+ * its buffer) it loads a new snapshot.
+ * <p>
+ * A snapshot is loaded into a separate store first and then applied to the local store as the
+ * item changes that turn one into the other, so reads continue on the previous items meanwhile and
+ * the local change log and feed only receive these differences. Only an item whose history differs
+ * from the leader's, e.g. after the leader lost changes, is briefly missing while it is replaced.
+ */
+@Component
+@ConditionalOnProperty(prefix = "labregister.replication", name = "leader")
+public class ReplicationFollower implements MeterBinder {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ReplicationFollower.class);
+
+	private static final String HEADER_LAST_EVENT_ID = "Last-Event-ID";
+
+	private static final MediaType APPLICATION_SNAPSHOT = MediaType.APPLICATION_OCTET_STREAM;
+
+	// sequence number before the first snapshot is loaded, and after the leader reset the feed
+	private static final long NO_SEQUENCE = 0;
+
+	private final ItemStore store;
+
+	private final ObjectMapper objectMapper;
+
+	private final RestTemplate restTemplate;
+
+	private final String leader;
+
+	private final long reconnectDelay;
+
+	private volatile boolean running;
+
+	private Thread follower;
+
+	// the response being read, closed to stop the follower
+	private volatile ClientHttpResponse response;
+
+	private volatile long sequence = NO_SEQUENCE;
+
+	private volatile boolean connected;
+
+	private volatile long lagMillis;
+
+	private volatile long lastChangeTime;
+
+	private volatile long lastContactTime;
+
+	private final AtomicLong appliedChanges = new AtomicLong();
+
+	public ReplicationFollower(ItemStore store, ObjectMapper objectMapper, ReplicationProperties properties,
+	                           RestTemplateBuilder restTemplateBuilder) {
+		this.store = store;
+		this.objectMapper = objectMapper;
+		this.leader = properties.getLeader();
+		this.reconnectDelay = properties.getReconnectDelay().toMillis();
+		this.restTemplate = restTemplateBuilder.setConnectTimeout(properties.getReadTimeout())
+		                                       .setReadTimeout(properties.getReadTimeout())
+		                                       .build();
+	}
+
+	@PostConstruct
+	public void start() {
+		running = true;
+		follower = new Thread(this::run, "replication-follower");
+		follower.setDaemon(true);
+		follower.start();
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		close(response);
+		follower.interrupt();
+		follower.join(1000);
+	}
+
+	public String getLeader() {
+		return leader;
+	}
+
+	public ReplicationStatus getStatus() {
+		return ReplicationStatus.follower(leader, sequence, connected, lagMillis,
+		                                  lastChangeTime > 0 ? new Date(lastChangeTime) : null,
+		                                  lastContactTime > 0 ? new Date(lastContactTime) : null);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("labregister.replication.lag", this, replication -> replication.lagMillis)
+		     .description("Time from a change on the leader until this follower applied it, for the latest change")
+		     .baseUnit("milliseconds")
+		     .register(registry);
+		Gauge.builder("labregister.replication.connected", this, replication -> replication.connected ? 1 : 0)
+		     .description("Whether this follower is receiving the leader's changes")
+		     .register(registry);
+		FunctionCounter.builder("labregister.replication.changes.applied", appliedChanges, AtomicLong::get)
+		               .description("Changes of the leader applied by this follower")
+		               .register(registry);
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				if (sequence == NO_SEQUENCE) {
+					sequence = loadSnapshot();
+				}
+				follow();
+			} catch (RuntimeException | IOException e) {
+				if (running) {
+					LOG.warn("Replication from {} interrupted, reconnecting: {}", leader, e.getMessage());
+				}
+			} finally {
+				connected = false;
+			}
+			try {
+				Thread.sleep(reconnectDelay);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	// replaces the items by a snapshot of the leader's store, returns the sequence number it starts from
+	private long loadSnapshot() throws IOException {
+		Path file = Files.createTempFile("item-replication", ".snap");
+		try {
+			long started = System.nanoTime();
+			long snapshotSequence = restTemplate.execute(
+					leader + ReplicationController.PATH_SNAPSHOT, HttpMethod.GET,
+					request -> request.getHeaders().setAccept(Collections.singletonList(APPLICATION_SNAPSHOT)),
+					response -> {
+						Files.copy(response.getBody(), file, StandardCopyOption.REPLACE_EXISTING);
+						return Long.parseLong(response.getHeaders().getFirst(ReplicationController.HEADER_SEQUENCE));
+					});
+			ItemStore loaded = new ItemStore();
+			ItemSnapshot.read(file, loaded);
+			int changedItems = replaceItems(loaded);
+			LOG.info("Loaded {} items from a snapshot of {} at change {}, {} of them changed, in {} ms", loaded.size(),
+			         leader, snapshotSequence, changedItems, (System.nanoTime() - started) / 1_000_000);
+			return snapshotSequence;
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	// applies the changes turning the local items into the loaded ones, returns the number of items changed
+	private int replaceItems(ItemStore loaded) {
+		long now = System.currentTimeMillis();
+		int changedItems = 0;
+		for (Item item : store.values()) {
+			Optional<Item> replacement = loaded.get(item.getId());
+			if (!replacement.isPresent() || !isContinuedBy(item, replacement.get())) {
+				store.apply(ItemChange.deleted(item.getId(), now));
+				changedItems++;
+			}
+		}
+		// oldest first, so that the local store keeps the creation order
+		for (Item item : loaded.valuesOldestFirst()) {
+			int versionNumber = store.get(item.getId()).map(Item::getVersionNumber).orElse(0);
+			if (item.getVersionNumber() > versionNumber) {
+				List<ItemVersion> missing = item.getVersions(versionNumber + 1, Integer.MAX_VALUE, Integer.MAX_VALUE);
+				for (ItemVersion version : Lists.reverse(missing)) {
+					store.apply(ItemChange.of(item.getId(), version));
+				}
+				changedItems++;
+			}
+		}
+		return changedItems;
+	}
+
+	// whether the replacement has the item's current version, so the item only lacks the later ones
+	private static boolean isContinuedBy(Item item, Item replacement) {
+		ItemVersion current = item.getCurrentVersion();
+		int versionNumber = current.getVersionNumber();
+		List<ItemVersion> versions = replacement.getVersions(versionNumber, versionNumber, 1);
+		if (versions.isEmpty()) {
+			return false;
+		}
+		ItemVersion version = versions.get(0);
+		return version.getVersionDate().equals(current.getVersionDate())
+				&& version.getName().equals(current.getName())
+				&& version.getAttributes().equals(current.getAttributes());
+	}
+
+	// applies the leader's changes after the current sequence number until the feed ends or is reset
+	private void follow() {
+		restTemplate.execute(leader + "/items/changes", HttpMethod.GET, request -> {
+			request.getHeaders().setAccept(Collections.singletonList(MediaType.TEXT_EVENT_STREAM));
+			request.getHeaders().set(HEADER_LAST_EVENT_ID, Long.toString(sequence));
+		}, response -> {
+			this.response = response;
+			try {
+				readEvents(response);
+			} finally {
+				this.response = null;
+			}
+			return null;
+		});
+	}
+
+	/*
+	 * Reads the Server-Sent Events written by ItemChangeFeed: fields "id", "event" and one "data"
+	 * line each, a blank line ending the event; comments (heartbeats) start with a colon.
+	 */
+	private void readEvents(ClientHttpResponse response) throws IOException {
+		connected = true;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+		String id = null;
+		String event = null;
+		String data = null;
+		String line;
+		while (running && (line = reader.readLine()) != null) {
+			lastContactTime = System.currentTimeMillis();
+			if (!line.isEmpty()) {
+				int colon = line.indexOf(':');
+				String field = colon >= 0 ? line.substring(0, colon) : line;
+				String value = colon >= 0 ? line.substring(colon + 1) : "";
+				if (value.startsWith(" ")) {
+					value = value.substring(1);
+				}
+				switch (field) {
+					case "id":
+						id = value;
+						break;
+					case "event":
+						event = value;
+						break;
+					case "data":
+						data = data == null ? value : data + "\n" + value;
+						break;
+					default:
+						// a comment
+				}
+				continue;
+			}
+
+			if (ItemChangeFeed.EVENT_RESET.equals(event)) {
+				LOG.info("Changes after {} are no longer available on {}, reloading", sequence, leader);
+				sequence = NO_SEQUENCE;
+				return;
+			}
+			if (id != null && data != null) {
+				apply(Long.parseLong(id), objectMapper.readValue(data, ItemChange.class));
+			}
+			id = null;
+			event = null;
+			data = null;
+		}
+	}
+
+	private void apply(long changeSequence, ItemChange change) {
+		store.apply(change);
+		sequence = changeSequence;
+		long now = System.currentTimeMillis();
+		lagMillis = Math.max(0, now - change.getTimestamp());
+		lastChangeTime = change.getTimestamp();
+		appliedChanges.incrementAndGet();
+	}
+
+	private static void close(ClientHttpResponse response) {
+		if (response != null) {
+			response.close();
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.labregister.api.items.replication;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration of leader/follower replication, bound from the {@code labregister.replication.*} properties
+ */
+@Component
+@ConfigurationProperties(prefix = "labregister.replication")
+public class ReplicationProperties {
+
+	/**
+	 * Base URL of the leader, e.g. {@code http://localhost:8080}; if set, this instance is a read-only
+	 * follower replicating the leader's items, see {@link ReplicationFollower}
+	 */
+	private String leader;
+
+	/**
+	 * Maximum time without any data from the leader, a multiple of the change feed's heartbeat interval
+	 */
+	private Duration readTimeout = Duration.ofSeconds(60);
+
+	/**
+	 * Time to wait before reconnecting to the leader after a failure
+	 */
+	private Duration reconnectDelay = Duration.ofSeconds(1);
+
+	public String getLeader() {
+		return leader;
+	}
+
+	public void setLeader(String leader) {
+		this.leader = leader;
+	}
+
+	public Duration getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(Duration readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	public Duration getReconnectDelay() {
+		return reconnectDelay;
+	}
+
+	public void setReconnectDelay(Duration reconnectDelay) {
+		this.reconnectDelay = reconnectDelay;
+	}
+}
@@ -0,0 +1,108 @@
+package com.labregister.api.items.replication;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Date;
+
+/**
+ * Replication state of an instance, see {@link ReplicationController#getStatus()}
+ * <p>
+ * A leader reports the sequence number of its latest change and its change feed subscribers; a
+ * follower reports the sequence number of the latest change it applied and how far it is behind.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReplicationStatus {
+
+	public enum Role {
+		LEADER, FOLLOWER
+	}
+
+	private final Role role;
+
+	private final long sequence;
+
+	private String leader;
+
+	private Integer subscribers;
+
+	private Boolean connected;
+
+	private Long lagMillis;
+
+	private Date lastChangeDate;
+
+	private Date lastContactDate;
+
+	private ReplicationStatus(Role role, long sequence) {
+		this.role = role;
+		this.sequence = sequence;
+	}
+
+	static ReplicationStatus leader(long sequence, int subscribers) {
+		ReplicationStatus status = new ReplicationStatus(Role.LEADER, sequence);
+		status.subscribers = subscribers;
+		return status;
+	}
+
+	static ReplicationStatus follower(String leader, long sequence, boolean connected, long lagMillis,
+	                                  Date lastChangeDate, Date lastContactDate) {
+		ReplicationStatus status = new ReplicationStatus(Role.FOLLOWER, sequence);
+		status.leader = leader;
+		status.connected = connected;
+		status.lagMillis = lagMillis;
+		status.lastChangeDate = lastChangeDate;
+		status.lastContactDate = lastContactDate;
+		return status;
+	}
+
+	public Role getRole() {
+		return role;
+	}
+
+	/**
+	 * @return sequence number of the leader's latest change, or of the latest change applied by the
+	 * follower; 0 before a follower loaded its first snapshot
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	public String getLeader() {
+		return leader;
+	}
+
+	/**
+	 * @return number of clients following the leader's change feed, including followers
+	 */
+	public Integer getSubscribers() {
+		return subscribers;
+	}
+
+	/**
+	 * @return whether the follower is receiving the leader's change feed
+	 */
+	public Boolean getConnected() {
+		return connected;
+	}
+
+	/**
+	 * @return time from a change on the leader until the follower applied it, for the latest change
+	 */
+	public Long getLagMillis() {
+		return lagMillis;
+	}
+
+	/**
+	 * @return time of the latest change applied by the follower, as recorded on the leader
+	 */
+	public Date getLastChangeDate() {
+		return lastChangeDate;
+	}
+
+	/**
+	 * @return when the follower last received anything from the leader, changes or heartbeats
+	 */
+	public Date getLastContactDate() {
+		return lastContactDate;
+	}
+}
@@ -0,0 +1,396 @@
+package com.labregister.api.items.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.labregister.api.items.store.ItemChange;
+import com.labregister.api.items.store.ItemChangeListener;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.ItemStoreProperties;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Server-Sent Events feed of all changes applied to the {@link ItemStore}
+ * <p>
+ * Every change takes the next sequence number from an atomic counter and is published without locking
+ * into its slot of a ring buffer of the latest {@code labregister.store.change-feed-capacity} changes,
+ * so writers of the store never wait for each other here. Each subscriber only holds the sequence
+ * number of the next change to send it: a dispatcher thread wakes the subscribers on new changes,
+ * and a small pool of sender threads copies the changes they miss from the buffer into their
+ * response.
+ * <p>
+ * Responses are written with non-blocking IO: a sender writes a subscriber's events only while its
+ * connection is ready to take them, and otherwise leaves it until the container reports the
+ * connection writable again. Idle and stalled subscribers hold no thread, so a slow subscriber only
+ * delays itself; one that stays unwritable for {@value #WRITE_DEADLINE_SECONDS} seconds is disconnected
+ * and resumes with {@code Last-Event-ID} once it reconnects.
+ * <p>
+ * Events are named {@code create}, {@code update}, {@code delete} and {@code delete-all}, carry the {@link ItemChange}
+ * as JSON data and its sequence number as id, so clients resume with {@code Last-Event-ID}. A
+ * subscriber whose next change is no longer buffered receives a {@code reset} event instead and
+ * has to reload the items. Sequence numbers start at the startup time in microseconds, so an id of
+ * a previous run is never taken for one of the current run.
+ */
+@Component
+public class ItemChangeFeed implements ItemChangeListener {
+
+	public static final String EVENT_RESET = "reset";
+
+	private static final long SUBSCRIPTION_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+
+	private static final long HEARTBEAT_INTERVAL_SECONDS = 15;
+
+	private static final long WRITE_DEADLINE_SECONDS = 30;
+
+	private static final int SENDER_THREADS = 4;
+
+	// changes written at once, bounds the response data a subscriber buffers beyond its connection
+	private static final int MAX_CHANGES_PER_WRITE = 256;
+
+	private static final byte[] HEARTBEAT = ":heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+
+	private final ItemStore store;
+
+	private final ObjectMapper objectMapper;
+
+	private final AtomicReferenceArray<Slot> buffer;
+
+	private final long initialSequence = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+	// sequence number of the latest change, which may not be published to its slot yet
+	private final AtomicLong lastSequence = new AtomicLong(initialSequence);
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+	private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+	private ScheduledExecutorService dispatcher;
+
+	private ExecutorService senders;
+
+	public ItemChangeFeed(ItemStore store, ObjectMapper objectMapper, ItemStoreProperties properties) {
+		this.store = store;
+		this.objectMapper = objectMapper;
+		this.buffer = new AtomicReferenceArray<>(properties.getChangeFeedCapacity());
+	}
+
+	@PostConstruct
+	public void start() {
+		dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "item-change-dispatcher"));
+		senders = Executors.newFixedThreadPool(SENDER_THREADS, runnable -> daemon(runnable, "item-change-sender"));
+		dispatcher.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_INTERVAL_SECONDS, HEARTBEAT_INTERVAL_SECONDS,
+		                                  TimeUnit.SECONDS);
+		store.addChangeListener(this);
+	}
+
+	@PreDestroy
+	public void stop() {
+		store.removeChangeListener(this);
+		dispatcher.shutdownNow();
+		senders.shutdownNow();
+		subscribers.forEach(Subscriber::close);
+	}
+
+	/**
+	 * Subscribes the request to all changes after the given one, the response is written asynchronously
+	 *
+	 * @param lastEventId sequence number of the last change the client received, or {@code null} to only
+	 *                    receive changes from now on
+	 */
+	public void subscribe(Long lastEventId, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		AsyncContext context = request.startAsync(request, response);
+		context.setTimeout(SUBSCRIPTION_TIMEOUT);
+
+		long next = lastEventId != null ? lastEventId + 1 : lastSequence.get() + 1;
+		Subscriber subscriber = new Subscriber(context, response.getOutputStream(), next);
+		context.addListener(subscriber);
+		subscribers.add(subscriber);
+
+		try {
+			// the container calls onWritePossible once the response can be written
+			subscriber.output.setWriteListener(subscriber);
+		} catch (UnsupportedOperationException e) {
+			// a blocking output stream, which is always ready
+			subscriber.schedule();
+		}
+	}
+
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	/**
+	 * @return sequence number of the latest change; all changes up to it are applied to the store
+	 */
+	public long getLastSequence() {
+		return lastSequence.get();
+	}
+
+	@Override
+	public void onChange(ItemChange change) {
+		long sequence = lastSequence.incrementAndGet();
+		Slot slot = new Slot(sequence, change);
+		int index = index(sequence);
+		// never replaces a newer change, in case a writer a whole buffer ahead published first
+		Slot current;
+		do {
+			current = buffer.get(index);
+		} while ((current == null || current.sequence < sequence) && !buffer.compareAndSet(index, current, slot));
+
+		if (dispatchScheduled.compareAndSet(false, true)) {
+			execute(dispatcher, this::dispatch);
+		}
+	}
+
+	private void dispatch() {
+		// changes arriving from now on schedule another dispatch
+		dispatchScheduled.set(false);
+		subscribers.forEach(Subscriber::schedule);
+	}
+
+	private void heartbeat() {
+		long stalledSince = System.nanoTime() - TimeUnit.SECONDS.toNanos(WRITE_DEADLINE_SECONDS);
+		subscribers.forEach(subscriber -> {
+			if (subscriber.isStalledSince(stalledSince)) {
+				subscriber.close();
+			} else {
+				subscriber.heartbeatDue = true;
+				subscriber.schedule();
+			}
+		});
+	}
+
+	private int index(long sequence) {
+		return (int) (sequence % buffer.length());
+	}
+
+	private static boolean execute(ExecutorService executor, Runnable task) {
+		try {
+			executor.execute(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			// shut down
+			return false;
+		}
+	}
+
+	private static Thread daemon(Runnable runnable, String name) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	private static String eventName(ItemChange.Type type) {
+		switch (type) {
+			case CREATE:
+				return "create";
+			case UPDATE:
+				return "update";
+			case DELETE:
+				return "delete";
+			default:
+				return "delete-all";
+		}
+	}
+
+	private static final class Slot {
+
+		private final long sequence;
+
+		private final ItemChange change;
+
+		Slot(long sequence, ItemChange change) {
+			this.sequence = sequence;
+			this.change = change;
+		}
+	}
+
+	private final class Subscriber implements WriteListener, AsyncListener {
+
+		private final AsyncContext context;
+
+		private final ServletOutputStream output;
+
+		private final AtomicBoolean sending = new AtomicBoolean();
+
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		// only accessed by the sender holding the sending flag
+		private long next;
+
+		private volatile boolean heartbeatDue;
+
+		// set before the output is asked whether it is ready, cleared once the container reports it writable
+		private volatile boolean awaitingWrite;
+
+		// System.nanoTime() when the output was first found not ready, 0 while it is
+		private volatile long stalledSince;
+
+		Subscriber(AsyncContext context, ServletOutputStream output, long next) {
+			this.context = context;
+			this.output = output;
+			this.next = next;
+		}
+
+		void schedule() {
+			if (sending.compareAndSet(false, true) && !execute(senders, this::send)) {
+				sending.set(false);
+			}
+		}
+
+		boolean isStalledSince(long time) {
+			long since = stalledSince;
+			return awaitingWrite && since != 0 && since - time < 0;
+		}
+
+		void close() {
+			subscribers.remove(this);
+			if (closed.compareAndSet(false, true)) {
+				try {
+					context.complete();
+				} catch (IllegalStateException e) {
+					// already completed by the container
+				}
+			}
+		}
+
+		@Override
+		public void onWritePossible() {
+			awaitingWrite = false;
+			stalledSince = 0;
+			schedule();
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			close();
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			closed.set(true);
+			subscribers.remove(this);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			// the client reconnects with the id of the last event it received
+			close();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			close();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+
+		private void send() {
+			try {
+				while (!closed.get()) {
+					awaitingWrite = true;
+					if (!output.isReady()) {
+						if (stalledSince == 0) {
+							stalledSince = System.nanoTime();
+						}
+						break;
+					}
+					awaitingWrite = false;
+					stalledSince = 0;
+
+					byte[] events = readEvents();
+					if (events.length == 0) {
+						break;
+					}
+					output.write(events);
+					output.flush();
+				}
+			} catch (IOException | IllegalStateException e) {
+				// disconnected or completed
+				close();
+				return;
+			} finally {
+				sending.set(false);
+			}
+
+			// a change added after the last read may have found this subscriber still sending
+			if (hasPending()) {
+				schedule();
+			}
+		}
+
+		// the due heartbeat and the events of the next published changes, or of a reset
+		private byte[] readEvents() throws IOException {
+			ByteArrayOutputStream events = new ByteArrayOutputStream();
+			if (heartbeatDue) {
+				heartbeatDue = false;
+				events.write(HEARTBEAT);
+			}
+
+			long last = lastSequence.get();
+			long oldest = Math.max(initialSequence + 1, last - buffer.length() + 1);
+			boolean reset = next > last + 1 || next < oldest;
+			for (int count = 0; !reset && next <= last && count < MAX_CHANGES_PER_WRITE; count++) {
+				Slot slot = buffer.get(index(next));
+				if (slot == null || slot.sequence < next) {
+					// not published yet, its writer dispatches once it is
+					break;
+				}
+				if (slot.sequence > next) {
+					reset = true;
+					break;
+				}
+				writeEvent(events, next, eventName(slot.change.getType()), objectMapper.writeValueAsString(slot.change));
+				next++;
+			}
+			if (reset) {
+				writeEvent(events, last, EVENT_RESET, "");
+				next = last + 1;
+			}
+			return events.toByteArray();
+		}
+
+		private void writeEvent(ByteArrayOutputStream events, long id, String name, String data) throws IOException {
+			events.write(("id:" + id + "\nevent:" + name + "\ndata:" + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+		}
+
+		private boolean hasPending() {
+			if (closed.get() || awaitingWrite) {
+				return false;
+			}
+			if (heartbeatDue || next > lastSequence.get() + 1) {
+				return true;
+			}
+			// published, or already overwritten
+			Slot slot = buffer.get(index(next));
+			return slot != null && slot.sequence >= next;
+		}
+	}
+}
@@ -1,19 +1,125 @@
 package com.labregister.api.items.service;
 
+import com.labregister.api.core.operation.Operation;
+import com.labregister.api.core.pagination.Page;
 import com.labregister.api.items.domain.Item;
 import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemChange;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 public interface ItemService {
 
+	int DEFAULT_PAGE_SIZE = 50;
+
+	int MAX_PAGE_SIZE = 1000;
+
+	int DEFAULT_SEARCH_LIMIT = 20;
+
+	int MAX_BATCH_SIZE = 10_000;
+
+	String RESOURCE_ITEM = "/items/{id}";
+
 	Item createItem(Item item);
 
 	Item updateItem(String id, Item item);
 
+	/**
+	 * Validates the item and queues its creation, see {@link ItemWritePipeline}
+	 *
+	 * @return the pending operation, pointing to the location the item will be created at
+	 */
+	Operation createItemAsync(Item item);
+
+	/**
+	 * Validates the update and queues it like {@link #createItemAsync}
+	 */
+	Operation updateItemAsync(String id, Item item);
+
+	/**
+	 * Validates all items in one pass and creates them as one batch, newest last
+	 */
+	List<Item> createItems(List<Item> items);
+
+	/**
+	 * Validates all items in one pass and applies the updates as one batch; each item carries the id of
+	 * the item to update
+	 */
+	List<Item> updateItems(List<Item> items);
+
 	List<Item> getItems();
 
+	Item getItem(String itemId);
+
+	/**
+	 * @return lazily iterated view of the items having all given attributes, newest first
+	 */
+	Iterable<Item> streamItems(Map<String, String> attributes);
+
+	/**
+	 * @return lazily iterated view of all versions of the item, newest first
+	 */
+	Iterable<ItemVersion> streamItemVersions(String itemId);
+
+	/**
+	 * @return tag which changes whenever any item changes, see {@link com.labregister.api.items.store.ItemStore#getModificationTag()}
+	 */
+	String getItemsTag();
+
+	int getItemVersionNumber(String itemId);
+
+	Page<Item> getItems(String cursor, int limit);
+
+	/**
+	 * @param attributes required attribute values (AND); an empty value requires the key with any value
+	 */
+	List<Item> findItems(Map<String, String> attributes);
+
+	Page<Item> findItems(Map<String, String> attributes, String cursor, int limit);
+
+	/**
+	 * Returns one page of the items as they were at {@code asOf}, with the attributes they had then
+	 * matching the given ones, newest first
+	 */
+	Page<Item> findItemsAsOf(Date asOf, Map<String, String> attributes, String cursor, int limit);
+
+	/**
+	 * @return the item as it was at {@code asOf}, reconstructed from its versions
+	 * @throws com.labregister.api.core.exception.ResourceNotFoundException if the item did not exist at that time
+	 */
+	Item getItemAsOf(String itemId, Date asOf);
+
+	/**
+	 * Returns up to {@code limit} items whose name or an attribute value contains the query, ignoring
+	 * case; items named like the query come first, see {@link com.labregister.api.items.store.ItemStore#search}
+	 *
+	 * @param query at least three characters
+	 */
+	List<Item> searchItems(String query, int limit);
+
 	List<ItemVersion> getItemVersions(String itemId);
 
+	/**
+	 * Returns up to {@code limit} versions of the item, newest first
+	 *
+	 * @param fromVersion oldest version number to include, or {@code null}
+	 * @param toVersion   newest version number to include, or {@code null}
+	 * @param since       oldest version date to include, or {@code null}
+	 * @param cursor      cursor of a previous page, or {@code null}
+	 */
+	Page<ItemVersion> getItemVersions(String itemId, Integer fromVersion, Integer toVersion, Date since,
+	                                  String cursor, int limit);
+
 	void deleteAllItems();
+
+	/**
+	 * Applies changes replicated from another instance in order, skipping those already applied, see
+	 * {@link com.labregister.api.items.store.ItemStore#applyAll}
+	 *
+	 * @throws com.labregister.api.core.exception.EntityValidationException if the name or attributes of a
+	 *                                                                       created or updated item are invalid
+	 */
+	void applyChanges(List<ItemChange> changes);
 }
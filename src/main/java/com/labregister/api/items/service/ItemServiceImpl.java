@@ -1,24 +1,50 @@
 package com.labregister.api.items.service;
 
+import com.labregister.api.core.exception.BadRequestException;
 import com.labregister.api.core.exception.ResourceNotFoundException;
+import com.labregister.api.core.operation.Operation;
+import com.labregister.api.core.operation.OperationRegistry;
+import com.labregister.api.core.pagination.Page;
 import com.labregister.api.core.validation.EntityValidator;
 import com.labregister.api.items.domain.Item;
 import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemChange;
+import com.labregister.api.items.store.ItemStore;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriTemplate;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public final class ItemServiceImpl implements ItemService {
 
-	private Map<String, Item> items;
+	private static final String MESSAGE_ITEM_NOT_FOUND = "ITEM NOT FOUND";
+
+	private static final String MESSAGE_INVALID_CURSOR = "Invalid cursor";
+
+	private static final String MESSAGE_INVALID_ATTRIBUTE_FILTER = "Attribute filter requires a key";
+
+	private static final String MESSAGE_INVALID_BATCH_SIZE = "batch must contain at most " + MAX_BATCH_SIZE + " items";
+
+	private static final String MESSAGE_INVALID_LIMIT = "limit must be between 1 and " + MAX_PAGE_SIZE;
+
+	private static final String MESSAGE_INVALID_QUERY = "q must have at least 3 characters";
+
+	private ItemStore items;
 
 	private EntityValidator entityValidator;
 
-	public ItemServiceImpl(EntityValidator entityValidator) {
+	private ItemWritePipeline writePipeline;
+
+	private OperationRegistry operations;
+
+	public ItemServiceImpl(EntityValidator entityValidator, ItemStore items, ItemWritePipeline writePipeline,
+	                       OperationRegistry operations) {
 		this.entityValidator = entityValidator;
-		this.items = new HashMap<>();
+		this.items = items;
+		this.writePipeline = writePipeline;
+		this.operations = operations;
 	}
 
 	@Override
@@ -26,12 +52,86 @@ public final class ItemServiceImpl implements ItemService {
 		entityValidator.validateCreate(request);
 		request.setId(UUID.randomUUID().toString());
 		request.setCreationDate(new Date());
-		return save(request);
+		return items.create(request);
+	}
+
+	@Override
+	public Operation createItemAsync(Item request) {
+		entityValidator.validateCreate(request);
+		request.setId(UUID.randomUUID().toString());
+		request.setCreationDate(new Date());
+
+		Operation operation = operations.create(new UriTemplate(RESOURCE_ITEM).expand(request.getId()));
+		writePipeline.submitCreate(request, operation);
+		return operations.register(operation);
+	}
+
+	@Override
+	public List<Item> createItems(List<Item> requests) {
+		validateBatchSize(requests);
+		entityValidator.validateCreateAll(requests);
+
+		// one creation date for the batch, the store keeps the items in list order
+		Date creationDate = new Date();
+		for (Item request : requests) {
+			request.setId(UUID.randomUUID().toString());
+			request.setCreationDate(creationDate);
+		}
+		return items.createAll(requests);
 	}
 
 	@Override
 	public List<Item> getItems() {
-		return this.items.values().stream().sorted().collect(Collectors.toList());
+		return new ArrayList<>(this.items.values());
+	}
+
+	@Override
+	public Page<Item> getItems(String cursor, int limit) {
+		return findItems(Collections.emptyMap(), cursor, limit);
+	}
+
+	@Override
+	public List<Item> findItems(Map<String, String> attributes) {
+		validateAttributeFilter(attributes);
+		return this.items.find(attributes, null, Integer.MAX_VALUE).getContent();
+	}
+
+	@Override
+	public Page<Item> findItems(Map<String, String> attributes, String cursor, int limit) {
+		validateAttributeFilter(attributes);
+		if (limit < 1 || limit > MAX_PAGE_SIZE) {
+			throw new BadRequestException(MESSAGE_INVALID_LIMIT);
+		}
+		try {
+			return this.items.find(attributes, cursor, limit);
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException(MESSAGE_INVALID_CURSOR);
+		}
+	}
+
+	@Override
+	public Page<Item> findItemsAsOf(Date asOf, Map<String, String> attributes, String cursor, int limit) {
+		validateAttributeFilter(attributes);
+		if (limit < 1 || limit > MAX_PAGE_SIZE) {
+			throw new BadRequestException(MESSAGE_INVALID_LIMIT);
+		}
+		try {
+			return this.items.findAsOf(asOf, attributes, cursor, limit);
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException(MESSAGE_INVALID_CURSOR);
+		}
+	}
+
+	@Override
+	public List<Item> searchItems(String query, int limit) {
+		if (limit < 1 || limit > MAX_PAGE_SIZE) {
+			throw new BadRequestException(MESSAGE_INVALID_LIMIT);
+		}
+		try {
+			return this.items.search(query, limit);
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException(MESSAGE_INVALID_QUERY);
+		}
 	}
 
 	@Override
@@ -39,19 +139,61 @@ public final class ItemServiceImpl implements ItemService {
 		this.items.clear();
 	}
 
+	@Override
+	public void applyChanges(List<ItemChange> changes) {
+		if (changes == null || changes.size() > MAX_BATCH_SIZE) {
+			throw new BadRequestException(MESSAGE_INVALID_BATCH_SIZE);
+		}
+		// the state of created and updated items is validated like that of requests
+		List<Item> states = new ArrayList<>();
+		for (ItemChange change : changes) {
+			if (change.getType() == ItemChange.Type.CREATE || change.getType() == ItemChange.Type.UPDATE) {
+				states.add(new Item(change.getName(), change.getAttributes()));
+			}
+		}
+		entityValidator.validateCreateAll(states);
+		this.items.applyAll(changes);
+	}
+
 	@Override
 	public Item updateItem(String id, Item request) {
 		entityValidator.validateUpdate(id, request);
-		Item previousItem = getItem(id);
-		if (isNewVersion(request)) {
-			previousItem.setName(request.getName());
-			previousItem.setAttributes(request.getAttributes());
-			previousItem.setLastUpdateDate(new Date());
-			return save(previousItem);
-		} else {
-			return previousItem;
+		Item updatedItem = items.update(id, request, new Date());
+		if (updatedItem == null) {
+			throw new ResourceNotFoundException(MESSAGE_ITEM_NOT_FOUND);
+		}
+		return updatedItem;
+	}
+
+	@Override
+	public Operation updateItemAsync(String id, Item request) {
+		entityValidator.validateUpdate(id, request);
+		if (!items.get(id).isPresent()) {
+			throw new ResourceNotFoundException(MESSAGE_ITEM_NOT_FOUND);
 		}
 
+		Operation operation = operations.create(new UriTemplate(RESOURCE_ITEM).expand(id));
+		writePipeline.submitUpdate(request, operation);
+		return operations.register(operation);
+	}
+
+	@Override
+	public List<Item> updateItems(List<Item> requests) {
+		validateBatchSize(requests);
+		entityValidator.validateUpdateAll(requests);
+
+		// reject the whole batch up front instead of applying it partially
+		for (Item request : requests) {
+			if (!items.get(request.getId()).isPresent()) {
+				throw new ResourceNotFoundException(MESSAGE_ITEM_NOT_FOUND);
+			}
+		}
+
+		List<Item> updatedItems = items.updateAll(requests, new Date());
+		if (updatedItems.contains(null)) {
+			throw new ResourceNotFoundException(MESSAGE_ITEM_NOT_FOUND);
+		}
+		return updatedItems;
 	}
 
 	@Override
@@ -59,22 +201,92 @@ public final class ItemServiceImpl implements ItemService {
 		return this.getItem(itemId).getVersions();
 	}
 
-	private Item save(Item item) {
-		this.items.put(item.getId(), item);
-		item.createVersion();
-		return item;
+	@Override
+	public Page<ItemVersion> getItemVersions(String itemId, Integer fromVersion, Integer toVersion, Date since,
+	                                         String cursor, int limit) {
+		if (limit < 1 || limit > MAX_PAGE_SIZE) {
+			throw new BadRequestException(MESSAGE_INVALID_LIMIT);
+		}
+		Item item = this.getItem(itemId);
+
+		int from = fromVersion != null ? fromVersion : 1;
+		if (since != null) {
+			from = Math.max(from, item.getFirstVersionSince(since));
+		}
+		int to = toVersion != null ? toVersion : Integer.MAX_VALUE;
+		if (cursor != null) {
+			to = Math.min(to, parseVersionCursor(cursor));
+		}
+
+		// one more than requested tells whether there is a following page
+		List<ItemVersion> versions = item.getVersions(from, to, limit + 1);
+		if (versions.size() <= limit) {
+			return new Page<>(versions, null);
+		}
+		String nextCursor = String.valueOf(versions.get(limit).getVersionNumber());
+		return new Page<>(new ArrayList<>(versions.subList(0, limit)), nextCursor);
 	}
 
-	private boolean isNewVersion(Item updatedItem) {
-		return !this.items.containsKey(updatedItem.getId())
-				|| !this.items.get(updatedItem.getId()).equals(updatedItem);
+	/*
+	 * A version cursor is the number of the newest version of the page it points to
+	 */
+	private static int parseVersionCursor(String cursor) {
+		try {
+			int versionNumber = Integer.parseInt(cursor);
+			if (versionNumber > 0) {
+				return versionNumber;
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		throw new BadRequestException(MESSAGE_INVALID_CURSOR);
 	}
 
-	private Item getItem(String itemId) {
-		if (!items.containsKey(itemId)) {
-			throw new ResourceNotFoundException("ITEM NOT FOUND");
-		} else {
-			return items.get(itemId);
+	private static void validateBatchSize(List<Item> requests) {
+		if (requests == null || requests.size() > MAX_BATCH_SIZE) {
+			throw new BadRequestException(MESSAGE_INVALID_BATCH_SIZE);
 		}
 	}
+
+	private void validateAttributeFilter(Map<String, String> attributes) {
+		if (attributes.keySet().stream().anyMatch(StringUtils::isBlank)) {
+			throw new BadRequestException(MESSAGE_INVALID_ATTRIBUTE_FILTER);
+		}
+	}
+
+	@Override
+	public Iterable<Item> streamItems(Map<String, String> attributes) {
+		validateAttributeFilter(attributes);
+		return this.items.findAll(attributes);
+	}
+
+	@Override
+	public Iterable<ItemVersion> streamItemVersions(String itemId) {
+		return this.getItem(itemId).iterateVersions();
+	}
+
+	@Override
+	public String getItemsTag() {
+		return this.items.getModificationTag();
+	}
+
+	@Override
+	public int getItemVersionNumber(String itemId) {
+		return this.getItem(itemId).getVersionNumber();
+	}
+
+	@Override
+	public Item getItemAsOf(String itemId, Date asOf) {
+		Item item = this.getItem(itemId).asOf(asOf);
+		if (item == null) {
+			throw new ResourceNotFoundException(MESSAGE_ITEM_NOT_FOUND);
+		}
+		return item;
+	}
+
+	@Override
+	public Item getItem(String itemId) {
+		return items.get(itemId)
+		            .orElseThrow(() -> new ResourceNotFoundException(MESSAGE_ITEM_NOT_FOUND));
+	}
 }
@@ -0,0 +1,220 @@
+package com.labregister.api.items.service;
+
+import com.labregister.api.core.exception.ServiceUnavailableException;
+import com.labregister.api.core.operation.Operation;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.ItemStoreProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Applies validated creates and updates asynchronously, in submission order
+ * <p>
+ * Writes are queued in a bounded queue (capacity {@code labregister.store.write-queue-capacity}),
+ * a full queue rejects further writes with {@link ServiceUnavailableException}. A single writer
+ * thread drains the queue in batches of up to {@code labregister.store.max-batch-size} writes and
+ * applies consecutive creates and updates with one store call each, so a burst of writes waits
+ * for the change log once per batch instead of once per write, and request threads never contend
+ * for the store. The {@link Operation} of each write is completed once it is applied, or failed on
+ * its own if the store refuses it.
+ */
+@Component
+public class ItemWritePipeline implements MeterBinder {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ItemWritePipeline.class);
+
+	private static final String MESSAGE_QUEUE_FULL = "Too many pending writes, try again later";
+
+	private static final String MESSAGE_STOPPED = "Item writes are shut down";
+
+	private static final String MESSAGE_ITEM_NOT_FOUND = "ITEM NOT FOUND";
+
+	private static final String MESSAGE_WRITE_FAILED = "Item store is unable to apply the change";
+
+	// marks the end of the queue on shutdown
+	private static final Write STOP = new Write(null, null, null);
+
+	private final ItemStore store;
+
+	private final BlockingQueue<Write> queue;
+
+	private final int maxBatchSize;
+
+	private volatile boolean running;
+
+	private Thread writer;
+
+	public ItemWritePipeline(ItemStore store, ItemStoreProperties properties) {
+		this.store = store;
+		this.queue = new ArrayBlockingQueue<>(properties.getWriteQueueCapacity());
+		this.maxBatchSize = properties.getMaxBatchSize();
+	}
+
+	@PostConstruct
+	public void start() {
+		running = true;
+		writer = new Thread(this::run, "item-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Applies the writes queued so far and stops the writer thread
+	 */
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		queue.put(STOP);
+		writer.join(TimeUnit.MINUTES.toMillis(1));
+	}
+
+	/**
+	 * Queues the creation of a validated item with its id and creation date already set
+	 *
+	 * @throws ServiceUnavailableException if the queue is full
+	 */
+	public void submitCreate(Item item, Operation operation) {
+		submit(new Write(Write.Type.CREATE, item, operation));
+	}
+
+	/**
+	 * Queues a validated update request carrying the id of the item to update
+	 *
+	 * @throws ServiceUnavailableException if the queue is full
+	 */
+	public void submitUpdate(Item request, Operation operation) {
+		submit(new Write(Write.Type.UPDATE, request, operation));
+	}
+
+	public int getPendingCount() {
+		return queue.size();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("labregister.items.writes.pending", this, ItemWritePipeline::getPendingCount)
+		     .description("Asynchronous item writes waiting to be applied")
+		     .register(registry);
+	}
+
+	private void submit(Write write) {
+		if (!running) {
+			throw new ServiceUnavailableException(MESSAGE_STOPPED);
+		}
+		if (!queue.offer(write)) {
+			throw new ServiceUnavailableException(MESSAGE_QUEUE_FULL);
+		}
+	}
+
+	private void run() {
+		List<Write> batch = new ArrayList<>(maxBatchSize);
+		boolean stopped = false;
+		while (!stopped) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			queue.drainTo(batch, maxBatchSize - 1);
+
+			int stop = batch.indexOf(STOP);
+			if (stop >= 0) {
+				batch.subList(stop, batch.size()).clear();
+				stopped = true;
+			}
+			apply(batch);
+			batch.clear();
+		}
+	}
+
+	// applies each run of consecutive writes of the same type as one batch, keeping the order of all writes
+	private void apply(List<Write> batch) {
+		int start = 0;
+		while (start < batch.size()) {
+			Write.Type type = batch.get(start).type;
+			int end = start + 1;
+			while (end < batch.size() && batch.get(end).type == type) {
+				end++;
+			}
+			List<Write> run = batch.subList(start, end);
+			try {
+				if (type == Write.Type.CREATE) {
+					applyCreates(run);
+				} else {
+					applyUpdates(run);
+				}
+			} catch (RuntimeException e) {
+				// an unexpected failure; operations completed already keep their outcome
+				LOG.error("Could not apply {} item writes", run.size(), e);
+				run.forEach(write -> write.operation.fail(MESSAGE_WRITE_FAILED));
+			}
+			start = end;
+		}
+	}
+
+	private void applyCreates(List<Write> creates) {
+		List<CompletableFuture<Item>> created =
+				store.createEach(creates.stream().map(write -> write.item).collect(Collectors.toList()));
+		for (int i = 0; i < creates.size(); i++) {
+			complete(creates.get(i), created.get(i));
+		}
+	}
+
+	private void applyUpdates(List<Write> updates) {
+		List<CompletableFuture<Item>> updated =
+				store.updateEach(updates.stream().map(write -> write.item).collect(Collectors.toList()), new Date());
+		for (int i = 0; i < updates.size(); i++) {
+			complete(updates.get(i), updated.get(i));
+		}
+	}
+
+	private static void complete(Write write, CompletableFuture<Item> result) {
+		try {
+			if (result.join() != null) {
+				write.operation.succeed();
+			} else {
+				write.operation.fail(MESSAGE_ITEM_NOT_FOUND);
+			}
+		} catch (CompletionException e) {
+			LOG.error("Could not apply item write", e.getCause());
+			write.operation.fail(e.getCause() instanceof ServiceUnavailableException
+					                     ? e.getCause().getMessage() : MESSAGE_WRITE_FAILED);
+		}
+	}
+
+	private static final class Write {
+
+		enum Type {
+			CREATE, UPDATE
+		}
+
+		private final Type type;
+
+		private final Item item;
+
+		private final Operation operation;
+
+		Write(Type type, Item item, Operation operation) {
+			this.type = type;
+			this.item = item;
+			this.operation = operation;
+		}
+	}
+}
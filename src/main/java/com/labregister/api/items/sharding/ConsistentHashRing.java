@@ -0,0 +1,96 @@
+package com.labregister.api.items.sharding;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent hash ring assigning item ids to shards
+ * <p>
+ * Every shard is placed on the ring at {@code virtualNodes} points, the hashes of its URL and the
+ * number of the point. An id belongs to the shard of the first point at or after the hash of the id,
+ * wrapping around at the end of the ring. The many points of each shard spread its share evenly over
+ * the ring, and adding a shard only moves the ids falling onto its new points, about 1 / (n + 1) of
+ * all ids and all of them to the new shard.
+ */
+public final class ConsistentHashRing {
+
+	private static final HashFunction HASH = Hashing.murmur3_128();
+
+	private final List<String> shards;
+
+	private final int virtualNodes;
+
+	// ascending hashes of all points, with the index of the point's shard at the same index
+	private final long[] points;
+
+	private final int[] owners;
+
+	/**
+	 * @param shards       distinct shard URLs
+	 * @param virtualNodes points of each shard on the ring
+	 */
+	public ConsistentHashRing(List<String> shards, int virtualNodes) {
+		Preconditions.checkArgument(!shards.isEmpty(), "At least one shard is required");
+		Preconditions.checkArgument(shards.stream().distinct().count() == shards.size(), "Shards must be distinct");
+		Preconditions.checkArgument(virtualNodes > 0, "At least one virtual node per shard is required");
+		this.shards = ImmutableList.copyOf(shards);
+		this.virtualNodes = virtualNodes;
+
+		TreeMap<Long, Integer> ring = new TreeMap<>();
+		for (int shard = 0; shard < shards.size(); shard++) {
+			for (int point = 0; point < virtualNodes; point++) {
+				ring.put(hash(shards.get(shard) + "#" + point), shard);
+			}
+		}
+		points = new long[ring.size()];
+		owners = new int[ring.size()];
+		int index = 0;
+		for (Map.Entry<Long, Integer> point : ring.entrySet()) {
+			points[index] = point.getKey();
+			owners[index] = point.getValue();
+			index++;
+		}
+	}
+
+	/**
+	 * @return a ring with the given shard added to the shards of this one
+	 */
+	public ConsistentHashRing withShard(String shard) {
+		return new ConsistentHashRing(ImmutableList.<String>builder().addAll(shards).add(shard).build(), virtualNodes);
+	}
+
+	/**
+	 * @return URL of the shard owning the item with the given id
+	 */
+	public String getOwner(String itemId) {
+		int index = Arrays.binarySearch(points, hash(itemId));
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return shards.get(owners[index == points.length ? 0 : index]);
+	}
+
+	public boolean owns(String shard, String itemId) {
+		return getOwner(itemId).equals(shard);
+	}
+
+	public List<String> getShards() {
+		return shards;
+	}
+
+	public int getVirtualNodes() {
+		return virtualNodes;
+	}
+
+	private static long hash(String value) {
+		return HASH.hashString(value, StandardCharsets.UTF_8).asLong();
+	}
+}
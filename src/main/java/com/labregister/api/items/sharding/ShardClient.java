@@ -0,0 +1,194 @@
+package com.labregister.api.items.sharding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.labregister.api.core.GlobalControllerAdvice;
+import com.labregister.api.core.exception.BadRequestException;
+import com.labregister.api.core.exception.ResourceNotFoundException;
+import com.labregister.api.core.exception.ServiceUnavailableException;
+import com.labregister.api.core.pagination.Page;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemChange;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Calls the item endpoints of one shard
+ * <p>
+ * Errors of the shard are translated into the exceptions the item service would have thrown itself:
+ * 404 into {@link ResourceNotFoundException}, other client errors into {@link BadRequestException}
+ * with the shard's message, and unreachable shards or server errors into
+ * {@link ServiceUnavailableException}.
+ */
+final class ShardClient {
+
+	private static final ParameterizedTypeReference<List<Item>> ITEMS = new ParameterizedTypeReference<List<Item>>() {
+	};
+
+	private static final ParameterizedTypeReference<List<ItemVersion>> VERSIONS =
+			new ParameterizedTypeReference<List<ItemVersion>>() {
+			};
+
+	// the format of @DateTimeFormat(iso = DATE_TIME) parameters
+	private static final DateTimeFormatter DATE_TIME =
+			DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withZone(ZoneOffset.UTC);
+
+	private final String url;
+
+	private final RestTemplate restTemplate;
+
+	private final ObjectMapper objectMapper;
+
+	ShardClient(String url, RestTemplate restTemplate, ObjectMapper objectMapper) {
+		this.url = url;
+		this.restTemplate = restTemplate;
+		this.objectMapper = objectMapper;
+	}
+
+	String getUrl() {
+		return url;
+	}
+
+	Item getItem(String itemId) {
+		return call(() -> restTemplate.getForObject(uri("/items/{id}", Collections.emptyMap(), itemId), Item.class));
+	}
+
+	Item getItemAsOf(String itemId, Date asOf) {
+		Map<String, String> query = Collections.singletonMap("asOf", format(asOf));
+		return call(() -> restTemplate.getForObject(uri("/items/{id}", query, itemId), Item.class));
+	}
+
+	/**
+	 * @param parameters query parameters of {@code GET /items}, e.g. attribute filters
+	 */
+	List<Item> getAllItems(Map<String, String> parameters) {
+		return call(() -> restTemplate.exchange(uri("/items", parameters), HttpMethod.GET, null, ITEMS).getBody());
+	}
+
+	/**
+	 * @param parameters query parameters of {@code GET /items} besides the pagination, e.g. attribute filters
+	 */
+	Page<Item> getItems(Map<String, String> parameters, String cursor, int limit) {
+		Map<String, String> query = new LinkedHashMap<>(parameters);
+		query.put("limit", String.valueOf(limit));
+		if (cursor != null) {
+			query.put("cursor", cursor);
+		}
+		return call(() -> {
+			ResponseEntity<List<Item>> response = restTemplate.exchange(uri("/items", query), HttpMethod.GET, null, ITEMS);
+			return new Page<>(response.getBody(), response.getHeaders().getFirst(GlobalControllerAdvice.HEADER_NEXT_CURSOR));
+		});
+	}
+
+	List<Item> searchItems(String query, int limit) {
+		Map<String, String> parameters = new LinkedHashMap<>();
+		parameters.put("q", query);
+		parameters.put("limit", String.valueOf(limit));
+		return call(() -> restTemplate.exchange(uri("/items/search", parameters), HttpMethod.GET, null, ITEMS).getBody());
+	}
+
+	Item updateItem(String itemId, Item request) {
+		return call(() -> restTemplate.exchange(uri("/items/{id}", Collections.emptyMap(), itemId), HttpMethod.PUT,
+		                                        new HttpEntity<>(request), Item.class).getBody());
+	}
+
+	List<Item> updateItems(List<Item> requests) {
+		return call(() -> restTemplate.exchange(uri("/items:batch", Collections.emptyMap()), HttpMethod.PUT,
+		                                        new HttpEntity<>(requests), ITEMS).getBody());
+	}
+
+	/**
+	 * @return all versions of the item, newest first
+	 */
+	List<ItemVersion> getItemVersions(String itemId) {
+		return call(() -> restTemplate.exchange(uri("/items/{id}/versions", Collections.emptyMap(), itemId),
+		                                        HttpMethod.GET, null, VERSIONS).getBody());
+	}
+
+	Page<ItemVersion> getItemVersions(String itemId, Integer fromVersion, Integer toVersion, Date since,
+	                                  String cursor, int limit) {
+		Map<String, String> query = new LinkedHashMap<>();
+		query.put("limit", String.valueOf(limit));
+		if (fromVersion != null) {
+			query.put("fromVersion", String.valueOf(fromVersion));
+		}
+		if (toVersion != null) {
+			query.put("toVersion", String.valueOf(toVersion));
+		}
+		if (since != null) {
+			query.put("since", format(since));
+		}
+		if (cursor != null) {
+			query.put("cursor", cursor);
+		}
+		return call(() -> {
+			ResponseEntity<List<ItemVersion>> response =
+					restTemplate.exchange(uri("/items/{id}/versions", query, itemId), HttpMethod.GET, null, VERSIONS);
+			return new Page<>(response.getBody(), response.getHeaders().getFirst(GlobalControllerAdvice.HEADER_NEXT_CURSOR));
+		});
+	}
+
+	void applyChanges(List<ItemChange> changes) {
+		call(() -> restTemplate.postForEntity(uri("/internal/items/changes", Collections.emptyMap()), changes, Void.class));
+	}
+
+	static String format(Date date) {
+		return DATE_TIME.format(date.toInstant());
+	}
+
+	// path variables and query values are expanded in order and encoded strictly
+	private URI uri(String path, Map<String, String> query, Object... pathVariables) {
+		UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(url).path(path);
+		List<Object> values = new ArrayList<>();
+		Collections.addAll(values, pathVariables);
+		int index = 0;
+		for (Map.Entry<String, String> parameter : query.entrySet()) {
+			builder.queryParam(parameter.getKey(), "{query" + index++ + "}");
+			values.add(parameter.getValue());
+		}
+		return builder.encode().buildAndExpand(values.toArray()).toUri();
+	}
+
+	private <T> T call(Supplier<T> request) {
+		try {
+			return request.get();
+		} catch (HttpClientErrorException.NotFound e) {
+			throw new ResourceNotFoundException(getMessage(e));
+		} catch (HttpClientErrorException e) {
+			throw new BadRequestException(getMessage(e));
+		} catch (RestClientException e) {
+			throw new ServiceUnavailableException("Shard " + url + " is unavailable");
+		}
+	}
+
+	private String getMessage(HttpClientErrorException e) {
+		try {
+			String message = objectMapper.readTree(e.getResponseBodyAsByteArray()).path("message").asText(null);
+			if (message != null) {
+				return message;
+			}
+		} catch (IOException ignored) {
+			// not an ApiMessage, handled below
+		}
+		return HttpStatus.valueOf(e.getRawStatusCode()).getReasonPhrase();
+	}
+}
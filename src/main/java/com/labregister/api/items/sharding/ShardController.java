@@ -0,0 +1,86 @@
+package com.labregister.api.items.sharding;
+
+import com.google.common.base.Preconditions;
+import com.labregister.api.core.exception.BadRequestException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@ConditionalOnProperty(prefix = "labregister.sharding", name = "shards")
+public class ShardController {
+
+	private static final String MESSAGE_NO_URL = "url must be provided";
+
+	private final ShardRouter router;
+
+	public ShardController(ShardRouter router) {
+		Preconditions.checkArgument(router != null);
+		this.router = router;
+	}
+
+	/**
+	 * Lists the base URLs of the shards, in the order they were added
+	 */
+	@GetMapping(value = "/shards")
+	@ResponseBody
+	public List<String> getShards() {
+		return router.getRing().getShards();
+	}
+
+	/**
+	 * Adds an empty shard and moves the items it owns from now on to it, see {@link ShardRouter#addShard};
+	 * answers once all items are moved. Part of the internal API, since the router calls the given URL.
+	 */
+	@PostMapping(value = "/internal/shards")
+	@ResponseBody
+	public AddedShard addShard(@RequestBody AddedShard request) {
+		if (request.getUrl() == null || request.getUrl().isEmpty()) {
+			throw new BadRequestException(MESSAGE_NO_URL);
+		}
+		try {
+			return new AddedShard(request.getUrl(), router.addShard(request.getUrl()));
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			throw new BadRequestException(e.getMessage());
+		}
+	}
+
+	public static class AddedShard {
+
+		private String url;
+
+		private int movedItems;
+
+		public AddedShard() {
+		}
+
+		public AddedShard(String url, int movedItems) {
+			this.url = url;
+			this.movedItems = movedItems;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public void setUrl(String url) {
+			this.url = url;
+		}
+
+		/**
+		 * @return number of items moved to the shard when it was added
+		 */
+		public int getMovedItems() {
+			return movedItems;
+		}
+
+		public void setMovedItems(int movedItems) {
+			this.movedItems = movedItems;
+		}
+	}
+}
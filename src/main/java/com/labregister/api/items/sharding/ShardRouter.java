@@ -0,0 +1,394 @@
+package com.labregister.api.items.sharding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.labregister.api.core.exception.ResourceNotFoundException;
+import com.labregister.api.core.internal.InternalApiInterceptor;
+import com.labregister.api.core.internal.InternalApiProperties;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Assigns items to the shards configured in {@code labregister.sharding.shards} by a
+ * {@link ConsistentHashRing} of their ids, and sends requests to them
+ * <p>
+ * A shard added at runtime receives the items it takes over in two passes: the first copies the
+ * versions of these items while writes continue and records which items are written meanwhile, the
+ * second, with writes paused, only brings the copies of these items up to date, deleting those
+ * deleted on their owner. The new shard list is then written to the ring file, so a restart
+ * continues with the same ring, and the ring is switched. Finally the copies left behind on the
+ * previous owners are deleted; until then they are ignored, since reads only take an item from
+ * the shard owning it.
+ * <p>
+ * Requests to the shards carry the internal API token, which the shards require for the changes
+ * they apply as they are, see {@link ShardClient#applyChanges}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "labregister.sharding", name = "shards")
+public class ShardRouter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ShardRouter.class);
+
+	// changes sent to the new shard per request while rebalancing
+	private static final int MOVE_BATCH_SIZE = 1000;
+
+	private static final String MESSAGE_NO_RING_FILE =
+			"Shards can only be added with labregister.sharding.ring-file set, so the ring survives a restart";
+
+	private final RestTemplate restTemplate;
+
+	private final ObjectMapper objectMapper;
+
+	private final Path ringFile;
+
+	private final ConcurrentMap<String, ShardClient> clients = new ConcurrentHashMap<>();
+
+	private volatile ConsistentHashRing ring;
+
+	// the writes to record while a shard is added, null otherwise
+	private volatile Move move;
+
+	// writes hold the read lock, the switch to a new ring the write lock
+	private final ReadWriteLock switchLock = new ReentrantReadWriteLock();
+
+	private ExecutorService executor;
+
+	public ShardRouter(ShardingProperties properties, InternalApiProperties internalApiProperties,
+	                   RestTemplateBuilder restTemplateBuilder, ObjectMapper objectMapper) throws IOException {
+		String token = internalApiProperties.getToken();
+		this.restTemplate = restTemplateBuilder
+				.setConnectTimeout(properties.getTimeout())
+				.setReadTimeout(properties.getTimeout())
+				.additionalInterceptors((request, body, execution) -> {
+					request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+					if (token != null) {
+						request.getHeaders().set(InternalApiInterceptor.HEADER_INTERNAL_TOKEN, token);
+					}
+					return execution.execute(request, body);
+				})
+				.build();
+		this.objectMapper = objectMapper;
+		this.ringFile = properties.getRingFile() != null ? Paths.get(properties.getRingFile()) : null;
+
+		List<String> shards = properties.getShards();
+		if (ringFile != null && Files.exists(ringFile)) {
+			shards = Arrays.asList(objectMapper.readValue(ringFile.toFile(), String[].class));
+			if (!shards.equals(properties.getShards())) {
+				LOG.info("Using shards {} of {} instead of the configured ones", shards, ringFile);
+			}
+		}
+		this.ring = new ConsistentHashRing(shards, properties.getVirtualNodes());
+	}
+
+	@PostConstruct
+	public void start() {
+		executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "shard-request");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+	public ConsistentHashRing getRing() {
+		return ring;
+	}
+
+	ShardClient getClient(String shard) {
+		return clients.computeIfAbsent(shard, url -> new ShardClient(url, restTemplate, objectMapper));
+	}
+
+	/**
+	 * Runs the request against every shard of the ring in parallel
+	 *
+	 * @return the results in the order of the ring's shards
+	 */
+	<T> List<T> scatter(ConsistentHashRing ring, Function<ShardClient, T> request) {
+		List<CompletableFuture<T>> futures = new ArrayList<>();
+		for (String shard : ring.getShards()) {
+			ShardClient client = getClient(shard);
+			futures.add(CompletableFuture.supplyAsync(() -> request.apply(client), executor));
+		}
+		List<T> results = new ArrayList<>(futures.size());
+		for (CompletableFuture<T> future : futures) {
+			results.add(join(future));
+		}
+		return results;
+	}
+
+	/**
+	 * Runs the requests in parallel
+	 *
+	 * @return the results in the order of the requests
+	 */
+	<T> List<T> scatter(List<Supplier<T>> requests) {
+		List<CompletableFuture<T>> futures = new ArrayList<>();
+		requests.forEach(request -> futures.add(CompletableFuture.supplyAsync(request, executor)));
+		List<T> results = new ArrayList<>(futures.size());
+		for (CompletableFuture<T> future : futures) {
+			results.add(join(future));
+		}
+		return results;
+	}
+
+	/**
+	 * Runs a write, which the switch to a new ring waits for
+	 */
+	<T> T write(Function<ConsistentHashRing, T> write) {
+		Lock lock = switchLock.readLock();
+		lock.lock();
+		try {
+			return write.apply(ring);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Records a write of the item, so that a shard being added receives the item's latest state;
+	 * to be called within {@link #write}
+	 */
+	void recordWrite(String itemId) {
+		Move current = move;
+		if (current != null) {
+			current.writtenItems.add(itemId);
+		}
+	}
+
+	/**
+	 * Records the deletion of all items like {@link #recordWrite}
+	 */
+	void recordDeleteAll() {
+		Move current = move;
+		if (current != null) {
+			current.deletedAll = true;
+		}
+	}
+
+	/**
+	 * Adds a shard to the ring, moves the items it takes over to it and deletes them from their previous owners
+	 *
+	 * @param shard base URL of the new, empty shard
+	 * @return number of items moved
+	 * @throws IllegalArgumentException if the shard is part of the ring already or not an HTTP URL
+	 * @throws IllegalStateException    if no ring file is configured
+	 */
+	public synchronized int addShard(String shard) {
+		Preconditions.checkState(ringFile != null, MESSAGE_NO_RING_FILE);
+		Preconditions.checkArgument(shard.startsWith("http://") || shard.startsWith("https://"),
+		                            "Shard must be an HTTP URL");
+		ConsistentHashRing current = ring;
+		Preconditions.checkArgument(!current.getShards().contains(shard), "Shard is added already");
+		ConsistentHashRing next = current.withShard(shard);
+		ShardClient target = getClient(shard);
+
+		// version numbers copied so far, by item id
+		Map<String, Integer> moved = new ConcurrentHashMap<>();
+		Move started = new Move();
+		Lock lock = switchLock.writeLock();
+		lock.lock();
+		try {
+			// from here on every write is recorded
+			move = started;
+		} finally {
+			lock.unlock();
+		}
+		try {
+			moveItems(current, next, target, moved);
+			lock.lock();
+			try {
+				moveWrittenItems(started, current, next, target, moved);
+				writeRing(next);
+				ring = next;
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			move = null;
+		}
+		LOG.info("Added shard {}, moved {} items to it", shard, moved.size());
+		deleteMovedItems(current, moved.keySet());
+		return moved.size();
+	}
+
+	// replaces the ring file, so the ring is only switched once a restart would continue with it
+	private void writeRing(ConsistentHashRing next) {
+		try {
+			Path directory = ringFile.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			Path tempFile = Files.createTempFile(directory, ringFile.getFileName().toString(), ".tmp");
+			objectMapper.writeValue(tempFile.toFile(), next.getShards());
+			Files.move(tempFile, ringFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write " + ringFile, e);
+		}
+	}
+
+	// the copies on the previous owners are no longer read, a failure only leaves them behind
+	private void deleteMovedItems(ConsistentHashRing previous, Set<String> itemIds) {
+		long now = System.currentTimeMillis();
+		Map<String, List<ItemChange>> deletions = new LinkedHashMap<>();
+		for (String itemId : itemIds) {
+			deletions.computeIfAbsent(previous.getOwner(itemId), shard -> new ArrayList<>())
+			         .add(ItemChange.deleted(itemId, now));
+		}
+		List<Supplier<Void>> requests = new ArrayList<>();
+		deletions.forEach((shard, changes) -> requests.add(() -> {
+			ShardClient source = getClient(shard);
+			for (List<ItemChange> batch : Lists.partition(changes, MOVE_BATCH_SIZE)) {
+				source.applyChanges(batch);
+			}
+			return null;
+		}));
+		try {
+			scatter(requests);
+		} catch (RuntimeException e) {
+			LOG.warn("Cannot delete the items moved from their previous shards", e);
+		}
+	}
+
+	// copies the versions of the items the target owns in the next ring, oldest first
+	private void moveItems(ConsistentHashRing current, ConsistentHashRing next, ShardClient target,
+	                       Map<String, Integer> moved) {
+		scatter(current, source -> {
+			List<ItemChange> batch = new ArrayList<>(MOVE_BATCH_SIZE);
+			for (Item item : source.getAllItems(Collections.emptyMap())) {
+				String itemId = item.getId();
+				if (!current.owns(source.getUrl(), itemId) || !next.owns(target.getUrl(), itemId)) {
+					continue;
+				}
+				try {
+					moveVersions(itemId, source.getItemVersions(itemId), target, moved, batch);
+				} catch (ResourceNotFoundException e) {
+					// deleted meanwhile, a recorded write handled by the second pass
+				}
+			}
+			if (!batch.isEmpty()) {
+				target.applyChanges(batch);
+			}
+			return null;
+		});
+	}
+
+	// updates the target's copies of the items written during the first pass, while writes are paused
+	private void moveWrittenItems(Move move, ConsistentHashRing current, ConsistentHashRing next, ShardClient target,
+	                              Map<String, Integer> moved) {
+		long now = System.currentTimeMillis();
+		if (move.deletedAll) {
+			// the target only holds copies, whose originals are all deleted
+			target.applyChanges(Collections.singletonList(ItemChange.deletedAll(now)));
+			moved.clear();
+		}
+		Map<String, List<String>> writtenItems = new LinkedHashMap<>();
+		for (String itemId : move.writtenItems) {
+			if (next.owns(target.getUrl(), itemId)) {
+				writtenItems.computeIfAbsent(current.getOwner(itemId), shard -> new ArrayList<>()).add(itemId);
+			}
+		}
+		List<Supplier<Void>> requests = new ArrayList<>();
+		writtenItems.forEach((shard, itemIds) -> requests.add(() -> {
+			ShardClient source = getClient(shard);
+			List<ItemChange> batch = new ArrayList<>(MOVE_BATCH_SIZE);
+			for (String itemId : itemIds) {
+				List<ItemVersion> versions;
+				try {
+					versions = source.getItemVersions(itemId);
+				} catch (ResourceNotFoundException e) {
+					versions = Collections.emptyList();
+				}
+				Integer movedVersion = moved.get(itemId);
+				if (movedVersion != null
+						&& (versions.isEmpty() || versions.get(0).getVersionNumber() < movedVersion)) {
+					// deleted since it was copied, and possibly created again
+					batch.add(ItemChange.deleted(itemId, now));
+					moved.remove(itemId);
+				}
+				if (!versions.isEmpty()) {
+					moveVersions(itemId, versions, target, moved, batch);
+				} else if (batch.size() >= MOVE_BATCH_SIZE) {
+					target.applyChanges(batch);
+					batch.clear();
+				}
+			}
+			if (!batch.isEmpty()) {
+				target.applyChanges(batch);
+			}
+			return null;
+		}));
+		scatter(requests);
+	}
+
+	// adds the versions the target is missing to the batch, oldest first, sending every full batch
+	private static void moveVersions(String itemId, List<ItemVersion> versions, ShardClient target,
+	                                 Map<String, Integer> moved, List<ItemChange> batch) {
+		int movedVersion = moved.getOrDefault(itemId, 0);
+		for (int i = versions.size() - 1; i >= 0; i--) {
+			if (versions.get(i).getVersionNumber() > movedVersion) {
+				batch.add(ItemChange.of(itemId, versions.get(i)));
+			}
+			if (batch.size() >= MOVE_BATCH_SIZE) {
+				target.applyChanges(batch);
+				batch.clear();
+			}
+		}
+		moved.put(itemId, versions.get(0).getVersionNumber());
+	}
+
+	private static final class Move {
+
+		private final Set<String> writtenItems = ConcurrentHashMap.newKeySet();
+
+		private volatile boolean deletedAll;
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
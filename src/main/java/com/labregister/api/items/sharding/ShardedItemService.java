@@ -0,0 +1,489 @@
+package com.labregister.api.items.sharding;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.labregister.api.core.exception.BadRequestException;
+import com.labregister.api.core.operation.Operation;
+import com.labregister.api.core.operation.OperationRegistry;
+import com.labregister.api.core.pagination.Page;
+import com.labregister.api.core.validation.EntityValidator;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.service.ItemService;
+import com.labregister.api.items.store.ItemChange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Item service of an instance routing all items to the shards of {@link ShardRouter}, replacing
+ * the local store
+ * <p>
+ * Writes are validated here and sent to the shard owning the item; creates are sent as
+ * {@link ItemChange}s, so the id and creation date assigned here are kept. Batches are split by
+ * shard and sent in parallel, each shard applying its part as one batch. Every write is recorded
+ * with the router, so a shard being added receives it too. Asynchronous writes are applied before
+ * they are answered. Lists are merged newest first from all shards, taking every item only from
+ * its owner, and searches rank the best matches of all shards like a single store.
+ * <p>
+ * The router keeps no items, so there is no items tag: lists are answered without ETag and the
+ * cached list body is not used.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "labregister.sharding", name = "shards")
+public class ShardedItemService implements ItemService {
+
+	private static final String MESSAGE_INVALID_CURSOR = "Invalid cursor";
+
+	private static final String MESSAGE_INVALID_BATCH_SIZE = "batch must contain at most " + MAX_BATCH_SIZE + " items";
+
+	private static final String MESSAGE_INVALID_LIMIT = "limit must be between 1 and " + MAX_PAGE_SIZE;
+
+	private static final String PARAM_PREFIX_ATTRIBUTE = "attr.";
+
+	private static final String PARAM_AS_OF = "asOf";
+
+	// separates the positions of the shards in a cursor, and the parts of each position
+	private static final String CURSOR_SHARD_SEPARATOR = "\n";
+
+	private static final String CURSOR_PART_SEPARATOR = ":";
+
+	private static final String CURSOR_EXHAUSTED = "-";
+
+	private final ShardRouter router;
+
+	private final EntityValidator entityValidator;
+
+	private final OperationRegistry operations;
+
+	public ShardedItemService(ShardRouter router, EntityValidator entityValidator, OperationRegistry operations) {
+		this.router = router;
+		this.entityValidator = entityValidator;
+		this.operations = operations;
+	}
+
+	@Override
+	public Item createItem(Item request) {
+		entityValidator.validateCreate(request);
+		request.setId(UUID.randomUUID().toString());
+		request.setCreationDate(new Date());
+		request.createVersion();
+
+		List<ItemChange> changes = Collections.singletonList(ItemChange.of(request.getId(), request.getCurrentVersion()));
+		router.write(ring -> {
+			router.recordWrite(request.getId());
+			router.getClient(ring.getOwner(request.getId())).applyChanges(changes);
+			return null;
+		});
+		return request;
+	}
+
+	@Override
+	public Operation createItemAsync(Item request) {
+		return succeeded(createItem(request).getId());
+	}
+
+	@Override
+	public List<Item> createItems(List<Item> requests) {
+		validateBatchSize(requests);
+		entityValidator.validateCreateAll(requests);
+
+		Date creationDate = new Date();
+		for (Item request : requests) {
+			request.setId(UUID.randomUUID().toString());
+			request.setCreationDate(creationDate);
+			request.createVersion();
+		}
+		router.write(ring -> {
+			Map<String, List<ItemChange>> changes = new LinkedHashMap<>();
+			for (Item request : requests) {
+				router.recordWrite(request.getId());
+				changes.computeIfAbsent(ring.getOwner(request.getId()), shard -> new ArrayList<>())
+				       .add(ItemChange.of(request.getId(), request.getCurrentVersion()));
+			}
+			return applyChanges(changes);
+		});
+		return requests;
+	}
+
+	@Override
+	public Item updateItem(String id, Item request) {
+		entityValidator.validateUpdate(id, request);
+		return router.write(ring -> {
+			router.recordWrite(id);
+			return router.getClient(ring.getOwner(id)).updateItem(id, request);
+		});
+	}
+
+	@Override
+	public Operation updateItemAsync(String id, Item request) {
+		return succeeded(updateItem(id, request).getId());
+	}
+
+	@Override
+	public List<Item> updateItems(List<Item> requests) {
+		validateBatchSize(requests);
+		entityValidator.validateUpdateAll(requests);
+
+		return router.write(ring -> {
+			// positions of the requests in the batch, by shard
+			Map<String, List<Integer>> positions = new LinkedHashMap<>();
+			for (int i = 0; i < requests.size(); i++) {
+				router.recordWrite(requests.get(i).getId());
+				positions.computeIfAbsent(ring.getOwner(requests.get(i).getId()), shard -> new ArrayList<>()).add(i);
+			}
+			List<Supplier<List<Item>>> updates = new ArrayList<>();
+			positions.forEach((shard, indexes) -> {
+				List<Item> batch = Lists.transform(indexes, requests::get);
+				updates.add(() -> router.getClient(shard).updateItems(new ArrayList<>(batch)));
+			});
+			List<List<Item>> updated = router.scatter(updates);
+
+			List<Item> result = new ArrayList<>(Collections.nCopies(requests.size(), null));
+			int shard = 0;
+			for (List<Integer> indexes : positions.values()) {
+				List<Item> items = updated.get(shard++);
+				for (int i = 0; i < indexes.size(); i++) {
+					result.set(indexes.get(i), items.get(i));
+				}
+			}
+			return result;
+		});
+	}
+
+	@Override
+	public List<Item> getItems() {
+		return findAll(Collections.emptyMap());
+	}
+
+	@Override
+	public Item getItem(String itemId) {
+		return getOwner(itemId).getItem(itemId);
+	}
+
+	@Override
+	public Iterable<Item> streamItems(Map<String, String> attributes) {
+		return findAll(getFilterParameters(attributes));
+	}
+
+	@Override
+	public Iterable<ItemVersion> streamItemVersions(String itemId) {
+		return getOwner(itemId).getItemVersions(itemId);
+	}
+
+	/**
+	 * @return always {@code null}, the router does not track changes of the shards' items
+	 */
+	@Override
+	public String getItemsTag() {
+		return null;
+	}
+
+	@Override
+	public int getItemVersionNumber(String itemId) {
+		return getItem(itemId).getVersionNumber();
+	}
+
+	@Override
+	public Page<Item> getItems(String cursor, int limit) {
+		return findItems(Collections.emptyMap(), cursor, limit);
+	}
+
+	@Override
+	public List<Item> findItems(Map<String, String> attributes) {
+		return findAll(getFilterParameters(attributes));
+	}
+
+	@Override
+	public Page<Item> findItems(Map<String, String> attributes, String cursor, int limit) {
+		return page(getFilterParameters(attributes), cursor, limit);
+	}
+
+	@Override
+	public Page<Item> findItemsAsOf(Date asOf, Map<String, String> attributes, String cursor, int limit) {
+		Map<String, String> parameters = getFilterParameters(attributes);
+		parameters.put(PARAM_AS_OF, ShardClient.format(asOf));
+		return page(parameters, cursor, limit);
+	}
+
+	@Override
+	public Item getItemAsOf(String itemId, Date asOf) {
+		return getOwner(itemId).getItemAsOf(itemId, asOf);
+	}
+
+	/**
+	 * Takes up to {@code limit} matches from every shard and ranks them like
+	 * {@link com.labregister.api.items.store.ItemStore#search}; within a tier, the most recently
+	 * updated items come first
+	 */
+	@Override
+	public List<Item> searchItems(String query, int limit) {
+		ConsistentHashRing ring = router.getRing();
+		List<Item> found = new ArrayList<>();
+		router.scatter(ring, shard -> getOwned(ring, shard, shard.searchItems(query, limit))).forEach(found::addAll);
+		found.sort(Comparator.comparingInt((Item item) -> getSearchTier(item, query))
+		                     .thenComparing(Item::getLastUpdateDate, Comparator.reverseOrder()));
+		return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+	}
+
+	@Override
+	public List<ItemVersion> getItemVersions(String itemId) {
+		return getOwner(itemId).getItemVersions(itemId);
+	}
+
+	@Override
+	public Page<ItemVersion> getItemVersions(String itemId, Integer fromVersion, Integer toVersion, Date since,
+	                                         String cursor, int limit) {
+		return getOwner(itemId).getItemVersions(itemId, fromVersion, toVersion, since, cursor, limit);
+	}
+
+	@Override
+	public void deleteAllItems() {
+		List<ItemChange> changes = Collections.singletonList(ItemChange.deletedAll(System.currentTimeMillis()));
+		router.write(ring -> {
+			router.recordDeleteAll();
+			return router.scatter(ring, shard -> {
+				shard.applyChanges(changes);
+				return null;
+			});
+		});
+	}
+
+	/**
+	 * Sends each change to the shard owning its item, and deletions of all items to all shards
+	 */
+	@Override
+	public void applyChanges(List<ItemChange> changes) {
+		if (changes == null || changes.size() > MAX_BATCH_SIZE) {
+			throw new BadRequestException(MESSAGE_INVALID_BATCH_SIZE);
+		}
+		router.write(ring -> {
+			Map<String, List<ItemChange>> byShard = new LinkedHashMap<>();
+			for (ItemChange change : changes) {
+				if (change.getType() == ItemChange.Type.DELETE_ALL) {
+					router.recordDeleteAll();
+					ring.getShards().forEach(shard -> byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(change));
+				} else {
+					router.recordWrite(change.getItemId());
+					byShard.computeIfAbsent(ring.getOwner(change.getItemId()), key -> new ArrayList<>()).add(change);
+				}
+			}
+			return applyChanges(byShard);
+		});
+	}
+
+	private List<Void> applyChanges(Map<String, List<ItemChange>> changesByShard) {
+		List<Supplier<Void>> requests = new ArrayList<>();
+		changesByShard.forEach((shard, changes) -> requests.add(() -> {
+			router.getClient(shard).applyChanges(changes);
+			return null;
+		}));
+		return router.scatter(requests);
+	}
+
+	private ShardClient getOwner(String itemId) {
+		return router.getClient(router.getRing().getOwner(itemId));
+	}
+
+	private Operation succeeded(String itemId) {
+		Operation operation = operations.create(new UriTemplate(RESOURCE_ITEM).expand(itemId));
+		operation.succeed();
+		return operations.register(operation);
+	}
+
+	// all items of all shards, newest first
+	private List<Item> findAll(Map<String, String> parameters) {
+		ConsistentHashRing ring = router.getRing();
+		List<List<Item>> items = router.scatter(ring, shard -> getOwned(ring, shard, shard.getAllItems(parameters)));
+		return Lists.newArrayList(Iterables.mergeSorted(items, Comparator.naturalOrder()));
+	}
+
+	/*
+	 * Merges the listings of all shards newest first. The cursor holds the position of each shard in
+	 * its listing: the cursor and size of the shard's page holding its next item and the index of that
+	 * item in the page, so every shard continues exactly where the previous page stopped.
+	 */
+	private Page<Item> page(Map<String, String> parameters, String cursor, int limit) {
+		if (limit < 1 || limit > MAX_PAGE_SIZE) {
+			throw new BadRequestException(MESSAGE_INVALID_LIMIT);
+		}
+		ConsistentHashRing ring = router.getRing();
+		List<ShardListing> listings = new ArrayList<>();
+		for (String shard : ring.getShards()) {
+			listings.add(new ShardListing(ring, router.getClient(shard), parameters, limit));
+		}
+		if (cursor != null) {
+			parseCursor(cursor, listings);
+		}
+		// the first page of every shard is read in parallel, later ones as the merge reaches them
+		List<Supplier<Item>> firstPages = new ArrayList<>();
+		listings.forEach(listing -> firstPages.add(listing::peek));
+		router.scatter(firstPages);
+
+		List<Item> content = new ArrayList<>(limit);
+		while (content.size() < limit) {
+			ShardListing newest = null;
+			for (ShardListing listing : listings) {
+				Item item = listing.peek();
+				if (item != null && (newest == null || item.compareTo(newest.peek()) < 0)) {
+					newest = listing;
+				}
+			}
+			if (newest == null) {
+				break;
+			}
+			content.add(newest.peek());
+			newest.position++;
+		}
+		boolean hasNext = listings.stream().anyMatch(listing -> listing.peek() != null);
+		return new Page<>(content, hasNext ? formatCursor(listings) : null);
+	}
+
+	private static String formatCursor(List<ShardListing> listings) {
+		List<String> positions = new ArrayList<>(listings.size());
+		for (ShardListing listing : listings) {
+			positions.add(listing.exhausted
+					? CURSOR_EXHAUSTED
+					: listing.pageSize + CURSOR_PART_SEPARATOR + listing.position + CURSOR_PART_SEPARATOR
+					  + (listing.pageCursor != null ? listing.pageCursor : ""));
+		}
+		byte[] cursor = String.join(CURSOR_SHARD_SEPARATOR, positions).getBytes(StandardCharsets.UTF_8);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor);
+	}
+
+	private static void parseCursor(String cursor, List<ShardListing> listings) {
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] positions = decoded.split(CURSOR_SHARD_SEPARATOR, -1);
+			// a cursor from before a shard was added does not cover the new one
+			if (positions.length != listings.size()) {
+				throw new BadRequestException(MESSAGE_INVALID_CURSOR);
+			}
+			for (int i = 0; i < positions.length; i++) {
+				ShardListing listing = listings.get(i);
+				if (positions[i].equals(CURSOR_EXHAUSTED)) {
+					listing.exhausted = true;
+					continue;
+				}
+				String[] parts = positions[i].split(CURSOR_PART_SEPARATOR, 3);
+				if (parts.length != 3) {
+					throw new BadRequestException(MESSAGE_INVALID_CURSOR);
+				}
+				listing.pageSize = Integer.parseInt(parts[0]);
+				listing.position = Integer.parseInt(parts[1]);
+				listing.pageCursor = parts[2].isEmpty() ? null : parts[2];
+				if (listing.pageSize < 1 || listing.pageSize > MAX_PAGE_SIZE || listing.position < 0) {
+					throw new BadRequestException(MESSAGE_INVALID_CURSOR);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// not Base64 or not a number
+			throw new BadRequestException(MESSAGE_INVALID_CURSOR);
+		}
+	}
+
+	// removes the stale copies of items the shard does not own
+	private static List<Item> getOwned(ConsistentHashRing ring, ShardClient shard, List<Item> items) {
+		items.removeIf(item -> !ring.owns(shard.getUrl(), item.getId()));
+		return items;
+	}
+
+	private static Map<String, String> getFilterParameters(Map<String, String> attributes) {
+		Map<String, String> parameters = new LinkedHashMap<>();
+		attributes.forEach((key, value) -> parameters.put(PARAM_PREFIX_ATTRIBUTE + key, value));
+		return parameters;
+	}
+
+	// the tiers of TextIndex: name equal to the query, starting with it, containing it, or an attribute value only
+	private static int getSearchTier(Item item, String query) {
+		String name = item.getName();
+		if (name == null) {
+			return 3;
+		}
+		if (name.equalsIgnoreCase(query)) {
+			return 0;
+		}
+		if (name.regionMatches(true, 0, query, 0, query.length())) {
+			return 1;
+		}
+		return name.toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT)) ? 2 : 3;
+	}
+
+	private static void validateBatchSize(List<Item> requests) {
+		if (requests == null || requests.size() > MAX_BATCH_SIZE) {
+			throw new BadRequestException(MESSAGE_INVALID_BATCH_SIZE);
+		}
+	}
+
+	/**
+	 * The items of one shard owned by it, read page by page from a position in its listing
+	 */
+	private static final class ShardListing {
+
+		private final ConsistentHashRing ring;
+
+		private final ShardClient shard;
+
+		private final Map<String, String> parameters;
+
+		private final int limit;
+
+		// cursor and size of the page holding the next item, position of the next item in it
+		private String pageCursor;
+
+		private int pageSize;
+
+		private int position;
+
+		private boolean exhausted;
+
+		private Page<Item> page;
+
+		ShardListing(ConsistentHashRing ring, ShardClient shard, Map<String, String> parameters, int limit) {
+			this.ring = ring;
+			this.shard = shard;
+			this.parameters = parameters;
+			this.limit = limit;
+			this.pageSize = limit;
+		}
+
+		// the next item owned by the shard, null once the listing is exhausted
+		Item peek() {
+			while (!exhausted) {
+				if (page == null) {
+					page = shard.getItems(parameters, pageCursor, pageSize);
+				}
+				if (position < page.getContent().size()) {
+					Item item = page.getContent().get(position);
+					if (ring.owns(shard.getUrl(), item.getId())) {
+						return item;
+					}
+					position++;
+				} else if (page.hasNext()) {
+					pageCursor = page.getNextCursor();
+					pageSize = limit;
+					position = 0;
+					page = null;
+				} else {
+					exhausted = true;
+				}
+			}
+			return null;
+		}
+	}
+}
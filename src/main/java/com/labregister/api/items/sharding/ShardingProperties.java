@@ -0,0 +1,70 @@
+package com.labregister.api.items.sharding;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of the sharding mode, bound from the {@code labregister.sharding.*} properties
+ */
+@Component
+@ConfigurationProperties(prefix = "labregister.sharding")
+public class ShardingProperties {
+
+	/**
+	 * Base URLs of the shards, e.g. {@code http://localhost:8081}; if set, this instance routes all
+	 * item requests to the shards instead of storing items itself, see {@link ShardRouter}
+	 */
+	private List<String> shards = new ArrayList<>();
+
+	/**
+	 * File keeping the shards across restarts, e.g. {@code data/shards.json}; written when a shard is
+	 * added and, once it exists, used instead of {@link #shards}. Shards can only be added with it set.
+	 */
+	private String ringFile;
+
+	/**
+	 * Points of each shard on the consistent hash ring
+	 */
+	private int virtualNodes = 128;
+
+	/**
+	 * Connect and read timeout of requests to the shards
+	 */
+	private Duration timeout = Duration.ofSeconds(10);
+
+	public List<String> getShards() {
+		return shards;
+	}
+
+	public void setShards(List<String> shards) {
+		this.shards = shards;
+	}
+
+	public String getRingFile() {
+		return ringFile;
+	}
+
+	public void setRingFile(String ringFile) {
+		this.ringFile = ringFile;
+	}
+
+	public int getVirtualNodes() {
+		return virtualNodes;
+	}
+
+	public void setVirtualNodes(int virtualNodes) {
+		this.virtualNodes = virtualNodes;
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(Duration timeout) {
+		this.timeout = timeout;
+	}
+}
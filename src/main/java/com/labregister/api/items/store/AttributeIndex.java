@@ -0,0 +1,156 @@
+package com.labregister.api.items.store;
+
+import com.labregister.api.items.domain.Item;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Inverted index from attribute keys and key / value pairs to the items having them
+ * <p>
+ * Each posting list is ordered like the creation-order index of {@link ItemStore}, so a query
+ * walks the smallest posting list of its criteria in creation order and checks the remaining
+ * criteria against the item itself. A query therefore costs in proportion to the smallest
+ * posting list, not to the number of stored items.
+ * <p>
+ * Updates for one item must be serialized by the caller; postings of different items are
+ * updated concurrently.
+ */
+final class AttributeIndex {
+
+	private final ConcurrentMap<String, Posting> byKey = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<KeyValue, Posting> byKeyValue = new ConcurrentHashMap<>();
+
+	/**
+	 * Moves the item from the postings of its previous attributes to the ones of its current attributes
+	 *
+	 * @param previous attributes the item was indexed with, empty for a new item
+	 * @return number of attributes added or changed
+	 */
+	int update(CreationKey creationKey, Item item, Map<String, String> previous, Map<String, String> current) {
+		for (Map.Entry<String, String> attribute : previous.entrySet()) {
+			String value = current.get(attribute.getKey());
+			if (value == null) {
+				remove(byKey, attribute.getKey(), creationKey);
+			}
+			if (!attribute.getValue().equals(value)) {
+				remove(byKeyValue, new KeyValue(attribute.getKey(), attribute.getValue()), creationKey);
+			}
+		}
+		int changed = 0;
+		for (Map.Entry<String, String> attribute : current.entrySet()) {
+			String value = previous.get(attribute.getKey());
+			if (value == null) {
+				add(byKey, attribute.getKey(), creationKey, item);
+			}
+			if (!attribute.getValue().equals(value)) {
+				add(byKeyValue, new KeyValue(attribute.getKey(), attribute.getValue()), creationKey, item);
+				changed++;
+			}
+		}
+		return changed;
+	}
+
+	void clear() {
+		byKey.clear();
+		byKeyValue.clear();
+	}
+
+	/**
+	 * Returns the items having all of the given attributes in creation order (newest first);
+	 * an empty value matches every item having the key
+	 * <p>
+	 * The result is a weakly consistent view which may still contain items changed since
+	 * they were indexed, callers have to check the criteria against the items.
+	 */
+	NavigableMap<CreationKey, Item> candidates(Map<String, String> criteria) {
+		Posting smallest = null;
+		for (Map.Entry<String, String> criterion : criteria.entrySet()) {
+			Posting posting = criterion.getValue().isEmpty()
+					? byKey.get(criterion.getKey())
+					: byKeyValue.get(new KeyValue(criterion.getKey(), criterion.getValue()));
+			if (posting == null) {
+				return Collections.emptyNavigableMap();
+			}
+			if (smallest == null || posting.size < smallest.size) {
+				smallest = posting;
+			}
+		}
+		return smallest != null ? smallest.items : Collections.emptyNavigableMap();
+	}
+
+	static boolean matches(Item item, Map<String, String> criteria) {
+		Map<String, String> attributes = item.getAttributes();
+		for (Map.Entry<String, String> criterion : criteria.entrySet()) {
+			String value = attributes.get(criterion.getKey());
+			if (value == null || !(criterion.getValue().isEmpty() || criterion.getValue().equals(value))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static <K> void add(ConcurrentMap<K, Posting> postings, K key, CreationKey creationKey, Item item) {
+		postings.compute(key, (k, posting) -> {
+			Posting target = posting != null ? posting : new Posting();
+			if (target.items.put(creationKey, item) == null) {
+				target.size++;
+			}
+			return target;
+		});
+	}
+
+	private static <K> void remove(ConcurrentMap<K, Posting> postings, K key, CreationKey creationKey) {
+		// runs atomically with adds to the same posting, so a posting is never dropped while in use
+		postings.computeIfPresent(key, (k, posting) -> {
+			if (posting.items.remove(creationKey) != null) {
+				posting.size--;
+			}
+			return posting.size > 0 ? posting : null;
+		});
+	}
+
+	private static final class Posting {
+
+		private final ConcurrentNavigableMap<CreationKey, Item> items = new ConcurrentSkipListMap<>();
+
+		// only modified while the posting's entry is locked, ConcurrentSkipListMap#size() is O(n)
+		private volatile int size;
+	}
+
+	private static final class KeyValue {
+
+		private final String key;
+
+		private final String value;
+
+		KeyValue(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof KeyValue)) {
+				return false;
+			}
+			KeyValue other = (KeyValue) o;
+			return key.equals(other.key) && value.equals(other.value);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(key, value);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.labregister.api.items.store;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position of an item in the creation-order index of {@link ItemStore}
+ * <p>
+ * Keys sort newest first by creation date; items created within the same millisecond are
+ * ordered by the store-wide creation sequence. A key also serves as the pagination cursor,
+ * encoded as an opaque URL-safe string.
+ */
+final class CreationKey implements Comparable<CreationKey> {
+
+	private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+	private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
+
+	private final long creationTime;
+
+	private final long sequence;
+
+	CreationKey(long creationTime, long sequence) {
+		this.creationTime = creationTime;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * @return the first key, in index order, of the items created at or before the given time
+	 */
+	static CreationKey latestAt(long time) {
+		return new CreationKey(time, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the cursor was not produced by {@link #toCursor()}
+	 */
+	static CreationKey fromCursor(String cursor) {
+		byte[] bytes = CURSOR_DECODER.decode(cursor);
+		if (bytes.length != 2 * Long.BYTES) {
+			throw new IllegalArgumentException("Malformed cursor: " + cursor);
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		return new CreationKey(buffer.getLong(), buffer.getLong());
+	}
+
+	String toCursor() {
+		ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES)
+		                              .putLong(creationTime)
+		                              .putLong(sequence);
+		return CURSOR_ENCODER.encodeToString(buffer.array());
+	}
+
+	@Override
+	public int compareTo(CreationKey other) {
+		int byTime = Long.compare(other.creationTime, creationTime);
+		return byTime != 0 ? byTime : Long.compare(other.sequence, sequence);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		CreationKey that = (CreationKey) o;
+		return creationTime == that.creationTime && sequence == that.sequence;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(creationTime) * 31 + Long.hashCode(sequence);
+	}
+}
@@ -0,0 +1,118 @@
+package com.labregister.api.items.store;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable description of one mutation applied to the {@link ItemStore}
+ * <p>
+ * Changes are what the store hands to its {@link ItemChangeLog}; replaying them in order
+ * through {@link ItemStore#apply(ItemChange)} rebuilds the same items and version history.
+ * Creates and updates carry the version number they produced, which makes replaying a change
+ * that is already contained in the store a no-op. Changes are also sent as JSON to other instances,
+ * which apply them through {@link ItemStore#applyAll(java.util.List)}.
+ */
+public final class ItemChange {
+
+	public enum Type {
+		CREATE,
+		UPDATE,
+		DELETE_ALL,
+		DELETE
+	}
+
+	private final Type type;
+
+	private final String itemId;
+
+	private final String name;
+
+	private final Map<String, String> attributes;
+
+	private final long timestamp;
+
+	private final int versionNumber;
+
+	@JsonCreator
+	public ItemChange(@JsonProperty("type") Type type, @JsonProperty("itemId") String itemId,
+	                  @JsonProperty("name") String name, @JsonProperty("attributes") Map<String, String> attributes,
+	                  @JsonProperty("timestamp") long timestamp, @JsonProperty("versionNumber") int versionNumber) {
+		Preconditions.checkArgument(type != null);
+		Preconditions.checkArgument(type == Type.DELETE_ALL || itemId != null);
+
+		this.type = type;
+		this.itemId = itemId;
+		this.name = name;
+		this.attributes = attributes != null ? attributes : Collections.emptyMap();
+		this.timestamp = timestamp;
+		this.versionNumber = versionNumber;
+	}
+
+	/**
+	 * @return the change creating the given version of an item, i.e. a create for version 1 and an
+	 * update for all later ones
+	 */
+	public static ItemChange of(String itemId, ItemVersion version) {
+		Type type = version.getVersionNumber() == 1 ? Type.CREATE : Type.UPDATE;
+		return new ItemChange(type, itemId, version.getName(), version.getAttributes(),
+		                      version.getVersionDate().getTime(), version.getVersionNumber());
+	}
+
+	static ItemChange created(Item item) {
+		return new ItemChange(Type.CREATE, item.getId(), item.getName(), item.getAttributes(),
+		                      item.getCreationDate().getTime(), item.getVersionNumber());
+	}
+
+	static ItemChange updated(Item item) {
+		return new ItemChange(Type.UPDATE, item.getId(), item.getName(), item.getAttributes(),
+		                      item.getLastUpdateDate().getTime(), item.getVersionNumber());
+	}
+
+	public static ItemChange deletedAll(long timestamp) {
+		return new ItemChange(Type.DELETE_ALL, null, null, null, timestamp, 0);
+	}
+
+	public static ItemChange deleted(String itemId, long timestamp) {
+		return new ItemChange(Type.DELETE, itemId, null, null, timestamp, 0);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return id of the changed item, {@code null} for {@link Type#DELETE_ALL}
+	 */
+	public String getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Map<String, String> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * @return creation date for {@link Type#CREATE}, update date for {@link Type#UPDATE},
+	 * time of deletion for {@link Type#DELETE_ALL} and {@link Type#DELETE} (epoch millis)
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return the item version created by this change, 0 for {@link Type#DELETE_ALL} and {@link Type#DELETE}
+	 */
+	public int getVersionNumber() {
+		return versionNumber;
+	}
+}
@@ -0,0 +1,14 @@
+package com.labregister.api.items.store;
+
+/**
+ * Observer of the changes applied to an {@link ItemStore}, including replayed ones
+ */
+@FunctionalInterface
+public interface ItemChangeListener {
+
+	/**
+	 * Called while the store holds the lock of the changed item, so changes to one item are
+	 * observed in the order they were applied; implementations must return quickly and never block
+	 */
+	void onChange(ItemChange change);
+}
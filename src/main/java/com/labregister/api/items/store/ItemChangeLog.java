@@ -0,0 +1,32 @@
+package com.labregister.api.items.store;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sink for the changes applied to an {@link ItemStore}, e.g. a durable write-ahead log
+ */
+public interface ItemChangeLog {
+
+	/**
+	 * Log that discards all changes, used while the store runs purely in memory
+	 */
+	ItemChangeLog NONE = change -> CompletableFuture.completedFuture(null);
+
+	/**
+	 * Appends a change to the log
+	 * <p>
+	 * Called while the store holds the lock of the changed item, so changes to one item are
+	 * appended in the order they were applied. Implementations must only enqueue the change
+	 * here; the store waits for the returned future after releasing the lock.
+	 *
+	 * @return future completing once the change is as durable as the log guarantees
+	 */
+	CompletableFuture<?> append(ItemChange change);
+
+	/**
+	 * @return whether the log still takes changes; the store refuses all changes once it does not
+	 */
+	default boolean isWritable() {
+		return true;
+	}
+}
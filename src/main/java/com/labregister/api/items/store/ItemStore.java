@@ -0,0 +1,667 @@
+package com.labregister.api.items.store;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.labregister.api.core.collection.StringPool;
+import com.labregister.api.core.exception.ServiceUnavailableException;
+import com.labregister.api.core.pagination.Page;
+import com.labregister.api.items.domain.ArchivedVersions;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe in-memory store for {@link Item}s
+ * <p>
+ * Items live in a {@link ConcurrentHashMap}: reads never block, and every create / update
+ * runs atomically for its item id while only locking the hash bin of that id. Writes to
+ * different items therefore proceed in parallel and scale with the number of cores, while
+ * concurrent writes to the same item are serialized so no version is ever lost.
+ * <p>
+ * Next to the id lookup, the store maintains a creation-order index (newest first) in a
+ * {@link ConcurrentSkipListMap}. It is updated on insert, so listing items never sorts and
+ * a page of items is found in O(log n + page size). An {@link AttributeIndex} and a {@link TextIndex}
+ * are updated together with each item, so items can be queried by attributes and searched by text
+ * without a scan.
+ * <p>
+ * Names, attribute keys and attribute values entering a version are deduplicated through a
+ * {@link StringPool}, so the many items and versions repeating the same strings share one instance each.
+ * <p>
+ * Every applied change is appended to the configured {@link ItemChangeLog} and handed to the
+ * registered {@link ItemChangeListener}s while the item's lock is held, and the calling thread
+ * waits for the log outside of the lock. Once the log is no longer writable, e.g. after a disk
+ * failure, the store turns read-only: every change is refused before it touches the items, so
+ * readers and listeners never see a change that cannot be made durable. Only the changes the log
+ * accepted before failing are reported as failed while they are applied already.
+ */
+@Component
+public class ItemStore {
+
+	private static final String MESSAGE_LOG_FAILED = "Item store is unable to persist changes";
+
+	private final ConcurrentMap<String, Item> items = new ConcurrentHashMap<>();
+
+	private final ConcurrentNavigableMap<CreationKey, Item> creationIndex = new ConcurrentSkipListMap<>();
+
+	private final ConcurrentMap<String, CreationKey> creationKeys = new ConcurrentHashMap<>();
+
+	private final AtomicLong creationSequence = new AtomicLong();
+
+	private final AttributeIndex attributeIndex = new AttributeIndex();
+
+	// an item removed from the store stays in the postings until the next compaction
+	private final TextIndex textIndex = new TextIndex(item -> items.get(item.getId()) == item);
+
+	// distinguishes the modification counts of different store instances, e.g. across restarts
+	private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+	private final AtomicLong modifications = new AtomicLong();
+
+	private final ItemStoreStatistics statistics = new ItemStoreStatistics();
+
+	private volatile ItemChangeLog changeLog = ItemChangeLog.NONE;
+
+	private final List<ItemChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+	private final StringPool strings;
+
+	private final UnaryOperator<String> intern;
+
+	public ItemStore() {
+		this(new ItemStoreProperties());
+	}
+
+	@Autowired
+	public ItemStore(ItemStoreProperties properties) {
+		this.strings = new StringPool(properties.getStringPoolCapacity());
+		this.intern = strings::intern;
+	}
+
+	public void setChangeLog(ItemChangeLog changeLog) {
+		Preconditions.checkArgument(changeLog != null);
+		this.changeLog = changeLog;
+	}
+
+	public void addChangeListener(ItemChangeListener listener) {
+		Preconditions.checkArgument(listener != null);
+		changeListeners.add(listener);
+	}
+
+	public void removeChangeListener(ItemChangeListener listener) {
+		changeListeners.remove(listener);
+	}
+
+	/**
+	 * Stores a new item and records its first version
+	 *
+	 * @throws IllegalStateException if an item with the same id is already stored
+	 */
+	public Item create(Item item) {
+		PendingChange pending = new PendingChange();
+		Item created = create(item, changeLog, pending);
+		statistics.recordCreated();
+		pending.await();
+		return created;
+	}
+
+	/**
+	 * Stores all items like {@link #create(Item)}, waiting for the change log only once for the whole batch
+	 *
+	 * @throws IllegalStateException if an item with the same id is already stored; the items
+	 *                               preceding it in the batch are stored
+	 */
+	public List<Item> createAll(List<Item> batch) {
+		Preconditions.checkArgument(batch != null);
+
+		List<Item> created = new ArrayList<>(batch.size());
+		List<PendingChange> pendingChanges = new ArrayList<>(batch.size());
+		try {
+			for (Item item : batch) {
+				PendingChange pending = new PendingChange();
+				created.add(create(item, changeLog, pending));
+				statistics.recordCreated();
+				pendingChanges.add(pending);
+			}
+		} finally {
+			PendingChange.awaitAll(pendingChanges);
+		}
+		return created;
+	}
+
+	/**
+	 * Stores all items like {@link #createAll(List)}, but each one on its own: an item that cannot be
+	 * stored does not stop the following ones
+	 *
+	 * @return per item a completed future, holding the stored item or failed with the exception refusing it;
+	 * an item stored before the change log failed counts as stored
+	 */
+	public List<CompletableFuture<Item>> createEach(List<Item> batch) {
+		Preconditions.checkArgument(batch != null);
+
+		List<CompletableFuture<Item>> results = new ArrayList<>(batch.size());
+		List<PendingChange> pendingChanges = new ArrayList<>(batch.size());
+		for (Item item : batch) {
+			PendingChange pending = new PendingChange();
+			try {
+				results.add(CompletableFuture.completedFuture(create(item, changeLog, pending)));
+				statistics.recordCreated();
+				pendingChanges.add(pending);
+			} catch (RuntimeException e) {
+				results.add(failed(e));
+			}
+		}
+		PendingChange.awaitApplied(pendingChanges);
+		return results;
+	}
+
+	private Item create(Item item, ItemChangeLog log, PendingChange pending) {
+		Preconditions.checkArgument(item != null && item.getId() != null);
+
+		Item created = items.compute(item.getId(), (id, existing) -> {
+			if (existing != null) {
+				throw new IllegalStateException("Item already exists: " + id);
+			}
+			checkWritable(log);
+			item.createVersion(intern);
+			CreationKey creationKey = new CreationKey(item.getCreationDate().getTime(), creationSequence.incrementAndGet());
+			creationIndex.put(creationKey, item);
+			creationKeys.put(id, creationKey);
+			int changedAttributes = attributeIndex.update(creationKey, item, Collections.emptyMap(), item.getAttributes());
+			textIndex.update(item, null, Collections.emptyMap());
+			statistics.recordVersion(item.getName(), changedAttributes);
+			modifications.incrementAndGet();
+			pending.logged = publish(ItemChange.created(item), log);
+			return item;
+		});
+		updateTextIndex();
+		return created;
+	}
+
+	/**
+	 * Atomically applies the name and attributes of {@code request} to the stored item,
+	 * creating a new version only if one of them actually changed
+	 *
+	 * @return the stored item, or {@code null} if no item with the given id exists
+	 */
+	public Item update(String id, Item request, Date updateDate) {
+		PendingChange pending = new PendingChange();
+		Item updated = update(id, request, updateDate, pending);
+		pending.await();
+		return updated;
+	}
+
+	/**
+	 * Applies all update requests like {@link #update(String, Item, Date)}, in order and with the id
+	 * of each request, waiting for the change log only once for the whole batch
+	 *
+	 * @return the stored items, with {@code null} for requests whose item does not exist
+	 */
+	public List<Item> updateAll(List<Item> requests, Date updateDate) {
+		Preconditions.checkArgument(requests != null);
+
+		List<Item> updated = new ArrayList<>(requests.size());
+		List<PendingChange> pendingChanges = new ArrayList<>(requests.size());
+		try {
+			for (Item request : requests) {
+				PendingChange pending = new PendingChange();
+				updated.add(update(request.getId(), request, updateDate, pending));
+				pendingChanges.add(pending);
+			}
+		} finally {
+			PendingChange.awaitAll(pendingChanges);
+		}
+		return updated;
+	}
+
+	/**
+	 * Applies all update requests like {@link #updateAll(List, Date)}, but each one on its own: a request
+	 * that cannot be applied does not stop the following ones
+	 *
+	 * @return per request a completed future, holding the stored item or {@code null} if it does not exist,
+	 * or failed with the exception refusing the request; an update applied before the change log failed
+	 * counts as applied
+	 */
+	public List<CompletableFuture<Item>> updateEach(List<Item> requests, Date updateDate) {
+		Preconditions.checkArgument(requests != null);
+
+		List<CompletableFuture<Item>> results = new ArrayList<>(requests.size());
+		List<PendingChange> pendingChanges = new ArrayList<>(requests.size());
+		for (Item request : requests) {
+			PendingChange pending = new PendingChange();
+			try {
+				results.add(CompletableFuture.completedFuture(update(request.getId(), request, updateDate, pending)));
+				pendingChanges.add(pending);
+			} catch (RuntimeException e) {
+				results.add(failed(e));
+			}
+		}
+		PendingChange.awaitApplied(pendingChanges);
+		return results;
+	}
+
+	private Item update(String id, Item request, Date updateDate, PendingChange pending) {
+		Preconditions.checkArgument(id != null && request != null);
+
+		Item updated = items.computeIfPresent(id, (key, existing) -> {
+			if (existing.equals(request)) {
+				statistics.recordUpdate(false);
+				return existing;
+			}
+			checkWritable(changeLog);
+			applyUpdate(existing, request.getName(), request.getAttributes(), updateDate);
+			statistics.recordUpdate(true);
+			pending.logged = publish(ItemChange.updated(existing), changeLog);
+			return existing;
+		});
+		updateTextIndex();
+		return updated;
+	}
+
+	/**
+	 * Re-applies a change read back from a log, without appending it to the change log again
+	 * <p>
+	 * Changes already contained in the store (an existing item for a create, an item at the same
+	 * or a later version for an update, a missing item for a delete) are skipped, so a log may be
+	 * replayed on top of a snapshot that already includes some of its changes.
+	 */
+	public void apply(ItemChange change) {
+		apply(change, ItemChangeLog.NONE, new PendingChange());
+	}
+
+	/**
+	 * Applies changes received from another instance in order like {@link #apply(ItemChange)}, but
+	 * appends the applied ones to the change log, waiting for it only once for the whole batch
+	 */
+	public void applyAll(List<ItemChange> changes) {
+		Preconditions.checkArgument(changes != null);
+
+		List<PendingChange> pendingChanges = new ArrayList<>(changes.size());
+		try {
+			for (ItemChange change : changes) {
+				PendingChange pending = new PendingChange();
+				apply(change, changeLog, pending);
+				pendingChanges.add(pending);
+			}
+		} finally {
+			PendingChange.awaitAll(pendingChanges);
+		}
+	}
+
+	private void apply(ItemChange change, ItemChangeLog log, PendingChange pending) {
+		switch (change.getType()) {
+			case CREATE:
+				if (!items.containsKey(change.getItemId())) {
+					Item item = new Item(change.getName(), change.getAttributes());
+					item.setId(change.getItemId());
+					item.setCreationDate(new Date(change.getTimestamp()));
+					create(item, log, pending);
+				}
+				break;
+			case UPDATE:
+				items.computeIfPresent(change.getItemId(), (key, existing) -> {
+					if (change.getVersionNumber() > existing.getVersionNumber()) {
+						checkWritable(log);
+						applyUpdate(existing, change.getName(), change.getAttributes(), new Date(change.getTimestamp()));
+						pending.logged = publish(ItemChange.updated(existing), log);
+					}
+					return existing;
+				});
+				updateTextIndex();
+				break;
+			case DELETE_ALL:
+				clear(log);
+				break;
+			case DELETE:
+				items.computeIfPresent(change.getItemId(), (key, existing) -> {
+					checkWritable(log);
+					remove(existing);
+					pending.logged = publish(ItemChange.deleted(key, change.getTimestamp()), log);
+					return null;
+				});
+				updateTextIndex();
+				break;
+		}
+	}
+
+	// drops the item from the indexes and the statistics, while holding its lock
+	private void remove(Item item) {
+		CreationKey creationKey = creationKeys.remove(item.getId());
+		// missing only for an item which survived a concurrent clear(), see there
+		if (creationKey != null) {
+			creationIndex.remove(creationKey);
+			attributeIndex.update(creationKey, item, item.getAttributes(), Collections.emptyMap());
+			textIndex.remove(item);
+
+			// the held versions oldest first, counted like when they were recorded
+			List<ItemVersion> held = item.getVersions(item.getFirstHeldVersion(), Integer.MAX_VALUE, Integer.MAX_VALUE);
+			Map<String, String> previous = Collections.emptyMap();
+			for (ItemVersion version : Lists.reverse(held)) {
+				int changedAttributes = 0;
+				for (Map.Entry<String, String> attribute : version.getAttributes().entrySet()) {
+					if (!Objects.equals(previous.get(attribute.getKey()), attribute.getValue())) {
+						changedAttributes++;
+					}
+				}
+				statistics.recordRemoved(version.getName(), changedAttributes);
+				previous = version.getAttributes();
+			}
+			statistics.recordRemovedArchived(item.getFirstHeldVersion() - 1);
+		}
+		modifications.incrementAndGet();
+	}
+
+	/**
+	 * Releases the oldest held versions of a stored item from the heap, see {@link Item#archiveVersions}
+	 *
+	 * @param versions consecutive versions starting with the item's first held version, oldest first
+	 * @param archived the archived versions of the item up to the last of {@code versions}
+	 * @return whether the item is still stored
+	 */
+	public boolean archiveVersions(Item item, List<ItemVersion> versions, ArchivedVersions archived) {
+		Preconditions.checkArgument(item != null && versions != null && !versions.isEmpty());
+		if (items.get(item.getId()) != item) {
+			return false;
+		}
+		item.archiveVersions(versions.get(versions.size() - 1).getVersionNumber(), archived);
+
+		Map<String, String> previous = Collections.emptyMap();
+		for (ItemVersion version : versions) {
+			int changedAttributes = 0;
+			for (Map.Entry<String, String> attribute : version.getAttributes().entrySet()) {
+				if (!Objects.equals(previous.get(attribute.getKey()), attribute.getValue())) {
+					changedAttributes++;
+				}
+			}
+			statistics.recordArchived(version.getName(), changedAttributes);
+			previous = version.getAttributes();
+		}
+		return true;
+	}
+
+	public Optional<Item> get(String id) {
+		return Optional.ofNullable(items.get(id));
+	}
+
+	/**
+	 * Weakly consistent view of all stored items, newest first; safe to iterate while writers are active
+	 */
+	public Collection<Item> values() {
+		return Collections.unmodifiableCollection(creationIndex.values());
+	}
+
+	/**
+	 * Returns up to {@code limit} items in creation order (newest first), starting right after
+	 * the item the given cursor points to
+	 *
+	 * @param cursor cursor of a previous page, or {@code null} to start with the newest item
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public Page<Item> page(String cursor, int limit) {
+		return page(creationIndex, UnaryOperator.identity(), cursor, limit);
+	}
+
+	/**
+	 * Returns up to {@code limit} items having all of the given attributes, in creation order
+	 * (newest first) and paginated like {@link #page(String, int)}
+	 * <p>
+	 * Uses the attribute index: the cost is proportional to the number of items having the
+	 * rarest of the given attributes, independent of the total number of items.
+	 *
+	 * @param attributes required attribute values; an empty value requires the key with any value
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public Page<Item> find(Map<String, String> attributes, String cursor, int limit) {
+		Preconditions.checkArgument(attributes != null);
+		if (attributes.isEmpty()) {
+			return page(cursor, limit);
+		}
+		return page(attributeIndex.candidates(attributes), withAttributes(attributes), cursor, limit);
+	}
+
+	/**
+	 * Returns up to {@code limit} items as they were at {@code asOf}, see {@link Item#asOf(Date)}, in
+	 * creation order (newest first) and paginated like {@link #page(String, int)}
+	 * <p>
+	 * Items created after {@code asOf} are skipped in O(log n) through the creation-order index, and
+	 * only the versions of the returned page are looked up. Attributes are matched against the versions
+	 * as of that time, so the attribute index of current values is not used.
+	 *
+	 * @param attributes required attribute values; an empty value requires the key with any value
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public Page<Item> findAsOf(Date asOf, Map<String, String> attributes, String cursor, int limit) {
+		Preconditions.checkArgument(asOf != null && attributes != null);
+		return page(createdAtOrBefore(asOf), asOf(asOf, attributes), cursor, limit);
+	}
+
+	private NavigableMap<CreationKey, Item> createdAtOrBefore(Date asOf) {
+		return creationIndex.tailMap(CreationKey.latestAt(asOf.getTime()), true);
+	}
+
+	// views of indexed items, null for an item to skip
+	private static UnaryOperator<Item> withAttributes(Map<String, String> attributes) {
+		return item -> AttributeIndex.matches(item, attributes) ? item : null;
+	}
+
+	private static UnaryOperator<Item> asOf(Date asOf, Map<String, String> attributes) {
+		return item -> {
+			Item past = item.asOf(asOf);
+			return past != null && AttributeIndex.matches(past, attributes) ? past : null;
+		};
+	}
+
+	private static Page<Item> page(NavigableMap<CreationKey, Item> index, UnaryOperator<Item> view,
+	                               String cursor, int limit) {
+		Preconditions.checkArgument(limit > 0);
+
+		NavigableMap<CreationKey, Item> remaining = cursor == null
+				? index
+				: index.tailMap(CreationKey.fromCursor(cursor), false);
+
+		List<Item> content = new ArrayList<>(Math.min(limit, 64));
+		CreationKey lastKey = null;
+		Iterator<Map.Entry<CreationKey, Item>> entries = remaining.entrySet().iterator();
+		boolean hasNext = false;
+		while (entries.hasNext()) {
+			Map.Entry<CreationKey, Item> entry = entries.next();
+			// postings may briefly lag behind concurrent updates, the item itself is authoritative
+			Item item = view.apply(entry.getValue());
+			if (item == null) {
+				continue;
+			}
+			if (content.size() == limit) {
+				hasNext = true;
+				break;
+			}
+			content.add(item);
+			lastKey = entry.getKey();
+		}
+
+		return new Page<>(content, hasNext ? lastKey.toCursor() : null);
+	}
+
+	/**
+	 * Weakly consistent view of the items having all of the given attributes, newest first, iterated
+	 * lazily through the attribute index like {@link #find(Map, String, int)}
+	 */
+	public Iterable<Item> findAll(Map<String, String> attributes) {
+		Preconditions.checkArgument(attributes != null);
+		if (attributes.isEmpty()) {
+			return values();
+		}
+		Collection<Item> candidates = attributeIndex.candidates(attributes).values();
+		return Iterables.filter(candidates, item -> AttributeIndex.matches(item, attributes));
+	}
+
+	/**
+	 * Returns up to {@code limit} items whose name or an attribute value contains the query, ignoring
+	 * case, best matches first, see {@link TextIndex#search(String, int)}
+	 * <p>
+	 * Uses the text index: the cost is proportional to the number of items sharing the query's rarest
+	 * trigram, independent of the total number of items.
+	 *
+	 * @throws IllegalArgumentException if the query is shorter than {@value TextIndex#MIN_QUERY_LENGTH} characters
+	 */
+	public List<Item> search(String query, int limit) {
+		Preconditions.checkArgument(limit > 0);
+		return textIndex.search(query, limit);
+	}
+
+	/**
+	 * Weakly consistent view of all stored items, oldest first
+	 */
+	public Collection<Item> valuesOldestFirst() {
+		return Collections.unmodifiableCollection(creationIndex.descendingMap().values());
+	}
+
+	/**
+	 * Returns a tag which changes with every change to any item, e.g. to derive an ETag of item listings
+	 * <p>
+	 * The tag is advanced after a change is applied: a tag read before reading items never belongs
+	 * to an older state than the one read.
+	 */
+	public String getModificationTag() {
+		return epoch + "-" + modifications.get();
+	}
+
+	public int size() {
+		return items.size();
+	}
+
+	public ItemStoreStatistics getStatistics() {
+		return statistics;
+	}
+
+	public StringPool getStringPool() {
+		return strings;
+	}
+
+	/**
+	 * Removes all items
+	 * <p>
+	 * Not atomic with respect to concurrent creates: an item created while clearing may survive.
+	 */
+	public void clear() {
+		clear(changeLog);
+	}
+
+	private void clear(ItemChangeLog log) {
+		checkWritable(log);
+		items.clear();
+		creationIndex.clear();
+		creationKeys.clear();
+		attributeIndex.clear();
+		textIndex.clear();
+		statistics.clearVersions();
+		modifications.incrementAndGet();
+
+		PendingChange pending = new PendingChange();
+		pending.logged = publish(ItemChange.deletedAll(System.currentTimeMillis()), log);
+		pending.await();
+	}
+
+	private void applyUpdate(Item item, String name, Map<String, String> attributes, Date updateDate) {
+		String previousName = item.getName();
+		Map<String, String> previousAttributes = item.getAttributes();
+		item.createVersion(name, attributes, updateDate, intern);
+		CreationKey creationKey = creationKeys.get(item.getId());
+		// missing only for an item which survived a concurrent clear(), see there
+		if (creationKey != null) {
+			int changedAttributes = attributeIndex.update(creationKey, item, previousAttributes, item.getAttributes());
+			textIndex.update(item, previousName, previousAttributes);
+			statistics.recordVersion(name, changedAttributes);
+		}
+		modifications.incrementAndGet();
+	}
+
+	// outside of any item's lock; oldest first, so that document numbers keep following the creation order
+	private void updateTextIndex() {
+		textIndex.flush();
+		textIndex.compact(valuesOldestFirst());
+	}
+
+	private static CompletableFuture<Item> failed(RuntimeException failure) {
+		CompletableFuture<Item> result = new CompletableFuture<>();
+		result.completeExceptionally(failure);
+		return result;
+	}
+
+	// refuses a change before it is applied if the log cannot take it
+	private static void checkWritable(ItemChangeLog log) {
+		if (!log.isWritable()) {
+			throw new ServiceUnavailableException(MESSAGE_LOG_FAILED);
+		}
+	}
+
+	// appends the change to the log and hands it to the listeners
+	private CompletableFuture<?> publish(ItemChange change, ItemChangeLog log) {
+		CompletableFuture<?> logged = log.append(change);
+		for (ItemChangeListener listener : changeListeners) {
+			listener.onChange(change);
+		}
+		return logged;
+	}
+
+	private static final class PendingChange {
+
+		private CompletableFuture<?> logged;
+
+		static void awaitAll(List<PendingChange> pendingChanges) {
+			// all changes are appended already, so the log writes them as one group
+			ServiceUnavailableException failure = null;
+			for (PendingChange pending : pendingChanges) {
+				try {
+					pending.await();
+				} catch (ServiceUnavailableException e) {
+					failure = e;
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+		// like awaitAll(), for changes that stay applied even if the log fails to persist them
+		static void awaitApplied(List<PendingChange> pendingChanges) {
+			try {
+				awaitAll(pendingChanges);
+			} catch (ServiceUnavailableException e) {
+				// the log failed and refuses all further changes; it reports the failure itself
+			}
+		}
+
+		void await() {
+			if (logged == null) {
+				return;
+			}
+			try {
+				logged.join();
+			} catch (CompletionException e) {
+				throw new ServiceUnavailableException(MESSAGE_LOG_FAILED);
+			}
+		}
+	}
+}
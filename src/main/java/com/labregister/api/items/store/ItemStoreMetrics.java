@@ -0,0 +1,65 @@
+package com.labregister.api.items.store;
+
+import com.labregister.api.core.collection.StringPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the {@link ItemStoreStatistics} as meters
+ * <p>
+ * The meters read the store's counters when they are scraped, nothing is recorded through
+ * the meter registry while items are changed.
+ */
+@Component
+public class ItemStoreMetrics implements MeterBinder {
+
+	private final ItemStore store;
+
+	public ItemStoreMetrics(ItemStore store) {
+		this.store = store;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		ItemStoreStatistics statistics = store.getStatistics();
+
+		FunctionCounter.builder("labregister.items.created", statistics, ItemStoreStatistics::getCreated)
+		               .description("Items created")
+		               .register(registry);
+		FunctionCounter.builder("labregister.items.updates", statistics, ItemStoreStatistics::getNewVersions)
+		               .description("Item updates, by whether they created a new version")
+		               .tag("result", "new_version")
+		               .register(registry);
+		FunctionCounter.builder("labregister.items.updates", statistics, ItemStoreStatistics::getUnchangedUpdates)
+		               .description("Item updates, by whether they created a new version")
+		               .tag("result", "unchanged")
+		               .register(registry);
+
+		StringPool strings = store.getStringPool();
+		FunctionCounter.builder("labregister.items.strings.deduplicated", strings, StringPool::getDeduplicatedCount)
+		               .description("Names, attribute keys and values replaced by an equal pooled instance")
+		               .register(registry);
+		FunctionCounter.builder("labregister.items.strings.saved", strings, StringPool::getSavedBytes)
+		               .description("Estimated heap of the strings replaced by an equal pooled instance")
+		               .baseUnit(BaseUnits.BYTES)
+		               .register(registry);
+
+		Gauge.builder("labregister.items", store, ItemStore::size)
+		     .description("Stored items")
+		     .register(registry);
+		Gauge.builder("labregister.items.versions", statistics, ItemStoreStatistics::getVersions)
+		     .description("Versions of all stored items")
+		     .register(registry);
+		Gauge.builder("labregister.items.versions.archived", statistics, ItemStoreStatistics::getArchivedVersions)
+		     .description("Versions of all stored items moved from the heap to the archive")
+		     .register(registry);
+		Gauge.builder("labregister.items.history.size", statistics, ItemStoreStatistics::getEstimatedHistoryBytes)
+		     .description("Estimated heap used by the versions of all stored items, not counting archived versions")
+		     .baseUnit(BaseUnits.BYTES)
+		     .register(registry);
+	}
+}
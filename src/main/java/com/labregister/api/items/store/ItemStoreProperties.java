@@ -0,0 +1,167 @@
+package com.labregister.api.items.store;
+
+import com.labregister.api.items.store.persistence.FsyncPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link ItemStore}, bound from the {@code labregister.store.*} properties
+ */
+@Component
+@ConfigurationProperties(prefix = "labregister.store")
+public class ItemStoreProperties {
+
+	/**
+	 * Persist all changes to a write-ahead log in {@link #dataDirectory} and replay it on startup
+	 */
+	private boolean durable = false;
+
+	private String dataDirectory = "data";
+
+	private FsyncPolicy fsyncPolicy = FsyncPolicy.ALWAYS;
+
+	/**
+	 * Maximum time between two fsyncs with {@link FsyncPolicy#INTERVAL}
+	 */
+	private Duration fsyncInterval = Duration.ofMillis(100);
+
+	/**
+	 * Maximum number of changes written (and fsynced) as one batch
+	 */
+	private int maxBatchSize = 1024;
+
+	/**
+	 * Time between two snapshots of the store, after which older log segments are deleted
+	 */
+	private Duration snapshotInterval = Duration.ofMinutes(5);
+
+	/**
+	 * Maximum number of asynchronous writes waiting to be applied, further ones are rejected
+	 */
+	private int writeQueueCapacity = 10_000;
+
+	/**
+	 * Number of recent changes kept for change feed subscribers resuming after a disconnect
+	 */
+	private int changeFeedCapacity = 10_000;
+
+	/**
+	 * Maximum number of distinct names, attribute keys and values shared between items and versions
+	 */
+	private int stringPoolCapacity = 65_536;
+
+	/**
+	 * Number of latest versions of each item kept on the heap, older ones are moved to the version
+	 * archive in {@link #dataDirectory}; 0 keeps all versions unless {@link #versionRetentionAge} is set
+	 */
+	private int versionRetentionCount = 0;
+
+	/**
+	 * Age up to which versions are kept on the heap, older ones are moved to the version archive;
+	 * {@code null} keeps all versions unless {@link #versionRetentionCount} is set
+	 */
+	private Duration versionRetentionAge;
+
+	/**
+	 * Time between two checks of all items for versions to archive
+	 */
+	private Duration versionArchiveInterval = Duration.ofMinutes(1);
+
+	public boolean isDurable() {
+		return durable;
+	}
+
+	public void setDurable(boolean durable) {
+		this.durable = durable;
+	}
+
+	public String getDataDirectory() {
+		return dataDirectory;
+	}
+
+	public void setDataDirectory(String dataDirectory) {
+		this.dataDirectory = dataDirectory;
+	}
+
+	public FsyncPolicy getFsyncPolicy() {
+		return fsyncPolicy;
+	}
+
+	public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+		this.fsyncPolicy = fsyncPolicy;
+	}
+
+	public Duration getFsyncInterval() {
+		return fsyncInterval;
+	}
+
+	public void setFsyncInterval(Duration fsyncInterval) {
+		this.fsyncInterval = fsyncInterval;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public Duration getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	public void setSnapshotInterval(Duration snapshotInterval) {
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	public int getWriteQueueCapacity() {
+		return writeQueueCapacity;
+	}
+
+	public void setWriteQueueCapacity(int writeQueueCapacity) {
+		this.writeQueueCapacity = writeQueueCapacity;
+	}
+
+	public int getChangeFeedCapacity() {
+		return changeFeedCapacity;
+	}
+
+	public void setChangeFeedCapacity(int changeFeedCapacity) {
+		this.changeFeedCapacity = changeFeedCapacity;
+	}
+
+	public int getVersionRetentionCount() {
+		return versionRetentionCount;
+	}
+
+	public void setVersionRetentionCount(int versionRetentionCount) {
+		this.versionRetentionCount = versionRetentionCount;
+	}
+
+	public Duration getVersionRetentionAge() {
+		return versionRetentionAge;
+	}
+
+	public void setVersionRetentionAge(Duration versionRetentionAge) {
+		this.versionRetentionAge = versionRetentionAge;
+	}
+
+	public Duration getVersionArchiveInterval() {
+		return versionArchiveInterval;
+	}
+
+	public void setVersionArchiveInterval(Duration versionArchiveInterval) {
+		this.versionArchiveInterval = versionArchiveInterval;
+	}
+
+	public int getStringPoolCapacity() {
+		return stringPoolCapacity;
+	}
+
+	public void setStringPoolCapacity(int stringPoolCapacity) {
+		this.stringPoolCapacity = stringPoolCapacity;
+	}
+}
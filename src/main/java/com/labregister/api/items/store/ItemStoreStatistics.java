@@ -0,0 +1,119 @@
+package com.labregister.api.items.store;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of an {@link ItemStore}, recorded on every change without locking or contention
+ * <p>
+ * The heap used by the version history is estimated from the name and the number of added or
+ * changed attributes of each version, with rough object sizes of a 64-bit JVM with compressed
+ * references; attributes unchanged from the previous version are shared with it and not counted again.
+ */
+public class ItemStoreStatistics {
+
+	// ItemVersion and its slot in the history array
+	private static final long VERSION_BYTES = 40;
+
+	// map entry, the trie nodes copied for it (amortized) and a short key and value
+	private static final long ATTRIBUTE_BYTES = 160;
+
+	// String and the header of its char array
+	private static final long STRING_BYTES = 40;
+
+	private final LongAdder created = new LongAdder();
+
+	private final LongAdder unchangedUpdates = new LongAdder();
+
+	private final LongAdder newVersions = new LongAdder();
+
+	private final LongAdder versions = new LongAdder();
+
+	private final LongAdder historyBytes = new LongAdder();
+
+	private final LongAdder archivedVersions = new LongAdder();
+
+	/**
+	 * @return number of items created through the store since startup, not counting replayed changes
+	 */
+	public long getCreated() {
+		return created.sum();
+	}
+
+	/**
+	 * @return number of updates which did not change the item and created no version
+	 */
+	public long getUnchangedUpdates() {
+		return unchangedUpdates.sum();
+	}
+
+	/**
+	 * @return number of updates which created a new version
+	 */
+	public long getNewVersions() {
+		return newVersions.sum();
+	}
+
+	/**
+	 * @return number of versions of all stored items
+	 */
+	public long getVersions() {
+		return versions.sum();
+	}
+
+	/**
+	 * @return estimated heap used by the versions of all stored items, not counting archived versions
+	 */
+	public long getEstimatedHistoryBytes() {
+		return historyBytes.sum();
+	}
+
+	/**
+	 * @return number of versions of all stored items which were moved from the heap to the archive
+	 */
+	public long getArchivedVersions() {
+		return archivedVersions.sum();
+	}
+
+	void recordCreated() {
+		created.increment();
+	}
+
+	void recordUpdate(boolean newVersion) {
+		(newVersion ? newVersions : unchangedUpdates).increment();
+	}
+
+	void recordVersion(String name, int changedAttributes) {
+		versions.increment();
+		historyBytes.add(VERSION_BYTES + stringBytes(name) + changedAttributes * ATTRIBUTE_BYTES);
+	}
+
+	// the first version of an archived block counts all of its attributes, which slightly overestimates the release
+	void recordArchived(String name, int changedAttributes) {
+		archivedVersions.increment();
+		historyBytes.add(-(VERSION_BYTES + stringBytes(name) + changedAttributes * ATTRIBUTE_BYTES));
+	}
+
+	// like recordArchived, the first held version of an item with archived versions is overestimated
+	void recordRemoved(String name, int changedAttributes) {
+		versions.decrement();
+		historyBytes.add(-(VERSION_BYTES + stringBytes(name) + changedAttributes * ATTRIBUTE_BYTES));
+	}
+
+	void recordRemovedArchived(int count) {
+		versions.add(-count);
+		archivedVersions.add(-count);
+	}
+
+	/**
+	 * Resets the store content counters, not the change counters
+	 */
+	void clearVersions() {
+		versions.reset();
+		historyBytes.reset();
+		archivedVersions.reset();
+	}
+
+	private static long stringBytes(String value) {
+		return value != null ? STRING_BYTES + 2L * value.length() : 0;
+	}
+}
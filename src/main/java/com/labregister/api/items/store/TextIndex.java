@@ -0,0 +1,553 @@
+package com.labregister.api.items.store;
+
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Trigram index over item names and attribute values, for case-insensitive substring search
+ * <p>
+ * Every item is added to the posting of each trigram (three consecutive lower-cased characters) of
+ * its name and, separately, of its attribute values, under a document number. Names also get a start
+ * and an end key of their first and last two characters, to find names starting with or equal to a
+ * query. A query ranks the items in four tiers: names equal to it, names starting with it, names
+ * containing it and attribute values containing it. Each tier intersects the postings of the query's
+ * keys of that tier, newest entries first, checks the items found in all of them against the query
+ * itself and stops as soon as the result is complete. A query therefore costs in proportion to the
+ * postings it walks until it has found {@code limit} items, not to the number of stored items.
+ * <p>
+ * Postings are append-only arrays of ascending document numbers, read without locking. All current
+ * keys of an item share one document number: an update which gains a key adds the item to all of
+ * its keys under a new document number, while the entries under the previous number stay behind
+ * and are filtered by the check against the item; so do the entries of removed items, which are
+ * filtered by a check whether the item is still stored. Once such stale entries make up half of all
+ * entries, the index is rebuilt from the stored items in the background, see {@link #compact(Collection)}.
+ * <p>
+ * The postings have a single writer at a time. Item writes only queue their update, lock-free, and
+ * then {@link #flush()} the queue: the first thread to find the queue non-empty applies all queued
+ * updates, while others return at once and leave theirs to it. A query waits for the updates
+ * queued before it instead, so it reflects all writes completed before it started.
+ */
+final class TextIndex {
+
+	static final int MIN_QUERY_LENGTH = 3;
+
+	private static final int MIN_COMPACTION_ENTRIES = 4096;
+
+	// characters take the lower 48 bits of a key, the flags tell the kinds of keys apart
+	private static final long VALUE_TRIGRAM = 1L << 48;
+
+	private static final long NAME_START = 1L << 49;
+
+	private static final long NAME_END = 1L << 50;
+
+	// tiers of matching items, best first
+	private static final int NAME_EQUALS = 0;
+
+	private static final int NAME_PREFIX = 1;
+
+	private static final int NAME_CONTAINS = 2;
+
+	private static final int VALUE_CONTAINS = 3;
+
+	// replaced as a whole on rebuild, so a query never mixes postings and documents of two builds
+	private volatile State state = new State();
+
+	private final Queue<Update> updates = new ConcurrentLinkedQueue<>();
+
+	// held by the thread applying updates to the published state
+	private final ReentrantLock writer = new ReentrantLock();
+
+	private final AtomicBoolean compacting = new AtomicBoolean();
+
+	// updates applied while a compaction rebuilds the index, replayed onto the rebuilt one; guarded by writer
+	private List<Update> appliedDuringCompaction;
+
+	// advanced by clear(), so a compaction started before is discarded; guarded by writer
+	private long generation;
+
+	// whether an item found in the postings is still stored
+	private final Predicate<Item> stored;
+
+	TextIndex(Predicate<Item> stored) {
+		this.stored = stored;
+	}
+
+	/**
+	 * Queues adding the item under a new document number to the postings of the keys of its current
+	 * name and attributes, unless the previous ones contain all of them already
+	 * <p>
+	 * Called while holding the item's lock, so the updates of one item are queued in order.
+	 *
+	 * @param previousName       name the item was indexed with, {@code null} for a new item
+	 * @param previousAttributes attributes the item was indexed with, empty for a new item
+	 */
+	void update(Item item, String previousName, Map<String, String> previousAttributes) {
+		updates.add(new Update(item, item.getName(), item.getAttributes(), previousName, previousAttributes));
+	}
+
+	/**
+	 * Queues counting the keys of a removed item as stale, its entries are dropped by the next compaction
+	 */
+	void remove(Item item) {
+		updates.add(new Update(item, null, Collections.emptyMap(), item.getName(), item.getAttributes()));
+	}
+
+	/**
+	 * Applies the queued updates, unless another thread is applying them already and takes over the
+	 * ones queued so far; called outside of any item's lock
+	 */
+	void flush() {
+		// an update queued while the writer is held is seen by the holder's check after unlocking
+		while (!updates.isEmpty() && writer.tryLock()) {
+			try {
+				applyQueued();
+			} finally {
+				writer.unlock();
+			}
+		}
+	}
+
+	// applies the queued updates, waiting for a thread applying them already
+	private void awaitQueued() {
+		if (updates.isEmpty() && !writer.isLocked()) {
+			return;
+		}
+		writer.lock();
+		try {
+			applyQueued();
+		} finally {
+			writer.unlock();
+		}
+		flush();
+	}
+
+	// while holding the writer
+	private void applyQueued() {
+		Update update;
+		while ((update = updates.poll()) != null) {
+			apply(state, update);
+			if (appliedDuringCompaction != null) {
+				appliedDuringCompaction.add(update);
+			}
+		}
+	}
+
+	private static void apply(State state, Update update) {
+		long[] previous = keys(update.previousName, update.previousAttributes.values());
+		long[] current = keys(update.name, update.attributes.values());
+		if (containsAll(previous, current)) {
+			state.staleEntries += previous.length - current.length;
+			return;
+		}
+		index(state, update.item, current);
+		state.staleEntries += previous.length;
+	}
+
+	// only called by the single writer of the state
+	private static void index(State state, Item item, long[] keys) {
+		if (keys.length == 0) {
+			return;
+		}
+		int document = state.documents.add(item);
+		for (long key : keys) {
+			// the only writer, no need to lock the entry
+			Posting posting = state.postings.get(key);
+			if (posting == null) {
+				posting = new Posting();
+				state.postings.put(key, posting);
+			}
+			posting.add(document);
+		}
+		state.entries += keys.length;
+	}
+
+	/**
+	 * Rebuilds the index from the given items in the background once stale entries make up half of
+	 * all entries
+	 * <p>
+	 * Writes and queries continue on the current index meanwhile. The updates applied to it during
+	 * the rebuild are replayed onto the rebuilt index before it replaces the current one.
+	 *
+	 * @param items live view of the stored items, oldest first
+	 */
+	void compact(Collection<Item> items) {
+		State current = state;
+		if (current.entries < MIN_COMPACTION_ENTRIES || current.staleEntries * 2 < current.entries) {
+			return;
+		}
+		if (compacting.compareAndSet(false, true)) {
+			try {
+				ForkJoinPool.commonPool().execute(() -> rebuild(items));
+			} catch (RuntimeException e) {
+				compacting.set(false);
+				throw e;
+			}
+		}
+	}
+
+	private void rebuild(Collection<Item> items) {
+		try {
+			long startGeneration;
+			writer.lock();
+			try {
+				startGeneration = generation;
+				// items are indexed with their current version below, later updates are recorded from now on
+				applyQueued();
+				appliedDuringCompaction = new ArrayList<>();
+			} finally {
+				writer.unlock();
+			}
+			flush();
+
+			// the only writer of the new state until it is published
+			State rebuilt = new State();
+			for (Item item : items) {
+				ItemVersion version = item.getCurrentVersion();
+				if (version != null) {
+					index(rebuilt, item, keys(version.getName(), version.getAttributes().values()));
+				}
+			}
+
+			writer.lock();
+			try {
+				applyQueued();
+				if (generation == startGeneration) {
+					for (Update update : appliedDuringCompaction) {
+						apply(rebuilt, update);
+					}
+					state = rebuilt;
+				}
+				appliedDuringCompaction = null;
+			} finally {
+				writer.unlock();
+			}
+			flush();
+		} finally {
+			compacting.set(false);
+		}
+	}
+
+	/**
+	 * Empties the index, discarding the queued updates and a running compaction
+	 */
+	void clear() {
+		writer.lock();
+		try {
+			updates.clear();
+			state = new State();
+			generation++;
+			if (appliedDuringCompaction != null) {
+				appliedDuringCompaction.clear();
+			}
+		} finally {
+			writer.unlock();
+		}
+		flush();
+	}
+
+	/**
+	 * Returns up to {@code limit} items whose name or attribute values contain the query, ignoring case
+	 * <p>
+	 * Items whose name equals the query come first, followed by names starting with the query, names
+	 * containing it, and items matching by an attribute value only; within each tier the items most
+	 * recently added to the index come first. The result reflects each item's state when it is checked.
+	 *
+	 * @throws IllegalArgumentException if the query is shorter than {@value #MIN_QUERY_LENGTH} characters
+	 */
+	List<Item> search(String query, int limit) {
+		if (query == null || query.length() < MIN_QUERY_LENGTH) {
+			throw new IllegalArgumentException("Query must have at least " + MIN_QUERY_LENGTH + " characters");
+		}
+		awaitQueued();
+		State state = this.state;
+		long[] names = keys(query, 0, false);
+		long[] prefixes = keys(query, 0, true);
+		long[] values = keys(query, VALUE_TRIGRAM, false);
+		long[] equals = Arrays.copyOf(prefixes, prefixes.length + 1);
+		equals[prefixes.length] = NAME_END | pair(query, query.length() - 2);
+
+		List<Item> result = new ArrayList<>(Math.min(limit, 64));
+		// an item is found once per document number it was added under, and in several tiers
+		Set<Item> included = Collections.newSetFromMap(new IdentityHashMap<>());
+		collect(state, equals, query, NAME_EQUALS, limit, result, included);
+		collect(state, prefixes, query, NAME_PREFIX, limit, result, included);
+		collect(state, names, query, NAME_CONTAINS, limit, result, included);
+		collect(state, values, query, VALUE_CONTAINS, limit, result, included);
+		return result;
+	}
+
+	// intersects the postings of the keys newest first and adds the items matching the query in the given tier
+	private void collect(State state, long[] keys, String query, int tier, int limit,
+	                     List<Item> result, Set<Item> included) {
+		if (result.size() == limit) {
+			return;
+		}
+		// the published entries of the postings, smallest first; positions start at their newest entry
+		int[][] postings = new int[keys.length][];
+		int[] positions = new int[keys.length];
+		int count = 0;
+		for (long key : keys) {
+			Posting posting = state.postings.get(key);
+			if (posting == null) {
+				return;
+			}
+			int position = posting.size - 1;
+			int[] documents = posting.documents;
+			int insert = count++;
+			for (; insert > 0 && positions[insert - 1] > position; insert--) {
+				postings[insert] = postings[insert - 1];
+				positions[insert] = positions[insert - 1];
+			}
+			postings[insert] = documents;
+			positions[insert] = position;
+		}
+
+		int[] smallest = postings[0];
+		candidates:
+		for (int i = positions[0]; i >= 0 && result.size() < limit; i--) {
+			int document = smallest[i];
+			for (int p = 1; p < count; p++) {
+				positions[p] = seek(postings[p], positions[p], document);
+				if (positions[p] < 0) {
+					return;
+				}
+				if (postings[p][positions[p]] != document) {
+					continue candidates;
+				}
+			}
+			Item item = state.documents.get(document);
+			if (item != null && !included.contains(item) && matches(item, query, tier) && stored.test(item)) {
+				included.add(item);
+				result.add(item);
+			}
+		}
+	}
+
+	// the highest position at or below from holding a document number of at most the given one, -1 if none
+	private static int seek(int[] documents, int from, int document) {
+		if (from < 0 || documents[from] <= document) {
+			return from;
+		}
+		// gallop down from documents[high] > document, then bisect
+		int high = from;
+		int step = 1;
+		int low = high - step;
+		while (low >= 0 && documents[low] > document) {
+			high = low;
+			step <<= 1;
+			low = high - step;
+		}
+		low = Math.max(low, -1);
+		while (high - low > 1) {
+			int middle = (low + high) >>> 1;
+			if (documents[middle] > document) {
+				high = middle;
+			} else {
+				low = middle;
+			}
+		}
+		return low;
+	}
+
+	private static boolean matches(Item item, String query, int tier) {
+		String name = item.getName();
+		switch (tier) {
+			case NAME_EQUALS:
+				return name != null && name.equalsIgnoreCase(query);
+			case NAME_PREFIX:
+				return name != null && name.regionMatches(true, 0, query, 0, query.length());
+			case NAME_CONTAINS:
+				return name != null && containsIgnoreCase(name, query);
+			default:
+				for (String value : item.getAttributes().values()) {
+					if (containsIgnoreCase(value, query)) {
+						return true;
+					}
+				}
+				return false;
+		}
+	}
+
+	private static boolean containsIgnoreCase(String text, String query) {
+		for (int offset = 0; offset <= text.length() - query.length(); offset++) {
+			if (text.regionMatches(true, offset, query, 0, query.length())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// the distinct keys of an item's name and attribute values, sorted
+	private static long[] keys(String name, Collection<String> values) {
+		int count = name != null ? trigramCount(name) + 2 : 0;
+		for (String value : values) {
+			count += trigramCount(value);
+		}
+		long[] keys = new long[count];
+		int size = 0;
+		if (name != null) {
+			size = addTrigrams(name, 0, keys, size);
+			if (name.length() >= 2) {
+				keys[size++] = NAME_START | pair(name, 0);
+				keys[size++] = NAME_END | pair(name, name.length() - 2);
+			}
+		}
+		for (String value : values) {
+			size = addTrigrams(value, VALUE_TRIGRAM, keys, size);
+		}
+		return distinct(keys, size);
+	}
+
+	// the distinct trigrams of a query, with its start key if requested, sorted
+	private static long[] keys(String query, long flag, boolean start) {
+		long[] keys = new long[trigramCount(query) + 1];
+		int size = addTrigrams(query, flag, keys, 0);
+		if (start) {
+			keys[size++] = NAME_START | pair(query, 0);
+		}
+		return distinct(keys, size);
+	}
+
+	private static int trigramCount(String text) {
+		return Math.max(text.length() - 2, 0);
+	}
+
+	private static int addTrigrams(String text, long flag, long[] keys, int size) {
+		for (int i = 0; i + MIN_QUERY_LENGTH <= text.length(); i++) {
+			keys[size++] = flag | pair(text, i) << 16 | Character.toLowerCase(text.charAt(i + 2));
+		}
+		return size;
+	}
+
+	private static long[] distinct(long[] keys, int size) {
+		Arrays.sort(keys, 0, size);
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			if (distinct == 0 || keys[i] != keys[distinct - 1]) {
+				keys[distinct++] = keys[i];
+			}
+		}
+		return distinct == keys.length ? keys : Arrays.copyOf(keys, distinct);
+	}
+
+	// whether the sorted keys contain all of the sorted other ones
+	private static boolean containsAll(long[] keys, long[] others) {
+		int position = 0;
+		for (long other : others) {
+			while (position < keys.length && keys[position] < other) {
+				position++;
+			}
+			if (position == keys.length || keys[position] != other) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// two lower-cased characters
+	private static long pair(String text, int index) {
+		return (long) Character.toLowerCase(text.charAt(index)) << 16 | Character.toLowerCase(text.charAt(index + 1));
+	}
+
+	private static final class State {
+
+		private final Documents documents = new Documents();
+
+		private final ConcurrentMap<Long, Posting> postings = new ConcurrentHashMap<>();
+
+		// written by the writer, read by compact() to decide on a rebuild
+		private volatile long entries;
+
+		private volatile long staleEntries;
+	}
+
+	/**
+	 * Queued update of an item's keys, with the name and attributes the item had when it was queued,
+	 * none once it is removed
+	 */
+	private static final class Update {
+
+		private final Item item;
+
+		private final String name;
+
+		private final Map<String, String> attributes;
+
+		private final String previousName;
+
+		private final Map<String, String> previousAttributes;
+
+		Update(Item item, String name, Map<String, String> attributes, String previousName,
+		       Map<String, String> previousAttributes) {
+			this.item = item;
+			this.name = name;
+			this.attributes = attributes;
+			this.previousName = previousName;
+			this.previousAttributes = previousAttributes;
+		}
+	}
+
+	/**
+	 * Items by document number, appended by the writer and read without locking
+	 */
+	private static final class Documents {
+
+		private volatile Item[] items = new Item[1024];
+
+		// only accessed by the writer
+		private int size;
+
+		// only called by the writer
+		int add(Item item) {
+			Item[] target = items;
+			if (size == target.length) {
+				target = Arrays.copyOf(target, target.length * 2);
+				items = target;
+			}
+			target[size] = item;
+			return size++;
+		}
+
+		Item get(int document) {
+			// a document number read from a posting was added before it was published there
+			Item[] current = items;
+			return document < current.length ? current[document] : null;
+		}
+	}
+
+	private static final class Posting {
+
+		// ascending document numbers, the first size entries are published
+		private volatile int[] documents = new int[4];
+
+		private volatile int size;
+
+		// only called by the writer; the array holds the entry before the size covers it
+		void add(int document) {
+			int[] target = documents;
+			if (size == target.length) {
+				target = Arrays.copyOf(target, target.length + (target.length >> 1));
+				documents = target;
+			}
+			target[size] = document;
+			size++;
+		}
+	}
+}
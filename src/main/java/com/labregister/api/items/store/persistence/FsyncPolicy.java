@@ -0,0 +1,23 @@
+package com.labregister.api.items.store.persistence;
+
+/**
+ * When the {@link ItemWriteAheadLog} forces appended changes to disk
+ */
+public enum FsyncPolicy {
+
+	/**
+	 * fsync every written batch before acknowledging it (group commit): no acknowledged change is ever lost
+	 */
+	ALWAYS,
+
+	/**
+	 * acknowledge once written to the OS, fsync at most once per configured interval:
+	 * a crash may lose the changes of the last interval
+	 */
+	INTERVAL,
+
+	/**
+	 * acknowledge once written to the OS and leave flushing to it: survives process crashes, not OS crashes
+	 */
+	NEVER
+}
@@ -0,0 +1,104 @@
+package com.labregister.api.items.store.persistence;
+
+import com.labregister.api.items.store.ItemChange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@link ItemChange}s
+ * <p>
+ * Layout: type (byte), timestamp (long) and, unless the change deletes all items, the item id, then
+ * unless it deletes the item the version number (int), the name and the attribute count followed by
+ * the attribute keys and values.
+ * Strings are written as length-prefixed UTF-8.
+ */
+public final class ItemChangeCodec {
+
+	private static final ItemChange.Type[] TYPES = ItemChange.Type.values();
+
+	private ItemChangeCodec() {
+	}
+
+	public static byte[] encode(ItemChange change) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			write(change, out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static void write(ItemChange change, DataOutput out) throws IOException {
+		out.writeByte(change.getType().ordinal());
+		out.writeLong(change.getTimestamp());
+		if (change.getType() == ItemChange.Type.DELETE_ALL) {
+			return;
+		}
+
+		writeString(change.getItemId(), out);
+		if (change.getType() == ItemChange.Type.DELETE) {
+			return;
+		}
+		out.writeInt(change.getVersionNumber());
+		writeString(change.getName(), out);
+		out.writeInt(change.getAttributes().size());
+		for (Map.Entry<String, String> attribute : change.getAttributes().entrySet()) {
+			writeString(attribute.getKey(), out);
+			writeString(attribute.getValue(), out);
+		}
+	}
+
+	public static ItemChange read(DataInput in) throws IOException {
+		int typeIndex = in.readUnsignedByte();
+		if (typeIndex >= TYPES.length) {
+			throw new IOException("Unknown change type: " + typeIndex);
+		}
+		ItemChange.Type type = TYPES[typeIndex];
+		long timestamp = in.readLong();
+		if (type == ItemChange.Type.DELETE_ALL) {
+			return new ItemChange(type, null, null, null, timestamp, 0);
+		}
+
+		String itemId = readString(in);
+		if (type == ItemChange.Type.DELETE) {
+			return ItemChange.deleted(itemId, timestamp);
+		}
+		int versionNumber = in.readInt();
+		String name = readString(in);
+		int attributeCount = in.readInt();
+		Map<String, String> attributes = new LinkedHashMap<>(Math.max(4, attributeCount * 2));
+		for (int i = 0; i < attributeCount; i++) {
+			attributes.put(readString(in), readString(in));
+		}
+		return new ItemChange(type, itemId, name, attributes, timestamp, versionNumber);
+	}
+
+	public static void writeString(String value, DataOutput out) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	public static String readString(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,226 @@
+package com.labregister.api.items.store.persistence;
+
+import com.labregister.api.core.collection.PersistentHashMap;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemChange;
+import com.labregister.api.items.store.ItemStore;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compact binary snapshot of all items and their version history, written and read through
+ * memory-mapped files
+ * <p>
+ * A snapshot is named after the first write-ahead log segment it does not cover: on startup the
+ * latest snapshot is loaded and only the log segments from that number on are replayed.
+ * Snapshots are fuzzy: they are taken while writes continue, so they may already contain some
+ * changes of the following segments. Replaying those is a no-op, see {@link ItemStore#apply(ItemChange)}.
+ * <p>
+ * Layout: magic (int), format (int), first uncovered segment (long), item count (long), then per
+ * item (oldest first) the id, creation date (long) and version count (int), followed by its
+ * versions (oldest first) as version number (int), version date (long), name and the attribute
+ * changes against the previous version: count of set entries (int) with keys and values, count
+ * of removed keys (int) with the keys. The file ends with the magic again.
+ */
+public final class ItemSnapshot {
+
+	private static final int MAGIC = 0x4C52534E;
+
+	private static final int FORMAT = 1;
+
+	private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.snap");
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private ItemSnapshot() {
+	}
+
+	/**
+	 * Writes a snapshot of the store, atomically replacing any previous snapshot of the same segment
+	 *
+	 * @param segment first log segment whose changes may be missing in the snapshot
+	 * @return the snapshot file
+	 */
+	public static Path write(Path directory, ItemStore store, long segment) throws IOException {
+		Path file = snapshotFile(directory, segment);
+		Path tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+
+		try (MappedFileWriter out = new MappedFileWriter(tempFile)) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT);
+			out.writeLong(segment);
+			long countPosition = out.position();
+			out.writeLong(0);
+
+			long count = 0;
+			for (Item item : store.valuesOldestFirst()) {
+				writeItem(item, out);
+				count++;
+			}
+			out.writeInt(MAGIC);
+			out.writeLongAt(countPosition, count);
+		}
+
+		Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		return file;
+	}
+
+	/**
+	 * Loads the latest snapshot in the directory into the store
+	 *
+	 * @return the first log segment to replay on top of the snapshot, 0 if there is no snapshot
+	 */
+	public static long loadLatest(Path directory, ItemStore store) throws IOException {
+		List<Long> snapshots = snapshots(directory);
+		if (snapshots.isEmpty()) {
+			return 0;
+		}
+		long segment = snapshots.get(snapshots.size() - 1);
+		read(snapshotFile(directory, segment), store);
+		return segment;
+	}
+
+	/**
+	 * Deletes all snapshots older than the given one, along with unfinished temporary snapshot files
+	 */
+	public static void deleteSnapshotsBefore(Path directory, long segment) throws IOException {
+		for (long existing : snapshots(directory)) {
+			if (existing < segment) {
+				Files.deleteIfExists(snapshotFile(directory, existing));
+			}
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*" + TEMP_SUFFIX)) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	/**
+	 * Loads the snapshot file into the store, e.g. one received from another instance
+	 */
+	public static void read(Path file, ItemStore store) throws IOException {
+		try (MappedFileReader in = new MappedFileReader(file)) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not an item snapshot: " + file);
+			}
+			int format = in.readInt();
+			if (format != FORMAT) {
+				throw new IOException("Unsupported snapshot format " + format + ": " + file);
+			}
+			in.readLong();
+			long count = in.readLong();
+
+			for (long i = 0; i < count; i++) {
+				readItem(in, store);
+			}
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Corrupt item snapshot: " + file);
+			}
+		}
+	}
+
+	private static void writeItem(Item item, MappedFileWriter out) throws IOException {
+		// newest first, consistent with concurrent updates of the item
+		List<ItemVersion> versions = item.getVersions();
+
+		out.writeString(item.getId());
+		out.writeLong(item.getCreationDate().getTime());
+		out.writeInt(versions.size());
+
+		Map<String, String> previous = Collections.emptyMap();
+		for (int i = versions.size() - 1; i >= 0; i--) {
+			ItemVersion version = versions.get(i);
+			Map<String, String> attributes = version.getAttributes();
+
+			out.writeInt(version.getVersionNumber());
+			out.writeLong(version.getVersionDate().getTime());
+			out.writeString(version.getName());
+
+			List<Map.Entry<String, String>> set = new ArrayList<>();
+			for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+				if (!Objects.equals(previous.get(attribute.getKey()), attribute.getValue())) {
+					set.add(attribute);
+				}
+			}
+			out.writeInt(set.size());
+			for (Map.Entry<String, String> attribute : set) {
+				out.writeString(attribute.getKey());
+				out.writeString(attribute.getValue());
+			}
+
+			List<String> removed = new ArrayList<>();
+			for (String key : previous.keySet()) {
+				if (!attributes.containsKey(key)) {
+					removed.add(key);
+				}
+			}
+			out.writeInt(removed.size());
+			for (String key : removed) {
+				out.writeString(key);
+			}
+
+			previous = attributes;
+		}
+	}
+
+	private static void readItem(MappedFileReader in, ItemStore store) throws IOException {
+		String id = in.readString();
+		long creationDate = in.readLong();
+		int versionCount = in.readInt();
+
+		PersistentHashMap<String, String> attributes = PersistentHashMap.empty();
+		for (int v = 0; v < versionCount; v++) {
+			int versionNumber = in.readInt();
+			long versionDate = in.readLong();
+			String name = in.readString();
+
+			int setCount = in.readInt();
+			for (int i = 0; i < setCount; i++) {
+				attributes = attributes.plus(in.readString(), in.readString());
+			}
+			int removedCount = in.readInt();
+			for (int i = 0; i < removedCount; i++) {
+				attributes = attributes.minus(in.readString());
+			}
+
+			// the persistent map is adopted as is by the version, sharing it with the previous one
+			store.apply(v == 0
+					? new ItemChange(ItemChange.Type.CREATE, id, name, attributes, creationDate, versionNumber)
+					: new ItemChange(ItemChange.Type.UPDATE, id, name, attributes, versionDate, versionNumber));
+		}
+	}
+
+	private static List<Long> snapshots(Path directory) throws IOException {
+		List<Long> snapshots = new ArrayList<>();
+		if (!Files.isDirectory(directory)) {
+			return snapshots;
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*.snap")) {
+			for (Path file : files) {
+				Matcher matcher = SNAPSHOT_NAME.matcher(file.getFileName().toString());
+				if (matcher.matches()) {
+					snapshots.add(Long.parseLong(matcher.group(1)));
+				}
+			}
+		}
+		Collections.sort(snapshots);
+		return snapshots;
+	}
+
+	private static Path snapshotFile(Path directory, long segment) {
+		return directory.resolve(String.format("snapshot-%010d.snap", segment));
+	}
+}
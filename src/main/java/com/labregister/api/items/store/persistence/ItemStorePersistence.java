@@ -0,0 +1,117 @@
+package com.labregister.api.items.store.persistence;
+
+import com.labregister.api.items.store.ItemChangeLog;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.ItemStoreProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable mode of the {@link ItemStore}, enabled with {@code labregister.store.durable=true}
+ * <p>
+ * On startup the latest {@link ItemSnapshot} is loaded and the write-ahead log segments written
+ * after it are replayed into the store, afterwards the log is attached to the store so that every
+ * create, update and delete-all is appended to it. A new snapshot is taken every
+ * {@code labregister.store.snapshot-interval}, which makes all older segments obsolete.
+ */
+@Component
+@ConditionalOnProperty(prefix = "labregister.store", name = "durable", havingValue = "true")
+public class ItemStorePersistence {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ItemStorePersistence.class);
+
+	private final ItemStore store;
+
+	private final ItemStoreProperties properties;
+
+	private Path directory;
+
+	private ItemWriteAheadLog writeAheadLog;
+
+	private ScheduledExecutorService scheduler;
+
+	private long appendedAtLastSnapshot;
+
+	public ItemStorePersistence(ItemStore store, ItemStoreProperties properties) {
+		this.store = store;
+		this.properties = properties;
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		directory = Paths.get(properties.getDataDirectory());
+		Files.createDirectories(directory);
+
+		long started = System.nanoTime();
+		long fromSegment = ItemSnapshot.loadLatest(directory, store);
+		long loaded = store.size();
+		long replayed = ItemWriteAheadLog.replay(directory, fromSegment, store::apply);
+		LOG.info("Loaded {} items from snapshot and replayed {} changes from {} in {} ms",
+		         loaded, replayed, directory, (System.nanoTime() - started) / 1_000_000);
+
+		writeAheadLog = ItemWriteAheadLog.open(directory, properties.getFsyncPolicy(), properties.getFsyncInterval(),
+		                                       properties.getMaxBatchSize());
+		store.setChangeLog(writeAheadLog);
+
+		long interval = properties.getSnapshotInterval().toMillis();
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "item-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() throws IOException, InterruptedException {
+		scheduler.shutdownNow();
+		scheduler.awaitTermination(1, TimeUnit.MINUTES);
+		store.setChangeLog(ItemChangeLog.NONE);
+		writeAheadLog.close();
+	}
+
+	/**
+	 * Takes a snapshot of the store if it changed since the last one and deletes the log segments
+	 * and snapshots it replaces
+	 *
+	 * @return whether a snapshot was taken
+	 */
+	public synchronized boolean snapshot() throws IOException {
+		long appended = writeAheadLog.getAppendedCount();
+		if (appended == appendedAtLastSnapshot) {
+			return false;
+		}
+
+		long started = System.nanoTime();
+		// everything before the new segment is either in the snapshot or replayed on top of it
+		long segment = writeAheadLog.rotate().join();
+		Path file = ItemSnapshot.write(directory, store, segment);
+		ItemWriteAheadLog.deleteSegmentsBefore(directory, segment);
+		ItemSnapshot.deleteSnapshotsBefore(directory, segment);
+		appendedAtLastSnapshot = appended;
+
+		LOG.info("Wrote snapshot {} in {} ms", file, (System.nanoTime() - started) / 1_000_000);
+		return true;
+	}
+
+	private void snapshotQuietly() {
+		try {
+			snapshot();
+		} catch (Exception e) {
+			// the log segments are kept, the next snapshot tries again
+			LOG.error("Could not write snapshot", e);
+		}
+	}
+}
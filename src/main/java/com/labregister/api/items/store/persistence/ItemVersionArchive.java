@@ -0,0 +1,425 @@
+package com.labregister.api.items.store.persistence;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.labregister.api.core.collection.PersistentHashMap;
+import com.labregister.api.items.domain.ArchivedVersions;
+import com.labregister.api.items.domain.ItemVersion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compressed on-disk archive of old {@link ItemVersion}s, released from the heap by the {@link ItemVersionArchiver}
+ * <p>
+ * Consecutive versions of one item are archived as a block, which is deflated and appended to the
+ * current segment file; a new segment is started once a segment reaches {@value #MAX_SEGMENT_SIZE} bytes.
+ * The blocks of an item are indexed on the heap by their version and date range, so a page of archived
+ * versions only reads and inflates the blocks it covers. Recently read blocks are kept decoded, up to
+ * {@value #MAX_CACHED_VERSIONS} versions of all items.
+ * <p>
+ * Block layout (before deflating): version count (int), then per version (oldest first) the version
+ * date (long), name and the attribute changes against the previous version like in an {@link ItemSnapshot},
+ * the first version of a block with all its attributes. Version numbers are implied by the block's range.
+ * <p>
+ * The archive is a tier of the heap, not a durable store: snapshots contain the archived versions as well,
+ * and the archive directory is emptied when the archive is opened.
+ */
+public final class ItemVersionArchive implements Closeable {
+
+	private static final long MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+	private static final long MAX_CACHED_VERSIONS = 65_536;
+
+	private final Path directory;
+
+	private final Cache<Block, ItemVersion[]> decodedBlocks = CacheBuilder.newBuilder()
+	                                                                      .maximumWeight(MAX_CACHED_VERSIONS)
+	                                                                      .weigher((Block block, ItemVersion[] versions) -> versions.length)
+	                                                                      .build();
+
+	private final AtomicLong size = new AtomicLong();
+
+	// segment appended to, guarded by this
+	private Segment segment;
+
+	// segments since the last retirement including the current one, guarded by this
+	private final List<Segment> segments = new ArrayList<>();
+
+	// segments of deleted items, guarded by this
+	private final List<Segment> retiredSegments = new ArrayList<>();
+
+	private long nextSegment = 1;
+
+	private ItemVersionArchive(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Opens an empty archive in the directory, deleting the segments of a previous run
+	 */
+	public static ItemVersionArchive open(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "versions-*.arc")) {
+			for (Path file : files) {
+				Files.delete(file);
+			}
+		}
+		return new ItemVersionArchive(directory);
+	}
+
+	/**
+	 * Appends a block of consecutive versions of one item
+	 *
+	 * @param archived the versions of the item archived so far
+	 * @param versions the versions following them, oldest first
+	 * @return the archived versions of the item including the new block
+	 */
+	public ArchivedVersions append(ArchivedVersions archived, List<ItemVersion> versions) throws IOException {
+		if (versions.isEmpty()) {
+			throw new IllegalArgumentException("No versions to archive");
+		}
+		ItemVersion first = versions.get(0);
+		ItemVersion last = versions.get(versions.size() - 1);
+		byte[] data = encode(versions);
+
+		Block block;
+		synchronized (this) {
+			if (segment == null || segment.size + data.length > MAX_SEGMENT_SIZE) {
+				segment = Segment.create(directory.resolve(String.format("versions-%010d.arc", nextSegment++)));
+				segments.add(segment);
+			}
+			block = new Block(segment, segment.append(data), data.length, first.getVersionNumber(),
+			                  last.getVersionNumber(), last.getVersionDate().getTime());
+		}
+		size.addAndGet(data.length);
+
+		Blocks blocks = archived instanceof Blocks ? (Blocks) archived : new Blocks(new Block[0]);
+		return blocks.plus(block);
+	}
+
+	/**
+	 * Continues with a new segment, e.g. after all items were deleted; the current segments are
+	 * deleted by {@link #deleteRetiredSegments()}
+	 */
+	public synchronized void retireSegments() {
+		retiredSegments.addAll(segments);
+		segments.clear();
+		segment = null;
+		size.set(0);
+	}
+
+	/**
+	 * Deletes the segments retired before, reads of versions in them fail from now on
+	 */
+	public void deleteRetiredSegments() throws IOException {
+		List<Segment> retired;
+		synchronized (this) {
+			if (retiredSegments.isEmpty()) {
+				return;
+			}
+			retired = new ArrayList<>(retiredSegments);
+			retiredSegments.clear();
+		}
+		decodedBlocks.invalidateAll();
+		for (Segment retiredSegment : retired) {
+			retiredSegment.close();
+			Files.deleteIfExists(retiredSegment.file);
+		}
+	}
+
+	/**
+	 * @return bytes of the current segments
+	 */
+	public long getSize() {
+		return size.get();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		decodedBlocks.invalidateAll();
+		for (Segment openSegment : segments) {
+			openSegment.close();
+		}
+		for (Segment retiredSegment : retiredSegments) {
+			retiredSegment.close();
+		}
+	}
+
+	private ItemVersion[] versions(Block block) {
+		try {
+			return decodedBlocks.get(block, () -> decode(block));
+		} catch (ExecutionException e) {
+			throw new UncheckedIOException("Cannot read archived versions from " + block.segment.file,
+			                               (IOException) e.getCause());
+		}
+	}
+
+	private static byte[] encode(List<ItemVersion> versions) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(versions.size() * 32);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+			out.writeInt(versions.size());
+			Map<String, String> previous = Collections.emptyMap();
+			for (ItemVersion version : versions) {
+				Map<String, String> attributes = version.getAttributes();
+				out.writeLong(version.getVersionDate().getTime());
+				ItemChangeCodec.writeString(version.getName(), out);
+
+				List<Map.Entry<String, String>> set = new ArrayList<>();
+				for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+					if (!Objects.equals(previous.get(attribute.getKey()), attribute.getValue())) {
+						set.add(attribute);
+					}
+				}
+				out.writeInt(set.size());
+				for (Map.Entry<String, String> attribute : set) {
+					ItemChangeCodec.writeString(attribute.getKey(), out);
+					ItemChangeCodec.writeString(attribute.getValue(), out);
+				}
+
+				List<String> removed = new ArrayList<>();
+				for (String key : previous.keySet()) {
+					if (!attributes.containsKey(key)) {
+						removed.add(key);
+					}
+				}
+				out.writeInt(removed.size());
+				for (String key : removed) {
+					ItemChangeCodec.writeString(key, out);
+				}
+
+				previous = attributes;
+			}
+		} finally {
+			deflater.end();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static ItemVersion[] decode(Block block) throws IOException {
+		byte[] data = block.segment.read(block.offset, block.length);
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+			int count = in.readInt();
+			if (count != block.toVersion - block.fromVersion + 1) {
+				throw new IOException("Corrupt archive block at " + block.offset);
+			}
+			ItemVersion[] versions = new ItemVersion[count];
+			PersistentHashMap<String, String> attributes = PersistentHashMap.empty();
+			for (int i = 0; i < count; i++) {
+				long versionDate = in.readLong();
+				String name = ItemChangeCodec.readString(in);
+
+				int setCount = in.readInt();
+				for (int j = 0; j < setCount; j++) {
+					attributes = attributes.plus(ItemChangeCodec.readString(in), ItemChangeCodec.readString(in));
+				}
+				int removedCount = in.readInt();
+				for (int j = 0; j < removedCount; j++) {
+					attributes = attributes.minus(ItemChangeCodec.readString(in));
+				}
+				versions[i] = new ItemVersion(block.fromVersion + i, name, attributes, versionDate);
+			}
+			return versions;
+		}
+	}
+
+	private static final class Segment implements Closeable {
+
+		private final Path file;
+
+		private final FileChannel channel;
+
+		// guarded by the archive
+		private long size;
+
+		private Segment(Path file, FileChannel channel) {
+			this.file = file;
+			this.channel = channel;
+		}
+
+		static Segment create(Path file) throws IOException {
+			return new Segment(file, FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+			                                          StandardOpenOption.WRITE));
+		}
+
+		// returns the offset of the data
+		long append(byte[] data) throws IOException {
+			long offset = size;
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, offset + buffer.position());
+			}
+			size += data.length;
+			return offset;
+		}
+
+		byte[] read(long offset, int length) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(length);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, offset + buffer.position()) < 0) {
+					throw new EOFException("Archive block at " + offset + " exceeds " + file);
+				}
+			}
+			return buffer.array();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	private static final class Block {
+
+		private final Segment segment;
+
+		private final long offset;
+
+		private final int length;
+
+		private final int fromVersion;
+
+		private final int toVersion;
+
+		// date of the newest version in the block
+		private final long lastDate;
+
+		Block(Segment segment, long offset, int length, int fromVersion, int toVersion, long lastDate) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.fromVersion = fromVersion;
+			this.toVersion = toVersion;
+			this.lastDate = lastDate;
+		}
+	}
+
+	/**
+	 * Immutable index of the archived blocks of one item, oldest first
+	 */
+	private final class Blocks implements ArchivedVersions {
+
+		private final Block[] blocks;
+
+		Blocks(Block[] blocks) {
+			this.blocks = blocks;
+		}
+
+		Blocks plus(Block block) {
+			Block[] extended = Arrays.copyOf(blocks, blocks.length + 1);
+			extended[blocks.length] = block;
+			return new Blocks(extended);
+		}
+
+		@Override
+		public Iterator<ItemVersion> iterator(int toVersion) {
+			// the last block starting at or before toVersion
+			int low = 0;
+			int high = blocks.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (blocks[middle].fromVersion <= toVersion) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			int startBlock = low - 1;
+
+			return new Iterator<ItemVersion>() {
+
+				private int blockIndex = startBlock;
+
+				private ItemVersion[] current;
+
+				private int next = -1;
+
+				@Override
+				public boolean hasNext() {
+					if (current == null && blockIndex >= 0) {
+						Block block = blocks[blockIndex];
+						current = versions(block);
+						next = Math.min(toVersion, block.toVersion) - block.fromVersion;
+					}
+					return current != null && next >= 0;
+				}
+
+				@Override
+				public ItemVersion next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					ItemVersion version = current[next--];
+					if (next < 0) {
+						// continue with the preceding block
+						current = null;
+						blockIndex--;
+					}
+					return version;
+				}
+			};
+		}
+
+		@Override
+		public int getFirstVersionSince(Date since) {
+			if (blocks.length == 0) {
+				return 1;
+			}
+			// the first block whose newest version is not older
+			long sinceTime = since.getTime();
+			int low = 0;
+			int high = blocks.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (blocks[middle].lastDate < sinceTime) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			if (low == blocks.length) {
+				return blocks[blocks.length - 1].toVersion + 1;
+			}
+
+			ItemVersion[] versions = versions(blocks[low]);
+			int first = 0;
+			int last = versions.length;
+			while (first < last) {
+				int middle = (first + last) >>> 1;
+				if (versions[middle].getVersionDate().getTime() < sinceTime) {
+					first = middle + 1;
+				} else {
+					last = middle;
+				}
+			}
+			return blocks[low].fromVersion + first;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.labregister.api.items.store.persistence;
+
+import com.labregister.api.items.domain.ArchivedVersions;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemChange;
+import com.labregister.api.items.store.ItemChangeListener;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.ItemStoreProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves old versions of the stored items from the heap to an {@link ItemVersionArchive}, enabled with
+ * {@code labregister.store.version-retention-count} and / or {@code labregister.store.version-retention-age}
+ * <p>
+ * A version stays on the heap while it is one of the latest {@code version-retention-count} versions of its
+ * item or younger than {@code version-retention-age}, and the current version always stays. Every
+ * {@code labregister.store.version-archive-interval} all items are checked, and the versions of an item
+ * which are no longer retained are appended to the archive in blocks of up to {@value #MAX_BLOCK_VERSIONS}
+ * before they are released from the heap. Reads of archived versions go to the archive transparently,
+ * see {@link Item#getVersions(int, int, int)}.
+ */
+@Component
+public class ItemVersionArchiver implements ItemChangeListener, MeterBinder {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ItemVersionArchiver.class);
+
+	static final int MAX_BLOCK_VERSIONS = 4096;
+
+	private static final String ARCHIVE_DIRECTORY = "archive";
+
+	private final ItemStore store;
+
+	private final ItemStoreProperties properties;
+
+	private volatile ItemVersionArchive archive;
+
+	private ScheduledExecutorService scheduler;
+
+	public ItemVersionArchiver(ItemStore store, ItemStoreProperties properties) {
+		this.store = store;
+		this.properties = properties;
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		if (properties.getVersionRetentionCount() <= 0 && properties.getVersionRetentionAge() == null) {
+			return;
+		}
+		archive = ItemVersionArchive.open(Paths.get(properties.getDataDirectory(), ARCHIVE_DIRECTORY));
+		store.addChangeListener(this);
+
+		long interval = properties.getVersionArchiveInterval().toMillis();
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "item-version-archiver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::archiveQuietly, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() throws IOException, InterruptedException {
+		if (archive == null) {
+			return;
+		}
+		store.removeChangeListener(this);
+		scheduler.shutdownNow();
+		scheduler.awaitTermination(1, TimeUnit.MINUTES);
+		archive.close();
+	}
+
+	/**
+	 * Archives the versions of all items which are no longer retained on the heap
+	 *
+	 * @return number of archived versions
+	 * @throws IllegalStateException if no retention is configured
+	 */
+	public synchronized long archive() throws IOException {
+		if (archive == null) {
+			throw new IllegalStateException("No version retention configured");
+		}
+		archive.deleteRetiredSegments();
+
+		Duration retentionAge = properties.getVersionRetentionAge();
+		Date retainedSince = retentionAge != null ? new Date(System.currentTimeMillis() - retentionAge.toMillis()) : null;
+		long archived = 0;
+		for (Item item : store.values()) {
+			archived += archive(item, retainedSince);
+		}
+		return archived;
+	}
+
+	private int archive(Item item, Date retainedSince) throws IOException {
+		// a version is released once none of the configured retentions keeps it
+		int current = item.getVersionNumber();
+		int retainedFrom = current;
+		if (properties.getVersionRetentionCount() > 0) {
+			retainedFrom = Math.min(retainedFrom, current - properties.getVersionRetentionCount() + 1);
+		}
+		if (retainedSince != null) {
+			retainedFrom = Math.min(retainedFrom, item.getFirstVersionSince(retainedSince));
+		}
+
+		int archived = 0;
+		int firstHeld = item.getFirstHeldVersion();
+		while (firstHeld < retainedFrom) {
+			int to = Math.min(retainedFrom - 1, firstHeld + MAX_BLOCK_VERSIONS - 1);
+			List<ItemVersion> versions = item.getVersions(firstHeld, to, Integer.MAX_VALUE);
+			Collections.reverse(versions);
+
+			ArchivedVersions archivedVersions = archive.append(item.getArchivedVersions(), versions);
+			if (!store.archiveVersions(item, versions, archivedVersions)) {
+				break;
+			}
+			archived += versions.size();
+			firstHeld = to + 1;
+		}
+		return archived;
+	}
+
+	@Override
+	public void onChange(ItemChange change) {
+		if (change.getType() == ItemChange.Type.DELETE_ALL) {
+			// the versions of deleted items are no longer read, their segments go with the next run
+			archive.retireSegments();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("labregister.items.archive.size", this, archiver -> archiver.archive != null ? archiver.archive.getSize() : 0)
+		     .description("Bytes of the compressed version archive")
+		     .baseUnit(BaseUnits.BYTES)
+		     .register(registry);
+	}
+
+	private void archiveQuietly() {
+		try {
+			long started = System.nanoTime();
+			long archived = archive();
+			if (archived > 0) {
+				LOG.info("Archived {} item versions in {} ms", archived, (System.nanoTime() - started) / 1_000_000);
+			}
+		} catch (Exception e) {
+			// the versions stay on the heap, the next run tries again
+			LOG.error("Could not archive item versions", e);
+		}
+	}
+}
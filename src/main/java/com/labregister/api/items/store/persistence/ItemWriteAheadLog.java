@@ -0,0 +1,443 @@
+package com.labregister.api.items.store.persistence;
+
+import com.google.common.base.Preconditions;
+import com.labregister.api.items.store.ItemChange;
+import com.labregister.api.items.store.ItemChangeLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, file based {@link ItemChangeLog}
+ * <p>
+ * Request threads only encode their change and enqueue it. A single writer thread drains the
+ * queue, writes all pending records with one sequential write and, depending on the
+ * {@link FsyncPolicy}, forces them to disk with one fsync for the whole batch (group commit)
+ * before completing the futures of the batch.
+ * <p>
+ * The log is split into numbered segment files in one directory. {@link #rotate()} starts a new
+ * segment exactly between two enqueued changes, which lets a snapshot taken afterwards replace
+ * all older segments, see {@link ItemSnapshot}.
+ * <p>
+ * Each record is framed as payload length (int), CRC32 of the payload (int) and the payload
+ * written by {@link ItemChangeCodec}. On replay, a torn or corrupt record at the tail of the newest
+ * segment (e.g. after a crash during a write) ends the log and is cut off. Older segments were forced
+ * completely before the next one was started, so a bad record in one of them is corruption and
+ * fails the replay, rather than replaying the later segments over a gap.
+ */
+public class ItemWriteAheadLog implements ItemChangeLog, Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ItemWriteAheadLog.class);
+
+	private static final Pattern SEGMENT_NAME = Pattern.compile("items-(\\d+)\\.wal");
+
+	private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+	private final Path directory;
+
+	private final FsyncPolicy fsyncPolicy;
+
+	private final long fsyncIntervalNanos;
+
+	private final int maxBatchSize;
+
+	private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+	private final Thread writer;
+
+	private final AtomicLong appended = new AtomicLong();
+
+	private volatile boolean closed;
+
+	private volatile IOException failure;
+
+	// state below is owned by the writer thread
+
+	private FileChannel channel;
+
+	private long segment;
+
+	private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+	private long lastFsync = System.nanoTime();
+
+	private boolean unsynced;
+
+	private ItemWriteAheadLog(Path directory, long segment, FileChannel channel, FsyncPolicy fsyncPolicy,
+	                          Duration fsyncInterval, int maxBatchSize) {
+		this.directory = directory;
+		this.segment = segment;
+		this.channel = channel;
+		this.fsyncPolicy = fsyncPolicy;
+		this.fsyncIntervalNanos = fsyncInterval.toNanos();
+		this.maxBatchSize = maxBatchSize;
+		this.writer = new Thread(this::writeLoop, "item-wal-writer");
+		this.writer.setDaemon(true);
+	}
+
+	/**
+	 * Opens the log in the given directory for appending; records go to a new segment
+	 * following all existing ones
+	 */
+	public static ItemWriteAheadLog open(Path directory, FsyncPolicy fsyncPolicy, Duration fsyncInterval,
+	                                     int maxBatchSize) throws IOException {
+		Preconditions.checkArgument(fsyncPolicy != null && fsyncInterval != null && maxBatchSize > 0);
+
+		List<Long> segments = segments(directory);
+		long segment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+
+		ItemWriteAheadLog log = new ItemWriteAheadLog(directory, segment, openSegment(directory, segment),
+		                                              fsyncPolicy, fsyncInterval, maxBatchSize);
+		log.writer.start();
+		return log;
+	}
+
+	/**
+	 * Reads all intact records of the segments numbered {@code fromSegment} and higher in append order,
+	 * truncating a torn tail of the newest segment if there is one
+	 *
+	 * @return number of replayed changes
+	 * @throws IOException if a segment other than the newest one has a corrupt or incomplete record
+	 */
+	public static long replay(Path directory, long fromSegment, Consumer<ItemChange> consumer) throws IOException {
+		List<Long> segments = segments(directory);
+		long count = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			if (segments.get(i) >= fromSegment) {
+				count += replaySegment(segmentFile(directory, segments.get(i)), consumer, i == segments.size() - 1);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Deletes all segments numbered lower than the given one, e.g. once a snapshot covers them
+	 */
+	public static void deleteSegmentsBefore(Path directory, long segment) throws IOException {
+		for (long existing : segments(directory)) {
+			if (existing < segment) {
+				Files.deleteIfExists(segmentFile(directory, existing));
+			}
+		}
+	}
+
+	/**
+	 * @return numbers of all segments in the directory, ascending
+	 */
+	public static List<Long> segments(Path directory) throws IOException {
+		List<Long> segments = new ArrayList<>();
+		if (!Files.isDirectory(directory)) {
+			return segments;
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "items-*.wal")) {
+			for (Path file : files) {
+				Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+				if (matcher.matches()) {
+					segments.add(Long.parseLong(matcher.group(1)));
+				}
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	@Override
+	public CompletableFuture<?> append(ItemChange change) {
+		appended.incrementAndGet();
+		return enqueue(new PendingWrite(ItemChangeCodec.encode(change)));
+	}
+
+	/**
+	 * @return false once the log is closed or failed to write, all changes are rejected from then on
+	 */
+	@Override
+	public boolean isWritable() {
+		return !closed && failure == null;
+	}
+
+	/**
+	 * Closes the current segment and starts a new one; every change appended before this call
+	 * ends up in an older segment, every change appended after it in the new one
+	 *
+	 * @return future completing with the number of the new segment
+	 */
+	public CompletableFuture<Long> rotate() {
+		return enqueue(new PendingWrite(Control.ROTATE)).thenApply(Long.class::cast);
+	}
+
+	/**
+	 * @return number of changes appended since the log was opened
+	 */
+	public long getAppendedCount() {
+		return appended.get();
+	}
+
+	/**
+	 * Writes and forces all pending records, then closes the current segment
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		queue.add(new PendingWrite(Control.CLOSE));
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private CompletableFuture<Object> enqueue(PendingWrite write) {
+		if (closed || failure != null) {
+			write.done.completeExceptionally(failure != null ? failure : new IOException("Write-ahead log is closed"));
+			return write.done;
+		}
+		queue.add(write);
+		return write.done;
+	}
+
+	private void writeLoop() {
+		List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+		boolean running = true;
+
+		while (running) {
+			try {
+				PendingWrite first = fsyncPolicy == FsyncPolicy.INTERVAL
+						? queue.poll(fsyncIntervalNanos, TimeUnit.NANOSECONDS)
+						: queue.take();
+				if (first == null) {
+					forceIfDue();
+					continue;
+				}
+
+				batch.add(first);
+				queue.drainTo(batch, maxBatchSize - 1);
+				running = writeBatch(batch);
+			} catch (InterruptedException e) {
+				running = false;
+			} catch (IOException e) {
+				LOG.error("Write-ahead log in {} failed, rejecting further changes", directory, e);
+				failure = e;
+				batch.forEach(write -> write.done.completeExceptionally(e));
+				running = false;
+			}
+			batch.clear();
+		}
+
+		closeChannel();
+		// changes enqueued while closing have not been written
+		List<PendingWrite> pending = new ArrayList<>();
+		queue.drainTo(pending);
+		IOException notWritten = failure != null ? failure : new IOException("Write-ahead log is closed");
+		pending.forEach(write -> write.done.completeExceptionally(notWritten));
+	}
+
+	/**
+	 * @return false if the batch closed the log
+	 */
+	private boolean writeBatch(List<PendingWrite> batch) throws IOException {
+		CRC32 crc = new CRC32();
+		int unacknowledged = 0;
+
+		for (int i = 0; i < batch.size(); i++) {
+			PendingWrite write = batch.get(i);
+			if (write.control == null) {
+				ensureCapacity(RECORD_HEADER_SIZE + write.payload.length);
+				crc.reset();
+				crc.update(write.payload, 0, write.payload.length);
+				batchBuffer.putInt(write.payload.length)
+				           .putInt((int) crc.getValue())
+				           .put(write.payload);
+				continue;
+			}
+
+			// control markers split the batch: the records before them belong to the current segment
+			acknowledge(batch, unacknowledged, i);
+			unacknowledged = i + 1;
+			force();
+
+			if (write.control == Control.CLOSE) {
+				write.done.complete(null);
+				IOException closed = new IOException("Write-ahead log is closed");
+				batch.subList(i + 1, batch.size()).forEach(late -> late.done.completeExceptionally(closed));
+				return false;
+			}
+			channel.close();
+			segment++;
+			channel = openSegment(directory, segment);
+			write.done.complete(segment);
+		}
+
+		acknowledge(batch, unacknowledged, batch.size());
+		return true;
+	}
+
+	/*
+	 * Writes the buffered records of batch[from, to), forces them depending on the policy
+	 * and completes their futures
+	 */
+	private void acknowledge(List<PendingWrite> batch, int from, int to) throws IOException {
+		if (from >= to) {
+			return;
+		}
+		flushBuffer();
+		unsynced = true;
+
+		if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+			force();
+		} else {
+			forceIfDue();
+		}
+
+		for (int i = from; i < to; i++) {
+			batch.get(i).done.complete(null);
+		}
+	}
+
+	private void ensureCapacity(int recordSize) throws IOException {
+		if (batchBuffer.remaining() >= recordSize) {
+			return;
+		}
+		flushBuffer();
+		if (batchBuffer.capacity() < recordSize) {
+			batchBuffer = ByteBuffer.allocateDirect(recordSize);
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		batchBuffer.flip();
+		while (batchBuffer.hasRemaining()) {
+			channel.write(batchBuffer);
+		}
+		batchBuffer.clear();
+	}
+
+	private void forceIfDue() throws IOException {
+		if (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastFsync >= fsyncIntervalNanos) {
+			force();
+		}
+	}
+
+	private void force() throws IOException {
+		flushBuffer();
+		if (unsynced) {
+			channel.force(false);
+			unsynced = false;
+		}
+		lastFsync = System.nanoTime();
+	}
+
+	private void closeChannel() {
+		try {
+			if (failure == null) {
+				force();
+			}
+			channel.close();
+		} catch (IOException e) {
+			LOG.warn("Failed to close write-ahead log segment {} in {}", segment, directory, e);
+		}
+	}
+
+	private static FileChannel openSegment(Path directory, long segment) throws IOException {
+		FileChannel channel = FileChannel.open(segmentFile(directory, segment),
+		                                       StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.position(channel.size());
+		return channel;
+	}
+
+	private static Path segmentFile(Path directory, long segment) {
+		return directory.resolve(String.format("items-%010d.wal", segment));
+	}
+
+	private static long replaySegment(Path file, Consumer<ItemChange> consumer, boolean newest) throws IOException {
+		long validLength = 0;
+		long count = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+			long fileLength = channel.size();
+			CRC32 crc = new CRC32();
+
+			while (validLength + RECORD_HEADER_SIZE <= fileLength) {
+				int length = in.readInt();
+				int checksum = in.readInt();
+				if (length < 0 || validLength + RECORD_HEADER_SIZE + length > fileLength) {
+					break;
+				}
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+
+				crc.reset();
+				crc.update(payload, 0, length);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+
+				consumer.accept(ItemChangeCodec.read(new DataInputStream(new ByteArrayInputStream(payload))));
+				validLength += RECORD_HEADER_SIZE + length;
+				count++;
+			}
+
+			if (validLength < fileLength && !newest) {
+				throw new IOException("Corrupt or incomplete record at byte " + validLength + " of " + file
+				                      + ", which is followed by newer segments");
+			}
+			if (validLength < fileLength) {
+				LOG.warn("Truncating {} corrupt or incomplete bytes at the end of {}", fileLength - validLength, file);
+				channel.truncate(validLength);
+				channel.force(true);
+			}
+		}
+		return count;
+	}
+
+	private enum Control {
+		ROTATE,
+		CLOSE
+	}
+
+	private static final class PendingWrite {
+
+		private final byte[] payload;
+
+		private final Control control;
+
+		private final CompletableFuture<Object> done = new CompletableFuture<>();
+
+		PendingWrite(byte[] payload) {
+			this.payload = payload;
+			this.control = null;
+		}
+
+		PendingWrite(Control control) {
+			this.payload = null;
+			this.control = control;
+		}
+	}
+}
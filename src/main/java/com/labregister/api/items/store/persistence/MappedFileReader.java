@@ -0,0 +1,73 @@
+package com.labregister.api.items.store.persistence;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader of a memory-mapped file, the counterpart of {@link MappedFileWriter}
+ */
+final class MappedFileReader implements Closeable {
+
+	private static final int WINDOW_SIZE = 256 * 1024 * 1024;
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private MappedByteBuffer window;
+
+	private long windowStart;
+
+	MappedFileReader(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.size = channel.size();
+		this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_SIZE, size));
+	}
+
+	int readByte() throws IOException {
+		return ensure(1).get() & 0xFF;
+	}
+
+	int readInt() throws IOException {
+		return ensure(Integer.BYTES).getInt();
+	}
+
+	long readLong() throws IOException {
+		return ensure(Long.BYTES).getLong();
+	}
+
+	String readString() throws IOException {
+		int length = readInt();
+		if (length < 0) {
+			throw new IOException("Negative string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		ensure(length).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	private MappedByteBuffer ensure(int bytes) throws IOException {
+		if (window.remaining() < bytes) {
+			long position = windowStart + window.position();
+			if (position + bytes > size) {
+				throw new EOFException();
+			}
+			windowStart = position;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+			                     Math.min(Math.max(WINDOW_SIZE, bytes), size - position));
+		}
+		return window;
+	}
+}
@@ -0,0 +1,87 @@
+package com.labregister.api.items.store.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential writer into a memory-mapped file
+ * <p>
+ * The file is mapped in windows of {@link #WINDOW_SIZE} bytes which are remapped further down the
+ * file as it grows, so files larger than 2 GB can be written. On {@link #close()} the mapped pages
+ * are forced to disk and the file is cut to the bytes actually written.
+ */
+final class MappedFileWriter implements Closeable {
+
+	private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private final FileChannel channel;
+
+	private MappedByteBuffer window;
+
+	private long windowStart;
+
+	MappedFileWriter(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+		                                StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.window = channel.map(FileChannel.MapMode.READ_WRITE, 0, WINDOW_SIZE);
+	}
+
+	long position() {
+		return windowStart + window.position();
+	}
+
+	void writeByte(int value) throws IOException {
+		ensure(1).put((byte) value);
+	}
+
+	void writeInt(int value) throws IOException {
+		ensure(Integer.BYTES).putInt(value);
+	}
+
+	void writeLong(long value) throws IOException {
+		ensure(Long.BYTES).putLong(value);
+	}
+
+	void writeString(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeInt(bytes.length);
+		ensure(bytes.length).put(bytes);
+	}
+
+	/**
+	 * Overwrites a long at an earlier position, e.g. a count only known at the end
+	 */
+	void writeLongAt(long position, long value) throws IOException {
+		if (position >= windowStart && position + Long.BYTES <= windowStart + window.limit()) {
+			window.putLong((int) (position - windowStart), value);
+		} else {
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, position, Long.BYTES);
+			header.putLong(0, value);
+			header.force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		long length = position();
+		window.force();
+		window = null;
+		channel.truncate(length);
+		channel.force(true);
+		channel.close();
+	}
+
+	private MappedByteBuffer ensure(int bytes) throws IOException {
+		if (window.remaining() < bytes) {
+			window.force();
+			windowStart += window.position();
+			window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, Math.max(WINDOW_SIZE, bytes));
+		}
+		return window;
+	}
+}
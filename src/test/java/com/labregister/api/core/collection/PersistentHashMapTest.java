@@ -0,0 +1,83 @@
+package com.labregister.api.core.collection;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentHashMapTest {
+
+	@Test
+	public void plusAndMinus_BehaveLikeHashMap() {
+		Random random = new Random(42);
+		Map<Key, Integer> expected = new HashMap<>();
+		PersistentHashMap<Key, Integer> actual = PersistentHashMap.empty();
+
+		for (int i = 0; i < 50_000; i++) {
+			// small hash range to force collisions and deep tries
+			Key key = new Key(random.nextInt(2_000), random.nextInt(4_000));
+			if (random.nextInt(3) == 0) {
+				expected.remove(key);
+				actual = actual.minus(key);
+			} else {
+				expected.put(key, i);
+				actual = actual.plus(key, i);
+			}
+		}
+
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(actual, expected);
+		for (Map.Entry<Key, Integer> entry : expected.entrySet()) {
+			Assert.assertEquals(entry.getValue(), actual.get(entry.getKey()));
+		}
+	}
+
+	@Test
+	public void plus_LeavesOriginalUnchanged() {
+		PersistentHashMap<String, String> original = PersistentHashMap.copyOf(ImmutableMap.of("year", "2019", "color", "black"));
+		PersistentHashMap<String, String> changed = original.plus("year", "2020").minus("color");
+
+		Assert.assertEquals(ImmutableMap.of("year", "2019", "color", "black"), original);
+		Assert.assertEquals(ImmutableMap.of("year", "2020"), changed);
+	}
+
+	@Test
+	public void plus_ReturnsSameMap_WhenMappingAlreadyPresent() {
+		PersistentHashMap<String, String> map = PersistentHashMap.copyOf(ImmutableMap.of("year", "2019"));
+
+		Assert.assertSame(map, map.plus("year", "2019"));
+		Assert.assertSame(map, map.minus("color"));
+		Assert.assertSame(map, map.withContentOf(ImmutableMap.of("year", "2019")));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void put_ThrowsException() {
+		PersistentHashMap.<String, String>empty().put("year", "2019");
+	}
+
+	private static final class Key {
+
+		private final int hash;
+
+		private final int id;
+
+		Key(int hash, int id) {
+			this.hash = hash;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && ((Key) o).id == id && ((Key) o).hash == hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
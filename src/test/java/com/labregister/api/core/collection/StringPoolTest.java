@@ -0,0 +1,35 @@
+package com.labregister.api.core.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StringPoolTest {
+
+	@Test
+	public void intern_ReturnsPooledInstance_ForEqualStrings() {
+		StringPool pool = new StringPool(16);
+		String first = pool.intern(new String("concentration"));
+		String second = pool.intern(new String("concentration"));
+		String third = pool.intern(new String("concentration"));
+
+		Assert.assertSame(first, second);
+		Assert.assertSame(first, third);
+		Assert.assertEquals(2, pool.getDeduplicatedCount());
+		Assert.assertEquals(2 * (40 + 2 * "concentration".length()), pool.getSavedBytes());
+		Assert.assertNull(pool.intern(null));
+	}
+
+	@Test
+	public void intern_KeepsRepeatedStrings_WhileUniqueStringsPassThrough() {
+		StringPool pool = new StringPool(64);
+		String owner = pool.intern(new String("owner"));
+		pool.intern(new String("owner"));
+
+		// far more unique strings than the pool holds
+		for (int i = 0; i < 100_000; i++) {
+			pool.intern("value-" + i);
+		}
+
+		Assert.assertSame(owner, pool.intern(new String("owner")));
+	}
+}
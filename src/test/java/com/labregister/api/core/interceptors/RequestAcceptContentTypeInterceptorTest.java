@@ -0,0 +1,58 @@
+package com.labregister.api.core.interceptors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequestAcceptContentTypeInterceptorTest {
+
+	private static final String BROWSER_ACCEPT =
+			"text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8,application/signed-exchange;v=b3";
+
+	private final RequestAcceptContentTypeInterceptor interceptor =
+			new RequestAcceptContentTypeInterceptor("application/json", "application/x-ndjson");
+
+	@Test
+	public void accepts_WhenHeaderIsMissingOrEmpty() {
+		Assert.assertTrue(interceptor.isValidAcceptHeaderProvided(null));
+		Assert.assertTrue(interceptor.isValidAcceptHeaderProvided(""));
+	}
+
+	@Test
+	public void accepts_WhenSupportedTypeOrWildcardIsAccepted() {
+		Assert.assertTrue(interceptor.isValidAcceptHeaderProvided("application/json"));
+		Assert.assertTrue(interceptor.isValidAcceptHeaderProvided("Application/JSON; charset=UTF-8"));
+		Assert.assertTrue(interceptor.isValidAcceptHeaderProvided("text/plain, application/x-ndjson"));
+		Assert.assertTrue(interceptor.isValidAcceptHeaderProvided("application/*;q=0.5"));
+		Assert.assertTrue(interceptor.isValidAcceptHeaderProvided(BROWSER_ACCEPT));
+	}
+
+	@Test
+	public void rejects_WhenNoSupportedTypeIsAccepted() {
+		Assert.assertFalse(interceptor.isValidAcceptHeaderProvided("text/html"));
+		Assert.assertFalse(interceptor.isValidAcceptHeaderProvided("application/jsonx"));
+		Assert.assertFalse(interceptor.isValidAcceptHeaderProvided("text/*"));
+		Assert.assertFalse(interceptor.isValidAcceptHeaderProvided("application/xml;profile=\"a,application/json\""));
+	}
+
+	@Test
+	public void rejects_WhenSupportedTypeHasZeroQuality() {
+		Assert.assertFalse(interceptor.isValidAcceptHeaderProvided("application/json;q=0"));
+		Assert.assertFalse(interceptor.isValidAcceptHeaderProvided("text/html, */* ; q = 0.000"));
+		Assert.assertTrue(interceptor.isValidAcceptHeaderProvided("application/json;q=0.001"));
+		Assert.assertTrue(interceptor.isValidAcceptHeaderProvided("application/json;q=0, */*;q=0.1"));
+	}
+
+	@Test
+	public void cachesVerdicts_ForBoundedNumberOfHeaders() {
+		for (int i = 0; i < 2 * RequestAcceptContentTypeInterceptor.MAX_CACHED_HEADERS; i++) {
+			Assert.assertEquals(i % 2 == 0, interceptor.isValidAcceptHeaderProvided(
+					i % 2 == 0 ? "application/json;v=" + i : "text/html;v=" + i));
+		}
+		Assert.assertFalse(interceptor.isValidAcceptHeaderProvided("text/html;v=1"));
+
+		// recently used headers replace the first ones
+		String last = "text/html;v=" + (2 * RequestAcceptContentTypeInterceptor.MAX_CACHED_HEADERS - 1);
+		Assert.assertTrue(interceptor.isVerdictCached(last));
+		Assert.assertFalse(interceptor.isVerdictCached("application/json;v=0"));
+	}
+}
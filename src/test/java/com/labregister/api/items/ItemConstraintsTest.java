@@ -0,0 +1,46 @@
+package com.labregister.api.items;
+
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemConstraints;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ItemConstraintsTest {
+
+	private static final List<String> STRINGS = Arrays.asList(null, "", " ", "\t\n", "\u0000",
+	                                                          "\u00a0", "\u2003", " a ", "a");
+
+	private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+	private final ItemConstraints constraints = new ItemConstraints();
+
+	@Test
+	public void isValid_AgreesWithBeanValidation() {
+		for (String name : STRINGS) {
+			assertAgrees(new Item(name, null));
+			assertAgrees(new Item(name, Collections.emptyMap()));
+			for (String key : STRINGS) {
+				for (String value : STRINGS) {
+					Map<String, String> attributes = new HashMap<>();
+					attributes.put(key, value);
+					assertAgrees(new Item(name, attributes));
+					attributes.put("valid", "valid");
+					assertAgrees(new Item(name, attributes));
+				}
+			}
+		}
+	}
+
+	private void assertAgrees(Item item) {
+		boolean expected = validator.validate(item).isEmpty();
+		Assert.assertEquals(item.getName() + " " + item.getAttributes(), expected, constraints.isValid(item));
+	}
+}
@@ -1,30 +1,59 @@
 package com.labregister.api.items;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.labregister.api.common.MVCIntegrationTest;
+import com.labregister.api.core.GlobalControllerAdvice;
+import com.labregister.api.core.operation.Operation;
+import com.labregister.api.core.pagination.Page;
+import com.labregister.api.core.streaming.JsonStreamHttpMessageConverter;
 import com.labregister.api.items.controller.ItemController;
 import com.labregister.api.items.domain.Item;
 import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.service.ItemChangeFeed;
 import com.labregister.api.items.service.ItemService;
+import com.labregister.api.items.store.ItemStore;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ItemController.class)
@@ -33,13 +62,16 @@ public class ItemControllerTest extends MVCIntegrationTest {
 	@MockBean
 	private ItemService itemServiceMock;
 
+	@Autowired
+	private ItemStore itemStore;
+
 	@Test
 	public void GET_Items_ReturnsCorrectHeaderAndContent() throws Exception {
 		List<Item> items = ImmutableList.of(ItemFactory.randomItem(),
 		                                    ItemFactory.randomItem(),
 		                                    ItemFactory.randomItem());
 
-		when(itemServiceMock.getItems()).thenReturn(items);
+		when(itemServiceMock.streamItems(ImmutableMap.of())).thenReturn(items);
 
 		ResultActions actions = mockMvc.perform(get("/items"))
 		                               .andExpect(status().isOk())
@@ -51,6 +83,201 @@ public class ItemControllerTest extends MVCIntegrationTest {
 		}
 	}
 
+	@Test
+	public void GET_Items_ReturnsNotAcceptable_WhenNoJsonTypeIsAccepted() throws Exception {
+		mockMvc.perform(get("/items").accept(MediaType.TEXT_HTML))
+		       .andExpect(status().isNotAcceptable());
+
+		verify(itemServiceMock, never()).streamItems(any());
+	}
+
+	@Test
+	public void GET_Items_StreamsNewlineDelimitedJson_WhenAccepted() throws Exception {
+		List<Item> items = ImmutableList.of(ItemFactory.randomItem(), ItemFactory.randomItem());
+
+		when(itemServiceMock.streamItems(ImmutableMap.of())).thenReturn(items);
+
+		String body = mockMvc.perform(get("/items").accept(JsonStreamHttpMessageConverter.APPLICATION_NDJSON))
+		                     .andExpect(status().isOk())
+		                     .andExpect(content().contentType(JsonStreamHttpMessageConverter.APPLICATION_NDJSON))
+		                     .andReturn().getResponse().getContentAsString();
+
+		String[] lines = body.split("\n");
+		Assert.assertEquals(2, lines.length);
+		for (int i = 0; i < items.size(); i++) {
+			JSONObject line = new JSONObject(lines[i]);
+			Assert.assertEquals(items.get(i).getId(), line.getString("id"));
+			Assert.assertEquals(items.get(i).getName(), line.getString("name"));
+		}
+		Assert.assertTrue(body.endsWith("\n"));
+	}
+
+	@Test
+	public void GET_Items_StreamsSmile_WhenAccepted() throws Exception {
+		List<Item> items = ImmutableList.of(ItemFactory.randomItem(), ItemFactory.randomItem());
+
+		when(itemServiceMock.streamItems(ImmutableMap.of())).thenReturn(items);
+
+		byte[] body = mockMvc.perform(get("/items").accept(JsonStreamHttpMessageConverter.APPLICATION_SMILE))
+		                     .andExpect(status().isOk())
+		                     .andExpect(content().contentType(JsonStreamHttpMessageConverter.APPLICATION_SMILE))
+		                     .andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode array = new ObjectMapper(new SmileFactory()).readTree(body);
+		Assert.assertEquals(2, array.size());
+		for (int i = 0; i < items.size(); i++) {
+			Assert.assertEquals(items.get(i).getId(), array.get(i).get("id").asText());
+			Assert.assertEquals(items.get(i).getName(), array.get(i).get("name").asText());
+		}
+	}
+
+	@Test
+	public void GET_Items_ReturnsETag_AndNotModified_WhenETagMatches() throws Exception {
+		when(itemServiceMock.getItemsTag()).thenReturn("1a-42");
+		when(itemServiceMock.streamItems(any())).thenReturn(ImmutableList.of(ItemFactory.randomItem()));
+
+		mockMvc.perform(get("/items"))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"1a-42\""))
+		       .andExpect(header().string("Cache-Control", "no-cache"));
+
+		mockMvc.perform(get("/items").header("If-None-Match", "\"1a-42\""))
+		       .andExpect(status().isNotModified())
+		       .andExpect(content().string(""));
+
+		verify(itemServiceMock, times(1)).streamItems(any());
+	}
+
+	@Test
+	public void GET_Items_ServesCachedBody_UntilItemsTagChanges() throws Exception {
+		List<Item> items = ImmutableList.of(ItemFactory.randomItem(), ItemFactory.randomItem());
+
+		when(itemServiceMock.getItemsTag()).thenReturn("cached-1");
+		when(itemServiceMock.streamItems(ImmutableMap.of())).thenReturn(items);
+
+		for (int i = 0; i < 2; i++) {
+			ResultActions actions = mockMvc.perform(get("/items"))
+			                               .andExpect(status().isOk())
+			                               .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+			                               .andExpect(jsonPath("$", hasSize(2)));
+			assertItem("$.[1]", items.get(1), actions);
+		}
+		verify(itemServiceMock, times(1)).streamItems(ImmutableMap.of());
+
+		when(itemServiceMock.getItemsTag()).thenReturn("cached-2");
+		mockMvc.perform(get("/items").accept(MediaType.APPLICATION_JSON))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"cached-2\""));
+		verify(itemServiceMock, times(2)).streamItems(ImmutableMap.of());
+	}
+
+	@Test
+	public void GET_Items_ServesGzippedBody_WhenGzipAccepted() throws Exception {
+		List<Item> items = ImmutableList.of(ItemFactory.randomItem(), ItemFactory.randomItem());
+
+		when(itemServiceMock.getItemsTag()).thenReturn("gzipped-1");
+		when(itemServiceMock.streamItems(ImmutableMap.of())).thenReturn(items);
+
+		byte[] body = mockMvc.perform(get("/items").header("Accept-Encoding", "deflate, gzip;q=0.8"))
+		                     .andExpect(status().isOk())
+		                     .andExpect(header().string("Content-Encoding", "gzip"))
+		                     .andReturn().getResponse().getContentAsByteArray();
+
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			JsonNode array = new ObjectMapper().readTree(in);
+			Assert.assertEquals(2, array.size());
+			Assert.assertEquals(items.get(0).getId(), array.get(0).get("id").asText());
+		}
+
+		mockMvc.perform(get("/items").header("Accept-Encoding", "gzip;q=0"))
+		       .andExpect(status().isOk())
+		       .andExpect(header().doesNotExist("Content-Encoding"))
+		       .andExpect(jsonPath("$", hasSize(2)));
+
+		// an explicit coding takes precedence over the wildcard
+		mockMvc.perform(get("/items").header("Accept-Encoding", "gzip;q=0, *"))
+		       .andExpect(status().isOk())
+		       .andExpect(header().doesNotExist("Content-Encoding"));
+	}
+
+	@Test
+	public void GET_Items_ReturnsETagPerRepresentation() throws Exception {
+		when(itemServiceMock.getItemsTag()).thenReturn("1a-7");
+		when(itemServiceMock.streamItems(any())).thenReturn(ImmutableList.of(ItemFactory.randomItem()));
+
+		mockMvc.perform(get("/items").header("Accept-Encoding", "gzip"))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"1a-7-gzip\""))
+		       .andExpect(header().string("Vary", "Accept, Accept-Encoding"));
+		mockMvc.perform(get("/items").accept(JsonStreamHttpMessageConverter.APPLICATION_SMILE))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"1a-7-smile\""));
+
+		// the tag of another representation does not match
+		mockMvc.perform(get("/items").header("If-None-Match", "\"1a-7-gzip\""))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"1a-7\""));
+		mockMvc.perform(get("/items").accept(JsonStreamHttpMessageConverter.APPLICATION_SMILE)
+		                             .header("If-None-Match", "\"1a-7-smile\""))
+		       .andExpect(status().isNotModified())
+		       .andExpect(header().string("Vary", "Accept, Accept-Encoding"));
+	}
+
+	@Test
+	public void GET_Item_ReturnsNotModified_WhenVersionMatches() throws Exception {
+		Item item = ItemFactory.randomItem();
+		when(itemServiceMock.getItemVersionNumber(item.getId())).thenReturn(3);
+		when(itemServiceMock.getItem(item.getId())).thenReturn(item);
+
+		ResultActions actions = mockMvc.perform(get("/items/" + item.getId()).header("If-None-Match", "\"2\""))
+		                               .andExpect(status().isOk())
+		                               .andExpect(header().string("ETag", "\"3\""));
+		assertItem("$", item, actions);
+
+		mockMvc.perform(get("/items/" + item.getId()).header("If-None-Match", "\"3\""))
+		       .andExpect(status().isNotModified());
+		mockMvc.perform(get("/items/" + item.getId()).accept(MediaType.APPLICATION_CBOR)
+		                                             .header("If-None-Match", "\"3\""))
+		       .andExpect(status().isOk())
+		       .andExpect(header().string("ETag", "\"3-cbor\""));
+		mockMvc.perform(get("/items/" + item.getId() + "/versions").header("If-None-Match", "\"3\""))
+		       .andExpect(status().isNotModified());
+
+		verify(itemServiceMock, times(2)).getItem(item.getId());
+		verify(itemServiceMock, never()).streamItemVersions(anyString());
+	}
+
+	@Test
+	public void GET_ItemsWithLimit_ReturnsPageAndNextCursor() throws Exception {
+		List<Item> items = ImmutableList.of(ItemFactory.randomItem(), ItemFactory.randomItem());
+		final String NEXT_CURSOR = "NEXT-CURSOR";
+
+		when(itemServiceMock.getItems(isNull(), eq(2))).thenReturn(new Page<>(items, NEXT_CURSOR));
+
+		ResultActions actions = mockMvc.perform(get("/items?limit=2"))
+		                               .andExpect(status().isOk())
+		                               .andExpect(header().string(GlobalControllerAdvice.HEADER_NEXT_CURSOR, NEXT_CURSOR))
+		                               .andExpect(header().string("Link", "<http://localhost/items?limit=2&cursor=" + NEXT_CURSOR + ">; rel=\"next\""))
+		                               .andExpect(jsonPath("$", hasSize(2)));
+
+		for (int i = 0; i < items.size(); i++) {
+			assertItem("$.[" + i + "]", items.get(i), actions);
+		}
+	}
+
+	@Test
+	public void GET_ItemsWithAttributeFilter_ReturnsMatchingItems() throws Exception {
+		List<Item> items = ImmutableList.of(ItemFactory.randomItem());
+
+		when(itemServiceMock.streamItems(ImmutableMap.of("location", "freezer-3", "owner", ""))).thenReturn(items);
+
+		ResultActions actions = mockMvc.perform(get("/items?attr.location=freezer-3&attr.owner="))
+		                               .andExpect(status().isOk())
+		                               .andExpect(jsonPath("$", hasSize(1)));
+
+		assertItem("$.[0]", items.get(0), actions);
+	}
+
 	static String asJsonString(final Object obj) {
 		try {
 			return new ObjectMapper().writeValueAsString(obj);
@@ -59,6 +286,22 @@ public class ItemControllerTest extends MVCIntegrationTest {
 		}
 	}
 
+	@Test
+	public void GET_ItemsSearch_ReturnsMatchingItems() throws Exception {
+		List<Item> items = ImmutableList.of(ItemFactory.randomItem(), ItemFactory.randomItem());
+
+		when(itemServiceMock.searchItems("buffer", 5)).thenReturn(items);
+
+		ResultActions actions = mockMvc.perform(get("/items/search").param("q", "buffer").param("limit", "5"))
+		                               .andExpect(status().isOk())
+		                               .andExpect(jsonPath("$", hasSize(2)));
+		assertItem("$.[0]", items.get(0), actions);
+
+		mockMvc.perform(get("/items/search").param("q", "buffer"))
+		       .andExpect(status().isOk());
+		verify(itemServiceMock).searchItems("buffer", ItemService.DEFAULT_SEARCH_LIMIT);
+	}
+
 	@Test
 	public void POST_createsItemSuccessfully_WhenRequestValid() throws Exception {
 		Item item = ItemFactory.randomItem();
@@ -72,6 +315,99 @@ public class ItemControllerTest extends MVCIntegrationTest {
 		assertItem("$", item, actions);
 	}
 
+	@Test
+	public void POST_createsItemFromCbor_AndRespondsWithCbor() throws Exception {
+		Item item = ItemFactory.randomItem();
+		ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+		byte[] body = cborMapper.writeValueAsBytes(ImmutableMap.of("name", item.getName(),
+		                                                           "attributes", item.getAttributes()));
+
+		when(itemServiceMock.createItem(any())).thenReturn(item);
+
+		byte[] response = mockMvc.perform(post("/items").contentType(MediaType.APPLICATION_CBOR)
+		                                                .accept(MediaType.APPLICATION_CBOR)
+		                                                .content(body))
+		                         .andExpect(status().isCreated())
+		                         .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+		                         .andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode created = cborMapper.readTree(response);
+		Assert.assertEquals(item.getId(), created.get("id").asText());
+		verify(itemServiceMock).createItem(argThat(request -> item.getName().equals(request.getName())
+				&& item.getAttributes().equals(request.getAttributes())));
+	}
+
+	@Test
+	public void POST_acceptsItemForAsyncCreation_WhenPreferringAsync() throws Exception {
+		Item item = ItemFactory.randomItem();
+		Operation operation = new Operation("operation-1", URI.create("/items/" + item.getId()));
+
+		when(itemServiceMock.createItemAsync(any())).thenReturn(operation);
+
+		mockMvc.perform(post("/items").contentType(MediaType.APPLICATION_JSON)
+		                              .header("Prefer", "respond-async")
+		                              .content(getNewItemBodyAsJSON(item)))
+		       .andExpect(status().isAccepted())
+		       .andExpect(header().string("Location", "/operations/operation-1"))
+		       .andExpect(header().string("Preference-Applied", "respond-async"))
+		       .andExpect(jsonPath("$.status", is("PENDING")))
+		       .andExpect(jsonPath("$.resourceLocation", is("/items/" + item.getId())));
+
+		verify(itemServiceMock, never()).createItem(any());
+	}
+
+	@Test
+	public void POST_createsItemSynchronously_WhenPreferringOtherwise() throws Exception {
+		Item item = ItemFactory.randomItem();
+		when(itemServiceMock.createItem(any())).thenReturn(item);
+
+		mockMvc.perform(post("/items").contentType(MediaType.APPLICATION_JSON)
+		                              .header("Prefer", "return=minimal, foo=\"respond-async\"")
+		                              .content(getNewItemBodyAsJSON(item)))
+		       .andExpect(status().isCreated());
+
+		verify(itemServiceMock, never()).createItemAsync(any());
+	}
+
+	@Test
+	public void GET_Operation_ReturnsNotFound_WhenOperationIsUnknown() throws Exception {
+		mockMvc.perform(get("/operations/unknown"))
+		       .andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void POST_batch_createsItemsSuccessfully_WhenRequestValid() throws Exception {
+		List<Item> items = ImmutableList.of(ItemFactory.randomItem(), ItemFactory.randomItem());
+
+		when(itemServiceMock.createItems(any())).thenReturn(items);
+
+		ResultActions actions = mockMvc.perform(post("/items:batch").contentType(MediaType.APPLICATION_JSON)
+		                                                             .content(asJsonString(items)))
+		                               .andExpect(status().isCreated())
+		                               .andExpect(header().doesNotExist("Location"))
+		                               .andExpect(jsonPath("$", hasSize(2)));
+
+		for (int i = 0; i < items.size(); i++) {
+			assertItem("$.[" + i + "]", items.get(i), actions);
+		}
+	}
+
+	@Test
+	public void PUT_batch_updatesItemsSuccessfully_WhenRequestValid() throws Exception {
+		List<Item> items = ImmutableList.of(ItemFactory.randomItem(), ItemFactory.randomItem());
+
+		when(itemServiceMock.updateItems(any())).thenReturn(items);
+
+		ResultActions actions = mockMvc.perform(put("/items:batch").contentType(MediaType.APPLICATION_JSON)
+		                                                            .content(asJsonString(items)))
+		                               .andExpect(status().isOk())
+		                               .andExpect(jsonPath("$", hasSize(2)));
+
+		for (int i = 0; i < items.size(); i++) {
+			assertItem("$.[" + i + "]", items.get(i), actions);
+		}
+	}
+
 	@Test
 	public void PUT_updateItemSuccessfully_WhenRequestValid() throws Exception {
 		Item item = ItemFactory.randomItem();
@@ -87,13 +423,29 @@ public class ItemControllerTest extends MVCIntegrationTest {
 		assertItem("$", item, actions);
 	}
 
+	@Test
+	public void PUT_acceptsUpdateForAsyncProcessing_WhenPreferringAsync() throws Exception {
+		Item item = ItemFactory.randomItem();
+		Operation operation = new Operation("operation-2", URI.create("/items/" + item.getId()));
+
+		when(itemServiceMock.updateItemAsync(eq(item.getId()), any())).thenReturn(operation);
+
+		mockMvc.perform(put("/items/" + item.getId()).contentType(MediaType.APPLICATION_JSON)
+		                                             .header("Prefer", "respond-async, wait=10")
+		                                             .content(asJsonString(item)))
+		       .andExpect(status().isAccepted())
+		       .andExpect(header().string("Location", "/operations/operation-2"));
+
+		verify(itemServiceMock, never()).updateItem(anyString(), any());
+	}
+
 	@Test
 	public void GET_ItemVersions_ReturnsCorrectHeaderAndContent() throws Exception {
 		List<ItemVersion> items = ImmutableList
 				.of(ItemFactory.randomItem(), ItemFactory.randomItem(), ItemFactory.randomItem()).stream()
-				.map(ItemVersion::new).collect(Collectors.toList());
+				.map(ItemControllerTest::firstVersion).collect(Collectors.toList());
 
-		when(itemServiceMock.getItemVersions(anyString())).thenReturn(items);
+		when(itemServiceMock.streamItemVersions(anyString())).thenReturn(items);
 
 		final String ITEM_ID = "TEST-ID";
 
@@ -107,6 +459,76 @@ public class ItemControllerTest extends MVCIntegrationTest {
 		}
 	}
 
+	@Test
+	public void GET_ItemVersionsWithLimit_ReturnsPageAndNextCursor() throws Exception {
+		List<ItemVersion> versions = ImmutableList.of(firstVersion(ItemFactory.randomItem()));
+		final String ITEM_ID = "TEST-ID";
+
+		when(itemServiceMock.getItemVersions(eq(ITEM_ID), isNull(), isNull(), isNull(), isNull(), eq(1)))
+				.thenReturn(new Page<>(versions, "7"));
+
+		ResultActions actions = mockMvc.perform(get("/items/" + ITEM_ID + "/versions?limit=1"))
+		                               .andExpect(status().isOk())
+		                               .andExpect(header().string(GlobalControllerAdvice.HEADER_NEXT_CURSOR, "7"))
+		                               .andExpect(jsonPath("$", hasSize(1)));
+
+		assertItemVersion("$.[0]", versions.get(0), actions);
+	}
+
+	@Test
+	public void GET_ItemsAsOf_ReturnsPageOfItemsAtThatTime() throws Exception {
+		Item item = ItemFactory.randomItem();
+		Date asOf = new Date(1_500_000_000_000L);
+		when(itemServiceMock.findItemsAsOf(eq(asOf), eq(ImmutableMap.of("color", "red")), isNull(), eq(1)))
+				.thenReturn(new Page<>(ImmutableList.of(item), "next"));
+
+		ResultActions actions = mockMvc.perform(get("/items?asOf=2017-07-14T02:40:00.000Z&attr.color=red&limit=1"))
+		                               .andExpect(status().isOk())
+		                               .andExpect(header().string(GlobalControllerAdvice.HEADER_NEXT_CURSOR, "next"))
+		                               .andExpect(jsonPath("$", hasSize(1)));
+
+		assertItem("$.[0]", item, actions);
+	}
+
+	@Test
+	public void GET_ItemChanges_StreamsCreatedItems() throws Exception {
+		MvcResult result = mockMvc.perform(get("/items/changes").accept(MediaType.TEXT_EVENT_STREAM))
+		                          .andExpect(request().asyncStarted())
+		                          .andReturn();
+
+		Item item = itemStore.create(ItemFactory.randomItem());
+
+		String events = awaitEvents(result, item.getId());
+		Assert.assertTrue(events.contains("event:create"));
+		Assert.assertTrue(events.contains(item.getName()));
+	}
+
+	@Test
+	public void GET_ItemChanges_SendsReset_WhenLastEventIsUnknown() throws Exception {
+		MvcResult result = mockMvc.perform(get("/items/changes").accept(MediaType.TEXT_EVENT_STREAM)
+		                                                        .header("Last-Event-ID", "1"))
+		                          .andExpect(request().asyncStarted())
+		                          .andReturn();
+
+		awaitEvents(result, "event:" + ItemChangeFeed.EVENT_RESET);
+	}
+
+	private static String awaitEvents(MvcResult result, String expected) throws Exception {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+		String events = result.getResponse().getContentAsString();
+		while (!events.contains(expected) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+			events = result.getResponse().getContentAsString();
+		}
+		Assert.assertTrue(events, events.contains(expected));
+		return events;
+	}
+
+	private static ItemVersion firstVersion(Item item) {
+		return new ItemVersion(1, item.getName(), item.getAttributes(), item.getCreationDate(), null,
+		                       UnaryOperator.identity());
+	}
+
 	private void assertItem(String rootPath, Item item, ResultActions actions) throws Exception {
 		actions.andExpect(jsonPath(rootPath + ".id", is(item.getId())))
 				.andExpect(jsonPath(rootPath + ".creationDate").exists())
@@ -0,0 +1,155 @@
+package com.labregister.api.items;
+
+import com.google.common.collect.ImmutableMap;
+import com.labregister.api.Application;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+public class ItemReplicationTest {
+
+	private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(20);
+
+	private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+	private static final RestTemplate restTemplate = new RestTemplate();
+
+	private static String leader;
+
+	@BeforeClass
+	public static void startLeader() {
+		restTemplate.getInterceptors().add((request, body, execution) -> {
+			request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+			return execution.execute(request, body);
+		});
+		leader = start("server.port=0");
+	}
+
+	@AfterClass
+	public static void stopInstances() {
+		contexts.forEach(ConfigurableApplicationContext::close);
+	}
+
+	@Test
+	public void followers_ReplicateItemsAndVersions_AndRejectWrites() {
+		// created before the followers start, so they are loaded from a snapshot
+		List<Item> created = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			created.add(create(new Item("Item " + i, ImmutableMap.of("index", String.valueOf(i)))));
+		}
+		update(created.get(3), "Item 3 updated");
+
+		List<String> followers = Arrays.asList(start("server.port=0", "labregister.replication.leader=" + leader),
+		                                       start("server.port=0", "labregister.replication.leader=" + leader));
+		for (String follower : followers) {
+			awaitReplicated(follower);
+		}
+
+		// changed while the followers are connected, so they receive them from the change feed
+		for (int i = 20; i < 30; i++) {
+			created.add(create(new Item("Item " + i, ImmutableMap.of("index", String.valueOf(i)))));
+		}
+		update(created.get(3), "Item 3 updated again");
+		update(created.get(25), "Item 25 updated");
+
+		for (String follower : followers) {
+			awaitReplicated(follower);
+			Assert.assertEquals(versions(leader, created.get(3)), versions(follower, created.get(3)));
+			Assert.assertEquals(3, versions(follower, created.get(3)).size());
+
+			Map<?, ?> status = restTemplate.getForObject(follower + "/replication", Map.class);
+			Assert.assertEquals("FOLLOWER", status.get("role"));
+			Assert.assertEquals(true, status.get("connected"));
+			Assert.assertTrue(((Number) status.get("lagMillis")).longValue() >= 0);
+
+			try {
+				restTemplate.postForEntity(follower + "/items", json(new Item("Rejected")), Item.class);
+				Assert.fail();
+			} catch (HttpClientErrorException e) {
+				Assert.assertEquals(HttpStatus.METHOD_NOT_ALLOWED, e.getStatusCode());
+			}
+		}
+
+		Map<?, ?> status = restTemplate.getForObject(leader + "/replication", Map.class);
+		Assert.assertEquals("LEADER", status.get("role"));
+		Assert.assertTrue(((Number) status.get("subscribers")).intValue() >= followers.size());
+	}
+
+	// waits until the follower has caught up with the leader's latest change and lists the same items
+	private static void awaitReplicated(String follower) {
+		long sequence = ((Number) restTemplate.getForObject(leader + "/replication", Map.class).get("sequence"))
+				.longValue();
+		await(() -> ((Number) restTemplate.getForObject(follower + "/replication", Map.class).get("sequence"))
+				            .longValue() == sequence);
+		Assert.assertEquals(items(leader), items(follower));
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!condition.getAsBoolean()) {
+			Assert.assertTrue("Timed out waiting for the follower", System.currentTimeMillis() < deadline);
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+	private static Item create(Item request) {
+		return restTemplate.postForEntity(leader + "/items", json(request), Item.class).getBody();
+	}
+
+	private static void update(Item item, String name) {
+		Item request = new Item(name, item.getAttributes());
+		request.setId(item.getId());
+		restTemplate.put(leader + "/items/" + item.getId(), json(request));
+	}
+
+	private static List<String> items(String instance) {
+		return Arrays.stream(restTemplate.getForObject(instance + "/items", Item[].class))
+		             .map(item -> item.getId() + " " + item.getName() + " " + item.getVersionNumber())
+		             .collect(Collectors.toList());
+	}
+
+	private static List<String> versions(String instance, Item item) {
+		return Arrays.stream(restTemplate.getForObject(instance + "/items/" + item.getId() + "/versions",
+		                                               ItemVersion[].class))
+		             .map(version -> version.getVersionNumber() + " " + version.getName() + " "
+		                             + version.getAttributes() + " " + version.getVersionDate().getTime())
+		             .collect(Collectors.toList());
+	}
+
+	private static HttpEntity<Object> json(Object body) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		return new HttpEntity<>(body, headers);
+	}
+
+	private static String start(String... properties) {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).properties(properties)
+		                                                                                        .run();
+		contexts.add(context);
+		return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+	}
+}
@@ -0,0 +1,73 @@
+package com.labregister.api.items;
+
+import com.google.common.collect.ImmutableMap;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.store.ItemStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class ItemSearchTest {
+
+	private final ItemStore store = new ItemStore();
+
+	@Test
+	public void search_RanksNameMatchesBeforeAttributeMatches() {
+		create("Buffer pH 7", ImmutableMap.of("supplier", "Acme"));
+		create("Acme centrifuge", Collections.emptyMap());
+		create("ACME", Collections.emptyMap());
+		create("Pipette", ImmutableMap.of("note", "cleaned by acme"));
+		create("Beaker", ImmutableMap.of("supplier", "Other"));
+
+		Assert.assertEquals(Arrays.asList("ACME", "Acme centrifuge", "Pipette", "Buffer pH 7"),
+		                    names(store.search("acme", 10)));
+		Assert.assertEquals(Arrays.asList("ACME", "Acme centrifuge"), names(store.search("acme", 2)));
+		Assert.assertEquals(Collections.singletonList("Acme centrifuge"), names(store.search("E CEN", 10)));
+		Assert.assertEquals(Collections.emptyList(), store.search("acmf", 10));
+	}
+
+	@Test
+	public void search_FindsItemsByTheirCurrentText_AfterUpdatesAndCompaction() {
+		Item item = create("Flask", ImmutableMap.of("volume", "250 ml"));
+		for (int i = 0; i < 2_000; i++) {
+			update(item, "Flask " + i, ImmutableMap.of("volume", i + " ml"));
+		}
+
+		Assert.assertEquals(Collections.singletonList(item), store.search("flask 1999", 10));
+		Assert.assertEquals(Collections.singletonList(item), store.search("1999 ml", 10));
+		Assert.assertEquals(Collections.emptyList(), store.search("250 ml", 10));
+		Assert.assertEquals(Collections.emptyList(), store.search("flask 1998", 10));
+
+		store.clear();
+		Assert.assertEquals(Collections.emptyList(), store.search("flask", 10));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void search_RejectsQueriesShorterThanATrigram() {
+		store.search("ab", 10);
+	}
+
+	private Item create(String name, Map<String, String> attributes) {
+		Item item = new Item(name, attributes);
+		item.setId(UUID.randomUUID().toString());
+		item.setCreationDate(new Date());
+		return store.create(item);
+	}
+
+	private void update(Item item, String name, Map<String, String> attributes) {
+		Item request = new Item(name, attributes);
+		request.setId(item.getId());
+		store.update(item.getId(), request, new Date());
+	}
+
+	private static List<String> names(List<Item> items) {
+		return items.stream().map(Item::getName).collect(Collectors.toList());
+	}
+}
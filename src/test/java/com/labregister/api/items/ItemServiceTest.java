@@ -1,21 +1,38 @@
 package com.labregister.api.items;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.labregister.api.core.exception.BadRequestException;
 import com.labregister.api.core.exception.EntityValidationException;
 import com.labregister.api.core.exception.ResourceNotFoundException;
+import com.labregister.api.core.exception.ServiceUnavailableException;
+import com.labregister.api.core.operation.Operation;
+import com.labregister.api.core.operation.OperationRegistry;
+import com.labregister.api.core.validation.EntityValidator;
 import com.labregister.api.items.domain.Item;
+import com.labregister.api.core.pagination.Page;
 import com.labregister.api.items.domain.ItemVersion;
 import com.labregister.api.items.service.ItemService;
+import com.labregister.api.items.service.ItemServiceImpl;
+import com.labregister.api.items.service.ItemWritePipeline;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.ItemStoreProperties;
+import com.labregister.api.items.store.ItemStoreStatistics;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.net.URI;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -24,6 +41,12 @@ public class ItemServiceTest {
 	@Autowired
 	private ItemService itemService;
 
+	@Autowired
+	private ItemStore itemStore;
+
+	@Autowired
+	private EntityValidator entityValidator;
+
 	public ItemServiceTest() {
 	}
 
@@ -50,6 +73,22 @@ public class ItemServiceTest {
 		itemService.createItem(item);
 	}
 
+	@Test(expected = EntityValidationException.class)
+	public void createItem_ThrowsException_WhenAttributeValueIsBlank() {
+		Item item = new Item("Item", ImmutableMap.of("key", "\t"));
+		itemService.createItem(item);
+	}
+
+	@Test
+	public void createItem_ReportsBeanValidationErrors_WhenRequestInvalid() {
+		Item item = new Item(" ", ImmutableMap.of("key", ""));
+		EntityValidationException exception = Assertions.assertThrows(EntityValidationException.class,
+				() -> itemService.createItem(item));
+
+		Assert.assertEquals(2, exception.getBindingResult().getErrorCount());
+		Assert.assertNotNull(exception.getBindingResult().getFieldError("name"));
+	}
+
 	@Test
 	public void createItem_ReturnsCreatedItem_WhenRequestValid() {
 		final String ITEM_NAME = "Hello Luke";
@@ -94,6 +133,172 @@ public class ItemServiceTest {
 		cleanItemsRepo();
 	}
 
+	@Test
+	public void getItemsPage_WalksAllItemsInCreationOrder() throws InterruptedException {
+		cleanItemsRepo();
+		initItemsRepo();
+
+		Page<Item> firstPage = itemService.getItems(null, 2);
+		Assert.assertEquals(2, firstPage.getContent().size());
+		Assert.assertEquals("Item 3", firstPage.getContent().get(0).getName());
+		Assert.assertEquals("Item 2", firstPage.getContent().get(1).getName());
+		Assert.assertTrue(firstPage.hasNext());
+
+		Page<Item> secondPage = itemService.getItems(firstPage.getNextCursor(), 2);
+		Assert.assertEquals(1, secondPage.getContent().size());
+		Assert.assertEquals("Item 1", secondPage.getContent().get(0).getName());
+		Assert.assertFalse(secondPage.hasNext());
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void getItemsPage_ThrowsException_WhenCursorIsMalformed() {
+		Assertions.assertThrows(BadRequestException.class, () ->
+				itemService.getItems("not a cursor", 10)
+		);
+	}
+
+	@Test
+	public void getItemsPage_ThrowsException_WhenLimitIsOutOfRange() {
+		Assertions.assertThrows(BadRequestException.class, () ->
+				itemService.getItems(null, 0)
+		);
+	}
+
+	@Test
+	public void findItems_ReturnsItemsHavingAllAttributes() {
+		cleanItemsRepo();
+		Item item1 = itemService.createItem(new Item("Item 1", ImmutableMap.of("location", "freezer-3", "owner", "lab-1")));
+		Item item2 = itemService.createItem(new Item("Item 2", ImmutableMap.of("location", "freezer-3", "owner", "lab-2")));
+		Item item3 = itemService.createItem(new Item("Item 3", ImmutableMap.of("location", "shelf")));
+
+		Assert.assertEquals(ImmutableList.of(item2, item1), itemService.findItems(ImmutableMap.of("location", "freezer-3")));
+		Assert.assertEquals(ImmutableList.of(item1),
+		                    itemService.findItems(ImmutableMap.of("location", "freezer-3", "owner", "lab-1")));
+		Assert.assertEquals(ImmutableList.of(item2, item1), itemService.findItems(ImmutableMap.of("owner", "")));
+		Assert.assertTrue(itemService.findItems(ImmutableMap.of("location", "freezer-4")).isEmpty());
+		Assert.assertTrue(itemService.findItems(ImmutableMap.of("location", "shelf", "owner", "lab-1")).isEmpty());
+		Assert.assertEquals(ImmutableList.of(item3), itemService.findItems(ImmutableMap.of("location", "shelf")));
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void findItems_ReflectsUpdatedAttributes() {
+		cleanItemsRepo();
+		Item item1 = itemService.createItem(new Item("Item 1", ImmutableMap.of("location", "freezer-3", "owner", "lab-1")));
+		Item item2 = itemService.createItem(new Item("Item 2", ImmutableMap.of("location", "shelf")));
+
+		Item request = new Item("Item 1", ImmutableMap.of("location", "shelf"));
+		request.setId(item1.getId());
+		itemService.updateItem(item1.getId(), request);
+
+		Assert.assertTrue(itemService.findItems(ImmutableMap.of("location", "freezer-3")).isEmpty());
+		Assert.assertTrue(itemService.findItems(ImmutableMap.of("owner", "")).isEmpty());
+
+		Page<Item> firstPage = itemService.findItems(ImmutableMap.of("location", "shelf"), null, 1);
+		Assert.assertEquals(ImmutableList.of(item2), firstPage.getContent());
+		Page<Item> secondPage = itemService.findItems(ImmutableMap.of("location", "shelf"), firstPage.getNextCursor(), 1);
+		Assert.assertEquals(ImmutableList.of(item1), secondPage.getContent());
+		Assert.assertFalse(secondPage.hasNext());
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void findItems_ThrowsException_WhenAttributeKeyIsBlank() {
+		Assertions.assertThrows(BadRequestException.class, () ->
+				itemService.findItems(ImmutableMap.of(" ", "value"))
+		);
+	}
+
+	@Test
+	public void createItems_CreatesAllItemsInOrder() {
+		cleanItemsRepo();
+		List<Item> created = itemService.createItems(ImmutableList.of(new Item("Item 1", ImmutableMap.of("year", "2019")),
+		                                                               new Item("Item 2", ImmutableMap.of())));
+
+		Assert.assertEquals(2, created.size());
+		Assert.assertNotNull(created.get(0).getId());
+		Assert.assertEquals(1, created.get(0).getVersionNumber());
+		List<Item> items = itemService.getItems();
+		Assert.assertEquals("Item 2", items.get(0).getName());
+		Assert.assertEquals("Item 1", items.get(1).getName());
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void createItems_ReportsErrorsPerElement_AndCreatesNothing() {
+		cleanItemsRepo();
+		EntityValidationException exception = Assertions.assertThrows(EntityValidationException.class, () ->
+				itemService.createItems(ImmutableList.of(new Item("Item 1"),
+				                                         new Item(""),
+				                                         new Item("Item 3", ImmutableMap.of(" ", "value"))))
+		);
+
+		Assert.assertEquals(2, exception.getBindingResult().getErrorCount());
+		Assert.assertNotNull(exception.getBindingResult().getFieldError("list[1].name"));
+		Assert.assertTrue(itemService.getItems().isEmpty());
+	}
+
+	@Test
+	public void updateItems_UpdatesAllItems() {
+		cleanItemsRepo();
+		List<Item> created = itemService.createItems(ImmutableList.of(new Item("Item 1"), new Item("Item 2")));
+
+		Item request1 = new Item("Item 1b", ImmutableMap.of("year", "2020"));
+		request1.setId(created.get(0).getId());
+		Item request2 = new Item("Item 2b", ImmutableMap.of());
+		request2.setId(created.get(1).getId());
+		List<Item> updated = itemService.updateItems(ImmutableList.of(request1, request2));
+
+		Assert.assertEquals("Item 1b", updated.get(0).getName());
+		Assert.assertEquals(2, updated.get(0).getVersionNumber());
+		Assert.assertEquals("Item 2b", updated.get(1).getName());
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void updateItems_ThrowsException_WhenIdIsMissing() {
+		Item request = new Item("Item");
+		EntityValidationException exception = Assertions.assertThrows(EntityValidationException.class, () ->
+				itemService.updateItems(ImmutableList.of(request))
+		);
+		Assert.assertNotNull(exception.getBindingResult().getFieldError("list[0].id"));
+	}
+
+	@Test
+	public void updateItems_ThrowsException_AndUpdatesNothing_WhenAnItemDoesNotExist() {
+		cleanItemsRepo();
+		Item created = itemService.createItem(new Item("Item 1"));
+
+		Item request1 = new Item("Item 1b");
+		request1.setId(created.getId());
+		Item request2 = new Item("Item 2");
+		request2.setId("does-not-exist");
+		Assertions.assertThrows(ResourceNotFoundException.class, () ->
+				itemService.updateItems(ImmutableList.of(request1, request2))
+		);
+		Assert.assertEquals(1, itemService.getItemVersions(created.getId()).size());
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void getItemsTag_Changes_WhenAnItemChanges() {
+		String initialTag = itemService.getItemsTag();
+		Item item = itemService.createItem(new Item("Item 1"));
+		String createdTag = itemService.getItemsTag();
+		Assert.assertNotEquals(initialTag, createdTag);
+
+		Item request = new Item("Item 1");
+		request.setId(item.getId());
+		itemService.updateItem(item.getId(), request);
+		Assert.assertEquals(createdTag, itemService.getItemsTag());
+
+		request.setName("Item 1b");
+		itemService.updateItem(item.getId(), request);
+		Assert.assertNotEquals(createdTag, itemService.getItemsTag());
+		cleanItemsRepo();
+	}
+
 	@Test
 	public void updateItem_ThrowsException_WhenPathIdDoesNotExist() throws InterruptedException {
 		cleanItemsRepo();
@@ -134,13 +339,22 @@ public class ItemServiceTest {
 		Assert.assertTrue(items.size() > 0);
 		Item item = items.get(0);
 		final String EMPTY_NAME = "";
-		item.setName(EMPTY_NAME);
+		Item request = request(item, EMPTY_NAME, item.getAttributes());
 		Assertions.assertThrows(EntityValidationException.class, () ->
-				itemService.updateItem(item.getId(), item)
+				itemService.updateItem(item.getId(), request)
 		);
 		cleanItemsRepo();
 	}
 
+	@Test
+	public void storedItem_RejectsChangesOutsideOfUpdates() {
+		Item item = itemService.createItem(new Item("Item", ImmutableMap.of("color", "red")));
+		Assertions.assertThrows(IllegalStateException.class, () -> item.setName("Other"));
+		Assertions.assertThrows(IllegalStateException.class, () -> item.setAttributes(ImmutableMap.of()));
+		Assert.assertEquals("Item", itemService.getItem(item.getId()).getName());
+		cleanItemsRepo();
+	}
+
 	@Test
 	public void updateItem_ThrowsException_WhenNameIsNull() throws InterruptedException {
 		cleanItemsRepo();
@@ -148,9 +362,9 @@ public class ItemServiceTest {
 		List<Item> items = itemService.getItems();
 		Assert.assertTrue(items.size() > 0);
 		Item item = items.get(0);
-		item.setName(null);
+		Item request = request(item, null, item.getAttributes());
 		Assertions.assertThrows(EntityValidationException.class, () ->
-				itemService.updateItem(item.getId(), item)
+				itemService.updateItem(item.getId(), request)
 		);
 		cleanItemsRepo();
 	}
@@ -162,9 +376,9 @@ public class ItemServiceTest {
 		List<Item> items = itemService.getItems();
 		Assert.assertTrue(items.size() > 0);
 		Item item = items.get(0);
-		item.setAttributes(ImmutableMap.of("", "value"));
+		Item request = request(item, item.getName(), ImmutableMap.of("", "value"));
 		Assertions.assertThrows(EntityValidationException.class, () ->
-				itemService.updateItem(item.getId(), item)
+				itemService.updateItem(item.getId(), request)
 		);
 		cleanItemsRepo();
 	}
@@ -176,9 +390,9 @@ public class ItemServiceTest {
 		List<Item> items = itemService.getItems();
 		Assert.assertTrue(items.size() > 0);
 		Item item = items.get(0);
-		item.setAttributes(ImmutableMap.of(" ", "value"));
+		Item request = request(item, item.getName(), ImmutableMap.of(" ", "value"));
 		Assertions.assertThrows(EntityValidationException.class, () ->
-				itemService.updateItem(item.getId(), item)
+				itemService.updateItem(item.getId(), request)
 		);
 		cleanItemsRepo();
 	}
@@ -200,6 +414,124 @@ public class ItemServiceTest {
 		cleanItemsRepo();
 	}
 
+	@Test
+	public void statistics_CountCreatesUpdatesAndVersions() {
+		cleanItemsRepo();
+		ItemStoreStatistics statistics = itemStore.getStatistics();
+		long created = statistics.getCreated();
+		long newVersions = statistics.getNewVersions();
+		long unchangedUpdates = statistics.getUnchangedUpdates();
+
+		Item item = itemService.createItem(new Item("Item", ImmutableMap.of("year", "2019")));
+		Item update = new Item("Item", ImmutableMap.of("year", "2020"));
+		update.setId(item.getId());
+		itemService.updateItem(item.getId(), update);
+		itemService.updateItem(item.getId(), update);
+
+		Assert.assertEquals(created + 1, statistics.getCreated());
+		Assert.assertEquals(newVersions + 1, statistics.getNewVersions());
+		Assert.assertEquals(unchangedUpdates + 1, statistics.getUnchangedUpdates());
+		Assert.assertEquals(2, statistics.getVersions());
+		Assert.assertTrue(statistics.getEstimatedHistoryBytes() > 0);
+
+		cleanItemsRepo();
+		Assert.assertEquals(0, statistics.getVersions());
+		Assert.assertEquals(0, statistics.getEstimatedHistoryBytes());
+	}
+
+	@Test
+	public void createItem_SharesRepeatedAttributeStringsBetweenItems() {
+		long savedBytes = itemStore.getStringPool().getSavedBytes();
+
+		// distinct but equal instances, as deserialized from two requests
+		Item first = itemService.createItem(new Item("Item", ImmutableMap.of(new String("location"), new String("Lab 1"))));
+		Item second = itemService.createItem(new Item("Item", ImmutableMap.of(new String("location"), new String("Lab 1"))));
+
+		String firstKey = first.getAttributes().keySet().iterator().next();
+		String secondKey = second.getAttributes().keySet().iterator().next();
+		Assert.assertSame(firstKey, secondKey);
+		Assert.assertSame(first.getAttributes().get(firstKey), second.getAttributes().get(secondKey));
+		Assert.assertTrue(itemStore.getStringPool().getSavedBytes() > savedBytes);
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void createItemAsync_AppliesCreateAndUpdatesInOrder() throws InterruptedException {
+		Item request = new Item("Item", ImmutableMap.of("year", "2019"));
+		Operation created = itemService.createItemAsync(request);
+		Assert.assertEquals("/items/" + request.getId(), created.getResourceLocation().toString());
+
+		awaitCompletion(created);
+		Assert.assertEquals(Operation.Status.SUCCEEDED, created.getStatus());
+
+		Item update = new Item("Item", ImmutableMap.of("year", "2020"));
+		update.setId(request.getId());
+		Operation updated = itemService.updateItemAsync(request.getId(), update);
+		Item secondUpdate = new Item("Item", ImmutableMap.of("year", "2021"));
+		secondUpdate.setId(request.getId());
+		Operation updatedAgain = itemService.updateItemAsync(request.getId(), secondUpdate);
+
+		awaitCompletion(updatedAgain);
+		Assert.assertEquals(Operation.Status.SUCCEEDED, updated.getStatus());
+		Assert.assertEquals(Operation.Status.SUCCEEDED, updatedAgain.getStatus());
+		Item item = itemService.getItem(request.getId());
+		Assert.assertEquals(3, item.getVersionNumber());
+		Assert.assertEquals("2021", item.getAttributes().get("year"));
+	}
+
+	@Test
+	public void createItemAsync_RegistersNoOperation_WhenWriteIsRejected() {
+		ItemStore store = new ItemStore();
+		OperationRegistry operations = Mockito.spy(new OperationRegistry());
+		// the pipeline is not started, so it rejects every write
+		ItemService service = new ItemServiceImpl(entityValidator, store,
+		                                          new ItemWritePipeline(store, new ItemStoreProperties()), operations);
+
+		Assertions.assertThrows(ServiceUnavailableException.class,
+		                        () -> service.createItemAsync(new Item("Item")));
+		Mockito.verify(operations, Mockito.never()).register(Mockito.any());
+	}
+
+	@Test
+	public void writePipeline_FailsOnlyTheWritesTheStoreRefuses() throws InterruptedException {
+		ItemStore store = new ItemStore();
+		Item existing = store.create(newItem("Existing"));
+		ItemWritePipeline pipeline = new ItemWritePipeline(store, new ItemStoreProperties());
+		pipeline.start();
+		try {
+			Item first = newItem("First");
+			Item duplicate = newItem("Duplicate");
+			duplicate.setId(existing.getId());
+			Item last = newItem("Last");
+			List<Operation> operations = ImmutableList.of(operation(), operation(), operation());
+			pipeline.submitCreate(first, operations.get(0));
+			pipeline.submitCreate(duplicate, operations.get(1));
+			pipeline.submitCreate(last, operations.get(2));
+			for (Operation operation : operations) {
+				awaitCompletion(operation);
+			}
+
+			Assert.assertEquals(Operation.Status.SUCCEEDED, operations.get(0).getStatus());
+			Assert.assertEquals(Operation.Status.FAILED, operations.get(1).getStatus());
+			Assert.assertEquals(Operation.Status.SUCCEEDED, operations.get(2).getStatus());
+			Assert.assertEquals(3, store.size());
+		} finally {
+			pipeline.stop();
+		}
+	}
+
+	@Test(expected = EntityValidationException.class)
+	public void createItemAsync_ThrowsException_WhenNameIsEmpty() {
+		itemService.createItemAsync(new Item(""));
+	}
+
+	@Test(expected = ResourceNotFoundException.class)
+	public void updateItemAsync_ThrowsException_WhenItemDoesNotExist() {
+		Item update = new Item("Item");
+		update.setId("unknown");
+		itemService.updateItemAsync("unknown", update);
+	}
+
 	@Test
 	public void updateItem_UpdateItem_and_CreateVersion_WhenRequestValid() throws InterruptedException {
 		cleanItemsRepo();
@@ -273,6 +605,142 @@ public class ItemServiceTest {
 		cleanItemsRepo();
 	}
 
+	@Test
+	public void getItemVersions_ReturnsImmutableAttributes() throws InterruptedException {
+		cleanItemsRepo();
+		initItemsRepo();
+		Item selectedItem = itemService.getItems().get(0);
+
+		Item item = new Item(selectedItem.getName(), ImmutableMap.of("year", "2010", "color", "green"));
+		item.setId(selectedItem.getId());
+		itemService.updateItem(item.getId(), item);
+
+		List<ItemVersion> versions = itemService.getItemVersions(item.getId());
+		Assert.assertEquals(ImmutableMap.of("year", "2010", "color", "green"), versions.get(0).getAttributes());
+		Assert.assertEquals(ImmutableMap.of("year", "2010", "color", "pink"), versions.get(1).getAttributes());
+		Assertions.assertThrows(UnsupportedOperationException.class, () ->
+				versions.get(1).getAttributes().put("color", "green")
+		);
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void getItemVersionsPage_WalksHistoryNewestFirst() {
+		Item item = createItemWithVersions(5);
+
+		Page<ItemVersion> firstPage = itemService.getItemVersions(item.getId(), null, null, null, null, 2);
+		Assert.assertEquals(ImmutableList.of(5, 4), versionNumbers(firstPage));
+		Assert.assertEquals("3", firstPage.getNextCursor());
+
+		Page<ItemVersion> secondPage = itemService.getItemVersions(item.getId(), null, null, null, firstPage.getNextCursor(), 2);
+		Assert.assertEquals(ImmutableList.of(3, 2), versionNumbers(secondPage));
+
+		Page<ItemVersion> lastPage = itemService.getItemVersions(item.getId(), null, null, null, secondPage.getNextCursor(), 2);
+		Assert.assertEquals(ImmutableList.of(1), versionNumbers(lastPage));
+		Assert.assertFalse(lastPage.hasNext());
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void getItemVersionsPage_ReturnsVersionRange() throws InterruptedException {
+		Item item = createItemWithVersions(3);
+		Thread.sleep(10);
+		Date since = new Date();
+		Item request = new Item("Item version 4", ImmutableMap.of());
+		request.setId(item.getId());
+		itemService.updateItem(item.getId(), request);
+
+		Assert.assertEquals(ImmutableList.of(3, 2),
+		                    versionNumbers(itemService.getItemVersions(item.getId(), 2, 3, null, null, 10)));
+		Assert.assertEquals(ImmutableList.of(4),
+		                    versionNumbers(itemService.getItemVersions(item.getId(), null, null, since, null, 10)));
+		Assert.assertEquals(ImmutableList.of(),
+		                    versionNumbers(itemService.getItemVersions(item.getId(), null, 3, since, null, 10)));
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void getItemVersionsPage_ThrowsException_WhenCursorIsMalformed() {
+		Item item = createItemWithVersions(1);
+		Assertions.assertThrows(BadRequestException.class, () ->
+				itemService.getItemVersions(item.getId(), null, null, null, "not a cursor", 10)
+		);
+		cleanItemsRepo();
+	}
+
+	@Test
+	public void findItemsAsOf_ReturnsItemsAsTheyWereAtThatTime() throws InterruptedException {
+		cleanItemsRepo();
+		Item item1 = itemService.createItem(new Item("Item 1", ImmutableMap.of("location", "freezer-1")));
+		Item item2 = itemService.createItem(new Item("Item 2", ImmutableMap.of("location", "freezer-1")));
+		Thread.sleep(10);
+		Date asOf = new Date();
+		Thread.sleep(10);
+		Item request = new Item("Item 1 moved", ImmutableMap.of("location", "freezer-2"));
+		request.setId(item1.getId());
+		itemService.updateItem(item1.getId(), request);
+		itemService.createItem(new Item("Item 3", ImmutableMap.of("location", "freezer-1")));
+
+		Page<Item> firstPage = itemService.findItemsAsOf(asOf, ImmutableMap.of(), null, 1);
+		Assert.assertEquals(ImmutableList.of("Item 2"), names(firstPage));
+		Page<Item> lastPage = itemService.findItemsAsOf(asOf, ImmutableMap.of(), firstPage.getNextCursor(), 1);
+		Assert.assertEquals(ImmutableList.of("Item 1"), names(lastPage));
+		Assert.assertEquals(1, lastPage.getContent().get(0).getVersionNumber());
+		Assert.assertFalse(lastPage.hasNext());
+
+		Assert.assertEquals(ImmutableList.of("Item 2", "Item 1"),
+		                    names(itemService.findItemsAsOf(asOf, ImmutableMap.of("location", "freezer-1"), null, 10)));
+		Assert.assertEquals("Item 1 moved", itemService.getItemAsOf(item1.getId(), new Date()).getName());
+		Assert.assertEquals("Item 2", itemService.getItemAsOf(item2.getId(), asOf).getName());
+		Assertions.assertThrows(ResourceNotFoundException.class, () ->
+				itemService.getItemAsOf(item1.getId(), new Date(item1.getCreationDate().getTime() - 1))
+		);
+		cleanItemsRepo();
+	}
+
+	private Item createItemWithVersions(int versionCount) {
+		Item item = itemService.createItem(new Item("Item version 1", ImmutableMap.of("year", "2019")));
+		for (int version = 2; version <= versionCount; version++) {
+			Item request = new Item("Item version " + version, ImmutableMap.of("year", "2019"));
+			request.setId(item.getId());
+			itemService.updateItem(item.getId(), request);
+		}
+		return item;
+	}
+
+	// an update request for the stored item, which itself only changes through new versions
+	private static Item request(Item item, String name, Map<String, String> attributes) {
+		Item request = new Item(name, attributes);
+		request.setId(item.getId());
+		return request;
+	}
+
+	private static List<String> names(Page<Item> page) {
+		return page.getContent().stream().map(Item::getName).collect(Collectors.toList());
+	}
+
+	private static List<Integer> versionNumbers(Page<ItemVersion> page) {
+		return page.getContent().stream().map(ItemVersion::getVersionNumber).collect(Collectors.toList());
+	}
+
+	private static Item newItem(String name) {
+		Item item = new Item(name);
+		item.setId(UUID.randomUUID().toString());
+		item.setCreationDate(new Date());
+		return item;
+	}
+
+	private static Operation operation() {
+		String id = UUID.randomUUID().toString();
+		return new Operation(id, URI.create("/operations/" + id));
+	}
+
+	private static void awaitCompletion(Operation operation) throws InterruptedException {
+		for (int i = 0; i < 500 && operation.getStatus() == Operation.Status.PENDING; i++) {
+			Thread.sleep(10);
+		}
+	}
+
 	private void cleanItemsRepo() {
 		itemService.deleteAllItems();
 	}
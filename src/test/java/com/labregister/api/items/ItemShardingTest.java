@@ -0,0 +1,214 @@
+package com.labregister.api.items;
+
+import com.google.common.collect.ImmutableMap;
+import com.labregister.api.Application;
+import com.labregister.api.core.GlobalControllerAdvice;
+import com.labregister.api.core.internal.InternalApiInterceptor;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.sharding.ConsistentHashRing;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class ItemShardingTest {
+
+	private static final int ITEM_COUNT = 60;
+
+	private static final String TOKEN = "test-token";
+
+	private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+	private static final List<String> shards = new ArrayList<>();
+
+	private static Path ringFile;
+
+	private static String router;
+
+	private final RestTemplate restTemplate = new RestTemplate();
+
+	{
+		restTemplate.getInterceptors().add((request, body, execution) -> {
+			request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+			return execution.execute(request, body);
+		});
+	}
+
+	@BeforeClass
+	public static void startInstances() throws IOException {
+		for (int i = 0; i < 3; i++) {
+			shards.add(start("server.port=0", "labregister.internal.token=" + TOKEN));
+		}
+		// the third shard joins later
+		ringFile = Files.createTempDirectory("item-sharding-test").resolve("ring.json");
+		router = startRouter(shards.get(0) + "," + shards.get(1));
+	}
+
+	@AfterClass
+	public static void stopInstances() throws IOException {
+		contexts.forEach(ConfigurableApplicationContext::close);
+		Files.deleteIfExists(ringFile);
+		Files.deleteIfExists(ringFile.getParent());
+	}
+
+	@Test
+	public void router_SpreadsItemsOverShards_AndKeepsThemReadableWhenAShardIsAdded() {
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			Item request = new Item("Item " + i, ImmutableMap.of("index", String.valueOf(i)));
+			restTemplate.postForEntity(router + "/items", json(request), Item.class);
+		}
+		List<Item> items = getItems(router);
+		Assert.assertEquals(ITEM_COUNT, items.size());
+		Assert.assertEquals("Item " + (ITEM_COUNT - 1), items.get(0).getName());
+		for (int i = 1; i < items.size(); i++) {
+			Assert.assertFalse(items.get(i).getCreationDate().after(items.get(i - 1).getCreationDate()));
+		}
+		Assert.assertFalse(getItems(shards.get(0)).isEmpty());
+		Assert.assertFalse(getItems(shards.get(1)).isEmpty());
+		Assert.assertEquals(ITEM_COUNT, getItems(shards.get(0)).size() + getItems(shards.get(1)).size());
+		Assert.assertEquals(ids(items), ids(getPages(router, 7)));
+		Item[] found = restTemplate.getForObject(router + "/items/search?q=item 5&limit=3", Item[].class);
+		Assert.assertEquals(3, found.length);
+		Assert.assertEquals("Item 5", found[0].getName());
+		try {
+			restTemplate.getForObject(router + "/items/" + UUID.randomUUID(), Item.class);
+			Assert.fail();
+		} catch (HttpClientErrorException.NotFound e) {
+			// expected, answered by the owning shard
+		}
+
+		Item item = items.get(10);
+		Item request = new Item(item.getName() + " updated", ImmutableMap.of("index", "updated"));
+		request.setId(item.getId());
+		restTemplate.put(router + "/items/" + item.getId(), json(request));
+		Assert.assertEquals(2, restTemplate.getForObject(router + "/items/" + item.getId(), Item.class)
+		                                   .getVersionNumber());
+
+		Map<String, Object> added = new HashMap<>();
+		added.put("url", shards.get(2));
+		try {
+			restTemplate.postForEntity(router + "/internal/shards", json(added), Void.class);
+			Assert.fail();
+		} catch (HttpClientErrorException.Forbidden e) {
+			// expected, the token is missing
+		}
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(InternalApiInterceptor.HEADER_INTERNAL_TOKEN, TOKEN);
+		ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+				router + "/internal/shards", HttpMethod.POST, json(added, headers),
+				new ParameterizedTypeReference<Map<String, Object>>() {
+				});
+		int movedItems = (Integer) response.getBody().get("movedItems");
+		Assert.assertTrue(movedItems > 0);
+		Assert.assertEquals(movedItems, getItems(shards.get(2)).size());
+		Assert.assertEquals(shards, Arrays.asList(restTemplate.getForObject(router + "/shards", String[].class)));
+
+		// the copies on the previous owners are deleted
+		Assert.assertEquals(ITEM_COUNT, shards.stream().mapToInt(shard -> getItems(shard).size()).sum());
+		Assert.assertEquals(ids(items), ids(getItems(router)));
+		Assert.assertEquals(ids(items), ids(getPages(router, 7)));
+		ItemVersion[] versions = restTemplate.getForObject(router + "/items/" + item.getId() + "/versions",
+		                                                   ItemVersion[].class);
+		Assert.assertEquals(Arrays.asList(2, 1), Arrays.stream(versions)
+		                                              .map(ItemVersion::getVersionNumber)
+		                                              .collect(Collectors.toList()));
+		Assert.assertEquals(item.getName(), versions[1].getName());
+
+		Item created = restTemplate.postForEntity(router + "/items", json(new Item("Item new")), Item.class).getBody();
+		Assert.assertEquals(created.getId(), getItems(router).get(0).getId());
+
+		// a restarted router continues with the ring file instead of the configured shards
+		String restarted = startRouter(shards.get(0) + "," + shards.get(1));
+		Assert.assertEquals(shards, Arrays.asList(restTemplate.getForObject(restarted + "/shards", String[].class)));
+		Assert.assertEquals(ITEM_COUNT + 1, getItems(restarted).size());
+	}
+
+	@Test
+	public void ring_SpreadsIdsEvenly_AndOnlyMovesIdsToAnAddedShard() {
+		ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 128);
+		ConsistentHashRing next = ring.withShard("d");
+
+		Map<String, Integer> counts = new HashMap<>();
+		int moved = 0;
+		for (int i = 0; i < 30_000; i++) {
+			String id = UUID.randomUUID().toString();
+			counts.merge(ring.getOwner(id), 1, Integer::sum);
+			if (!ring.getOwner(id).equals(next.getOwner(id))) {
+				Assert.assertEquals("d", next.getOwner(id));
+				moved++;
+			}
+		}
+		for (int count : counts.values()) {
+			Assert.assertTrue(count > 8_000 && count < 12_000);
+		}
+		Assert.assertTrue(moved > 5_500 && moved < 9_500);
+	}
+
+	private List<Item> getItems(String instance) {
+		return Arrays.asList(restTemplate.getForObject(instance + "/items", Item[].class));
+	}
+
+	private List<Item> getPages(String instance, int limit) {
+		List<Item> items = new ArrayList<>();
+		String cursor = null;
+		do {
+			String url = instance + "/items?limit=" + limit + (cursor != null ? "&cursor=" + cursor : "");
+			ResponseEntity<Item[]> page = restTemplate.exchange(url, HttpMethod.GET, null, Item[].class);
+			Assert.assertTrue(page.getBody().length <= limit);
+			items.addAll(Arrays.asList(page.getBody()));
+			cursor = page.getHeaders().getFirst(GlobalControllerAdvice.HEADER_NEXT_CURSOR);
+		} while (cursor != null);
+		return items;
+	}
+
+	private static List<String> ids(List<Item> items) {
+		List<String> ids = items.stream().map(Item::getId).collect(Collectors.toList());
+		Assert.assertEquals(ids.size(), new HashSet<>(ids).size());
+		return ids;
+	}
+
+	private static HttpEntity<Object> json(Object body) {
+		return json(body, new HttpHeaders());
+	}
+
+	private static HttpEntity<Object> json(Object body, HttpHeaders headers) {
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		return new HttpEntity<>(body, headers);
+	}
+
+	private static String startRouter(String shards) {
+		return start("server.port=0", "labregister.internal.token=" + TOKEN,
+		             "labregister.sharding.shards=" + shards, "labregister.sharding.ring-file=" + ringFile);
+	}
+
+	private static String start(String... properties) {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).properties(properties)
+		                                                                                        .run();
+		contexts.add(context);
+		return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+	}
+}
@@ -0,0 +1,185 @@
+package com.labregister.api.items;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Multi-threaded stress test for {@link ItemStore}
+ * <p>
+ * Hammers a small set of items with concurrent updates and checks that every update shows up
+ * as exactly one version. Throughput is printed for 1 up to N threads (N = available cores).
+ */
+public class ItemStoreConcurrencyTest {
+
+	private static final int ITEM_COUNT = 16;
+
+	private static final int UPDATES_PER_THREAD = 20_000;
+
+	@Test
+	public void concurrentUpdates_DoNotLoseVersions() throws Exception {
+		int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			runUpdates(threads);
+		}
+		if (Integer.bitCount(maxThreads) != 1) {
+			runUpdates(maxThreads);
+		}
+	}
+
+	@Test
+	public void concurrentCreates_StoreEveryItemOnce() throws Exception {
+		ItemStore store = new ItemStore();
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		int itemsPerThread = 10_000;
+
+		runConcurrently(threads, thread -> {
+			for (int i = 0; i < itemsPerThread; i++) {
+				store.create(newItem("Item " + thread + "-" + i));
+			}
+		});
+
+		Assert.assertEquals(threads * itemsPerThread, store.size());
+		for (Item item : store.values()) {
+			Assert.assertEquals(1, item.getVersionNumber());
+		}
+		// the text index applied the updates queued by all writers
+		for (int thread = 0; thread < threads; thread++) {
+			Assert.assertEquals(1, store.search("Item " + thread + "-9999", 10).size());
+		}
+	}
+
+	@Test
+	public void concurrentReads_SeeOneConsistentVersion_WhileItemIsUpdated() throws Exception {
+		ItemStore store = new ItemStore();
+		ObjectMapper objectMapper = new ObjectMapper();
+		Item item = store.create(newItem("Item 1", "1"));
+		int updates = 50_000;
+		AtomicBoolean updating = new AtomicBoolean(true);
+
+		runConcurrently(Math.max(2, Runtime.getRuntime().availableProcessors()), thread -> {
+			if (thread == 0) {
+				// each update names the version it creates
+				for (int version = 2; version <= updates; version++) {
+					Item request = new Item("Item " + version, ImmutableMap.of("version", String.valueOf(version)));
+					request.setId(item.getId());
+					store.update(item.getId(), request, new Date());
+				}
+				updating.set(false);
+				return;
+			}
+			while (updating.get()) {
+				JsonNode json = objectMapper.readTree(objectMapper.writeValueAsBytes(item));
+				String version = json.get("versionNumber").asText();
+				Assert.assertEquals("Item " + version, json.get("name").asText());
+				Assert.assertEquals(version, json.get("attributes").get("version").asText());
+
+				List<ItemVersion> versions = item.getVersions(1, Integer.MAX_VALUE, 2);
+				Assert.assertEquals("Item " + versions.get(0).getVersionNumber(), versions.get(0).getName());
+			}
+		});
+
+		Assert.assertEquals(updates, item.getVersionNumber());
+	}
+
+	private void runUpdates(int threads) throws Exception {
+		ItemStore store = new ItemStore();
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			ids.add(store.create(newItem("Item " + i)).getId());
+		}
+
+		long elapsed = runConcurrently(threads, thread -> {
+			for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+				String id = ids.get((thread + i) % ITEM_COUNT);
+				// the name is unique per update, so each one must produce a new version
+				Item request = new Item("Item " + thread + "-" + i, ImmutableMap.of("thread", String.valueOf(thread)));
+				request.setId(id);
+				Assert.assertNotNull(store.update(id, request, new Date()));
+			}
+		});
+
+		long expectedVersions = ITEM_COUNT + (long) threads * UPDATES_PER_THREAD;
+		long actualVersions = 0;
+		for (String id : ids) {
+			Item item = store.get(id).orElseThrow(AssertionError::new);
+			List<ItemVersion> versions = item.getVersions();
+
+			Assert.assertEquals(item.getVersionNumber(), versions.size());
+			for (int i = 0; i < versions.size(); i++) {
+				Assert.assertEquals(versions.size() - i, versions.get(i).getVersionNumber());
+			}
+			actualVersions += versions.size();
+		}
+		Assert.assertEquals(expectedVersions, actualVersions);
+
+		long operations = (long) threads * UPDATES_PER_THREAD;
+		System.out.printf("ItemStore updates: %2d thread(s) -> %,12.0f ops/s%n",
+		                  threads, operations / (elapsed / 1e9));
+	}
+
+	private static long runConcurrently(int threads, ThreadTask task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (int t = 0; t < threads; t++) {
+				final int thread = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					task.run(thread);
+					return null;
+				}));
+			}
+
+			long startTime = System.nanoTime();
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			return System.nanoTime() - startTime;
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	private static Item newItem(String name) {
+		return newItem(name, ImmutableMap.of("location", "freezer-3"));
+	}
+
+	private static Item newItem(String name, String version) {
+		return newItem(name, ImmutableMap.of("version", version));
+	}
+
+	private static Item newItem(String name, Map<String, String> attributes) {
+		Item item = new Item(name, attributes);
+		item.setId(UUID.randomUUID().toString());
+		item.setCreationDate(new Date());
+		return item;
+	}
+
+	@FunctionalInterface
+	private interface ThreadTask {
+
+		void run(int thread) throws Exception;
+	}
+}
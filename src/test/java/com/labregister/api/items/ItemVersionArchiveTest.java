@@ -0,0 +1,144 @@
+package com.labregister.api.items;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.ItemStoreProperties;
+import com.labregister.api.items.store.persistence.ItemVersionArchiver;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ItemVersionArchiveTest {
+
+	private static final long START = 1_500_000_000_000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ItemVersionArchiver archiver;
+
+	@After
+	public void stopArchiver() throws Exception {
+		if (archiver != null) {
+			archiver.stop();
+		}
+	}
+
+	@Test
+	public void archive_ReleasesVersionsBeyondRetentionCount_AndReadsThemBack() throws IOException {
+		ItemStore store = new ItemStore();
+		startArchiver(store, 3, null);
+		Item item = createWithVersions(store, 10);
+		List<ItemVersion> before = item.getVersions();
+
+		Assert.assertEquals(7, archiver.archive());
+		Assert.assertEquals(8, item.getFirstHeldVersion());
+		Assert.assertEquals(7, store.getStatistics().getArchivedVersions());
+		assertSameVersions(before, item.getVersions());
+
+		Assert.assertEquals(ImmutableMap.of("count", "1"), item.getVersions(1, 1, 1).get(0).getAttributes());
+		Assert.assertEquals(Arrays.asList(9, 8, 7, 6), versionNumbers(item.getVersions(2, 9, 4)));
+		Assert.assertEquals(Arrays.asList(5, 4), versionNumbers(item.getVersions(4, 5, 10)));
+		Assert.assertEquals(3, item.getFirstVersionSince(new Date(START + 3_000)));
+		Assert.assertEquals(9, item.getFirstVersionSince(new Date(START + 8_500)));
+
+		// a second block continues the first one
+		update(store, item, 11, 15);
+		Assert.assertEquals(5, archiver.archive());
+		Assert.assertEquals(13, item.getFirstHeldVersion());
+		Assert.assertEquals(Arrays.asList(15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1),
+		                    versionNumbers(Lists.newArrayList(item.iterateVersions())));
+		Assert.assertEquals(7, item.getFirstVersionSince(new Date(START + 6_500)));
+		Assert.assertEquals(0, archiver.archive());
+	}
+
+	@Test
+	public void archive_ReleasesVersionsOlderThanRetentionAge_ButKeepsCurrentVersion() throws IOException {
+		ItemStore store = new ItemStore();
+		startArchiver(store, 0, Duration.ofDays(1));
+		Item item = createWithVersions(store, 5);
+
+		Assert.assertEquals(4, archiver.archive());
+		Assert.assertEquals(5, item.getFirstHeldVersion());
+		Assert.assertEquals(5, item.getVersions().size());
+		Assert.assertEquals(ImmutableMap.of("count", "5"), item.getAttributes());
+	}
+
+	@Test
+	public void archive_DeletesSegmentsOfDeletedItems() throws IOException {
+		ItemStore store = new ItemStore();
+		startArchiver(store, 1, null);
+		createWithVersions(store, 5);
+		archiver.archive();
+		Assert.assertEquals(1, archiveFiles().size());
+
+		store.clear();
+		Item item = createWithVersions(store, 3);
+		Assert.assertEquals(2, archiver.archive());
+		Assert.assertEquals(1, archiveFiles().size());
+		Assert.assertEquals(3, item.getVersions().size());
+	}
+
+	private void startArchiver(ItemStore store, int retentionCount, Duration retentionAge) throws IOException {
+		ItemStoreProperties properties = new ItemStoreProperties();
+		properties.setDataDirectory(folder.getRoot().getPath());
+		properties.setVersionRetentionCount(retentionCount);
+		properties.setVersionRetentionAge(retentionAge);
+		archiver = new ItemVersionArchiver(store, properties);
+		archiver.start();
+	}
+
+	private List<Path> archiveFiles() throws IOException {
+		try (Stream<Path> files = Files.list(folder.getRoot().toPath().resolve("archive"))) {
+			return files.collect(Collectors.toList());
+		}
+	}
+
+	// version n is dated n seconds after START and has the attribute count = n
+	private static Item createWithVersions(ItemStore store, int versions) {
+		Item item = new Item("Item", ImmutableMap.of("count", "1"));
+		item.setId(UUID.randomUUID().toString());
+		item.setCreationDate(new Date(START + 1_000));
+		store.create(item);
+		update(store, item, 2, versions);
+		return item;
+	}
+
+	private static void update(ItemStore store, Item item, int fromVersion, int toVersion) {
+		for (int number = fromVersion; number <= toVersion; number++) {
+			Item request = new Item("Item " + number, ImmutableMap.of("count", String.valueOf(number)));
+			request.setId(item.getId());
+			store.update(item.getId(), request, new Date(START + number * 1_000L));
+		}
+	}
+
+	private static void assertSameVersions(List<ItemVersion> expected, List<ItemVersion> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getVersionNumber(), actual.get(i).getVersionNumber());
+			Assert.assertEquals(expected.get(i).getName(), actual.get(i).getName());
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+			Assert.assertEquals(expected.get(i).getVersionDate(), actual.get(i).getVersionDate());
+		}
+	}
+
+	private static List<Integer> versionNumbers(List<ItemVersion> versions) {
+		return versions.stream().map(ItemVersion::getVersionNumber).collect(Collectors.toList());
+	}
+}
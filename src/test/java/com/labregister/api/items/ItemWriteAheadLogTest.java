@@ -0,0 +1,250 @@
+package com.labregister.api.items;
+
+import com.google.common.collect.ImmutableMap;
+import com.labregister.api.core.exception.ServiceUnavailableException;
+import com.labregister.api.items.domain.Item;
+import com.labregister.api.items.domain.ItemVersion;
+import com.labregister.api.items.store.ItemChange;
+import com.labregister.api.items.store.ItemChangeLog;
+import com.labregister.api.items.store.ItemStore;
+import com.labregister.api.items.store.persistence.FsyncPolicy;
+import com.labregister.api.items.store.persistence.ItemSnapshot;
+import com.labregister.api.items.store.persistence.ItemWriteAheadLog;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ItemWriteAheadLogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ItemWriteAheadLog log;
+
+	@Test
+	public void replay_RestoresItemsAndVersions() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		ItemStore store = openStore(directory, FsyncPolicy.ALWAYS);
+
+		Item item = store.create(newItem("Item 1", ImmutableMap.of("year", "2019", "color", "black")));
+		store.create(newItem("Item 2", ImmutableMap.of("year", "2020")));
+		store.update(item.getId(), request(item.getId(), "Item 1", ImmutableMap.of("year", "2019")), new Date());
+		// no-op update, must not be logged as a version
+		store.update(item.getId(), request(item.getId(), "Item 1", ImmutableMap.of("year", "2019")), new Date());
+		store.update(item.getId(), request(item.getId(), "Item 1b", ImmutableMap.of("year", "2019")), new Date());
+		log.close();
+
+		ItemStore restored = new ItemStore();
+		Assert.assertEquals(4, ItemWriteAheadLog.replay(directory, 0, restored::apply));
+
+		Assert.assertEquals(2, restored.size());
+		Item restoredItem = restored.get(item.getId()).orElseThrow(AssertionError::new);
+		Assert.assertEquals("Item 1b", restoredItem.getName());
+		Assert.assertEquals(ImmutableMap.of("year", "2019"), restoredItem.getAttributes());
+		Assert.assertEquals(item.getCreationDate(), restoredItem.getCreationDate());
+		Assert.assertEquals(3, restoredItem.getVersionNumber());
+
+		List<ItemVersion> versions = restoredItem.getVersions();
+		Assert.assertEquals(ImmutableMap.of("year", "2019", "color", "black"), versions.get(2).getAttributes());
+		Assert.assertEquals("Item 2", restored.values().iterator().next().getName());
+	}
+
+	@Test
+	public void replay_AppliesDeleteAll() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		ItemStore store = openStore(directory, FsyncPolicy.NEVER);
+
+		store.create(newItem("Item 1", ImmutableMap.of()));
+		store.clear();
+		store.create(newItem("Item 2", ImmutableMap.of()));
+		log.close();
+
+		ItemStore restored = new ItemStore();
+		ItemWriteAheadLog.replay(directory, 0, restored::apply);
+		Assert.assertEquals(1, restored.size());
+		Assert.assertEquals("Item 2", restored.values().iterator().next().getName());
+	}
+
+	@Test
+	public void replay_TruncatesTornTail() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		ItemStore store = openStore(directory, FsyncPolicy.INTERVAL);
+		store.create(newItem("Item 1", ImmutableMap.of("year", "2019")));
+		log.close();
+
+		Path file = directory.resolve(String.format("items-%010d.wal", ItemWriteAheadLog.segments(directory).get(0)));
+		long intactLength = Files.size(file);
+		// simulate a crash in the middle of writing a record
+		Files.write(file, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+		ItemStore restored = new ItemStore();
+		Assert.assertEquals(1, ItemWriteAheadLog.replay(directory, 0, restored::apply));
+		Assert.assertEquals(1, restored.size());
+		Assert.assertEquals(intactLength, Files.size(file));
+	}
+
+	@Test
+	public void replay_FailsOnCorruptionBeforeTheNewestSegment() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		ItemStore store = openStore(directory, FsyncPolicy.NEVER);
+		store.create(newItem("Item 1", ImmutableMap.of("year", "2019")));
+		store.create(newItem("Item 2", ImmutableMap.of("year", "2020")));
+		log.rotate().join();
+		store.create(newItem("Item 3", ImmutableMap.of()));
+		log.close();
+
+		Path file = directory.resolve(String.format("items-%010d.wal", ItemWriteAheadLog.segments(directory).get(0)));
+		long length = Files.size(file);
+		byte[] bytes = Files.readAllBytes(file);
+		// a flipped bit in the payload of the first record
+		bytes[10] ^= 1;
+		Files.write(file, bytes);
+
+		try {
+			ItemWriteAheadLog.replay(directory, 0, new ItemStore()::apply);
+			Assert.fail();
+		} catch (IOException e) {
+			// expected, the records after it must not be dropped
+		}
+		Assert.assertEquals(length, Files.size(file));
+	}
+
+	@Test
+	public void snapshot_RestoresWithLogTail() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		ItemStore store = openStore(directory, FsyncPolicy.NEVER);
+
+		Item item = store.create(newItem("Item 1", ImmutableMap.of("year", "2019", "color", "black")));
+		store.update(item.getId(), request(item.getId(), "Item 1", ImmutableMap.of("year", "2020")), new Date());
+		long segment = log.rotate().join();
+		ItemSnapshot.write(directory, store, segment);
+		ItemWriteAheadLog.deleteSegmentsBefore(directory, segment);
+
+		store.update(item.getId(), request(item.getId(), "Item 1b", ImmutableMap.of("year", "2020")), new Date());
+		store.create(newItem("Item 2", ImmutableMap.of()));
+		log.close();
+
+		ItemStore restored = new ItemStore();
+		long fromSegment = ItemSnapshot.loadLatest(directory, restored);
+		Assert.assertEquals(segment, fromSegment);
+		Assert.assertEquals(2, ItemWriteAheadLog.replay(directory, fromSegment, restored::apply));
+		assertSameItems(store, restored);
+
+		List<ItemVersion> versions = restored.get(item.getId()).orElseThrow(AssertionError::new).getVersions();
+		Assert.assertEquals(3, versions.size());
+		Assert.assertEquals(ImmutableMap.of("year", "2019", "color", "black"), versions.get(2).getAttributes());
+		Assert.assertEquals(ImmutableMap.of("year", "2020"), versions.get(1).getAttributes());
+	}
+
+	@Test
+	public void snapshot_ReplayingCoveredChangesIsNoOp() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		ItemStore store = openStore(directory, FsyncPolicy.NEVER);
+
+		Item item = store.create(newItem("Item 1", ImmutableMap.of("year", "2019")));
+		store.create(newItem("Item 2", ImmutableMap.of()));
+		store.update(item.getId(), request(item.getId(), "Item 1b", ImmutableMap.of()), new Date());
+		// a snapshot taken after more changes than its segment says, as with concurrent writes
+		ItemSnapshot.write(directory, store, 1);
+		log.close();
+
+		ItemStore restored = new ItemStore();
+		ItemWriteAheadLog.replay(directory, ItemSnapshot.loadLatest(directory, restored), restored::apply);
+		assertSameItems(store, restored);
+	}
+
+	@Test
+	public void store_RefusesChanges_OnceTheLogFailed() {
+		ItemStore store = new ItemStore();
+		Item item = store.create(newItem("Item 1", ImmutableMap.of("year", "2019")));
+		// fails like the write-ahead log after an IOException: the pending write and all later ones
+		AtomicBoolean failed = new AtomicBoolean();
+		store.setChangeLog(new ItemChangeLog() {
+
+			@Override
+			public CompletableFuture<?> append(ItemChange change) {
+				failed.set(true);
+				CompletableFuture<?> written = new CompletableFuture<>();
+				written.completeExceptionally(new IOException("No space left on device"));
+				return written;
+			}
+
+			@Override
+			public boolean isWritable() {
+				return !failed.get();
+			}
+		});
+		List<ItemChange> published = new ArrayList<>();
+		store.addChangeListener(published::add);
+
+		// accepted by the log before it failed, so applied but reported as not durable
+		assertUnavailable(() -> store.create(newItem("Item 2", ImmutableMap.of())));
+		Assert.assertEquals(1, published.size());
+		published.clear();
+
+		assertUnavailable(() -> store.create(newItem("Item 3", ImmutableMap.of())));
+		assertUnavailable(() -> store.update(item.getId(), request(item.getId(), "Item 1b", ImmutableMap.of()),
+		                                     new Date()));
+		assertUnavailable(() -> store.applyAll(Collections.singletonList(ItemChange.deleted(item.getId(), 0))));
+		assertUnavailable(store::clear);
+
+		Assert.assertEquals(2, store.size());
+		Assert.assertEquals("Item 1", store.get(item.getId()).orElseThrow(AssertionError::new).getName());
+		Assert.assertEquals(1, item.getVersionNumber());
+		Assert.assertTrue(published.isEmpty());
+	}
+
+	private static void assertUnavailable(Runnable change) {
+		try {
+			change.run();
+			Assert.fail();
+		} catch (ServiceUnavailableException e) {
+			// expected
+		}
+	}
+
+	private static void assertSameItems(ItemStore expected, ItemStore actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (Item item : expected.values()) {
+			Item restored = actual.get(item.getId()).orElseThrow(AssertionError::new);
+			Assert.assertEquals(item.getName(), restored.getName());
+			Assert.assertEquals(item.getAttributes(), restored.getAttributes());
+			Assert.assertEquals(item.getCreationDate(), restored.getCreationDate());
+			Assert.assertEquals(item.getVersionNumber(), restored.getVersionNumber());
+		}
+	}
+
+	private ItemStore openStore(Path directory, FsyncPolicy policy) throws IOException {
+		ItemStore store = new ItemStore();
+		log = ItemWriteAheadLog.open(directory, policy, Duration.ofMillis(10), 64);
+		store.setChangeLog(log);
+		return store;
+	}
+
+	private static Item newItem(String name, ImmutableMap<String, String> attributes) {
+		Item item = new Item(name, attributes);
+		item.setId(UUID.randomUUID().toString());
+		item.setCreationDate(new Date());
+		return item;
+	}
+
+	private static Item request(String id, String name, ImmutableMap<String, String> attributes) {
+		Item item = new Item(name, attributes);
+		item.setId(id);
+		return item;
+	}
+}